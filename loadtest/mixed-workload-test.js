@@ -0,0 +1,51 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+// Mixed CPU-bound (heavy-operation) and blocking (user lookup) traffic.
+// Compare runs with heavy operations on the compute pool (default) against the
+// single-pool baseline, -Dcompute.enabled=false, to see how much light-request
+// latency improves. Rate limits are per client address, so start both runs with
+// -Drate-limit.api.per-second=0 -Drate-limit.heavy-operation.per-second=0.
+const heavyLatency = new Trend('heavy_latency', true);
+const lightLatency = new Trend('light_latency', true);
+
+export const options = {
+  scenarios: {
+    heavy: {
+      executor: 'constant-arrival-rate',
+      exec: 'heavy',
+      rate: 50,
+      timeUnit: '1s',
+      duration: '2m',
+      preAllocatedVUs: 50,
+      maxVUs: 500,
+    },
+    light: {
+      executor: 'constant-arrival-rate',
+      exec: 'light',
+      rate: 200,
+      timeUnit: '1s',
+      duration: '2m',
+      preAllocatedVUs: 100,
+      maxVUs: 1000,
+    },
+  },
+  thresholds: {
+    light_latency: ['p(95)<300'],
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export function heavy() {
+  const response = http.get(`${BASE_URL}/api/users/1/heavy-operation`);
+  check(response, { 'heavy status is 200': (r) => r.status === 200 });
+  heavyLatency.add(response.timings.duration);
+}
+
+export function light() {
+  const response = http.get(`${BASE_URL}/api/users/2`);
+  check(response, { 'light status is 200': (r) => r.status === 200 });
+  lightLatency.add(response.timings.duration);
+}
@@ -0,0 +1,55 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Pushes the server well past worker pool saturation to verify the adaptive
+// concurrency limiter sheds load (503) while accepted requests keep a stable p99.
+// Rate limits are per client address, so start the server with
+// -Drate-limit.api.per-second=0 or the single load generator only sees 429s.
+const shed = new Counter('shed_requests');
+const acceptedLatency = new Trend('accepted_latency', true);
+
+export const options = {
+  scenarios: {
+    saturation: {
+      executor: 'ramping-arrival-rate',
+      startRate: 50,
+      timeUnit: '1s',
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+      stages: [
+        { duration: '30s', target: 200 },   // Below saturation
+        { duration: '1m', target: 1000 },   // Past saturation
+        { duration: '2m', target: 2000 },   // Far past saturation
+        { duration: '30s', target: 50 },    // Recovery
+      ],
+    },
+  },
+  thresholds: {
+    accepted_latency: ['p(99)<1500'],       // Accepted requests stay fast
+    checks: ['rate>0.99'],                  // Only 200s and 503s are expected
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export default function () {
+  const response = Math.random() < 0.8
+    ? http.get(`${BASE_URL}/api/users/1`)
+    : http.get(`${BASE_URL}/api/users`);
+
+  check(response, {
+    'status is 200 or 503': (r) => r.status === 200 || r.status === 503,
+  });
+
+  if (response.status === 503) {
+    shed.add(1);
+  } else {
+    acceptedLatency.add(response.timings.duration);
+  }
+}
+
+export function teardown() {
+  const limits = http.get(`${BASE_URL}/concurrency-limit`);
+  console.log(`Concurrency limit after test: ${limits.body}`);
+}
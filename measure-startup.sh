@@ -0,0 +1,47 @@
+#!/bin/bash
+
+# Measures time-to-first-200 on /health: from JVM launch until the health endpoint answers.
+# Usage:
+#   ./measure-startup.sh              # plain classpath run (needs: mvn -Pappcds package)
+#   ./measure-startup.sh --appcds     # same jar with the AppCDS archive from the training run
+
+PORT=8888
+RUNS=${RUNS:-5}
+JAR="target/vertx-common-1.0-SNAPSHOT.jar"
+ARCHIVE="target/app-cds.jsa"
+
+if [ ! -f "$JAR" ]; then
+    echo "❌ $JAR not found. Build it first with: mvn -Pappcds package"
+    exit 1
+fi
+
+CDS_OPTS=""
+if [ "$1" == "--appcds" ]; then
+    if [ ! -f "$ARCHIVE" ]; then
+        echo "❌ $ARCHIVE not found. Build it first with: mvn -Pappcds package"
+        exit 1
+    fi
+    CDS_OPTS="-XX:SharedArchiveFile=$ARCHIVE"
+fi
+
+total=0
+for run in $(seq 1 $RUNS); do
+    start=$(date +%s%N)
+    java $CDS_OPTS -Daccess.log.enabled=false -jar "$JAR" > /dev/null 2>&1 &
+    PID=$!
+
+    until curl -s -o /dev/null -w "%{http_code}" "http://localhost:$PORT/health" 2>/dev/null | grep -q 200; do
+        sleep 0.01
+    done
+    end=$(date +%s%N)
+
+    kill $PID
+    wait $PID 2>/dev/null
+
+    elapsed=$(( (end - start) / 1000000 ))
+    total=$(( total + elapsed ))
+    echo "Run $run: first 200 on /health after ${elapsed} ms"
+done
+
+echo ""
+echo "Average time-to-first-200: $(( total / RUNS )) ms ${CDS_OPTS:+(AppCDS)}"
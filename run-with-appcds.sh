@@ -0,0 +1,15 @@
+#!/bin/bash
+
+# Runs the packaged application with the class-data-sharing archive produced by the appcds profile.
+# Build both with: mvn -Pappcds package
+
+JAR="target/vertx-common-1.0-SNAPSHOT.jar"
+ARCHIVE="target/app-cds.jsa"
+
+if [ ! -f "$JAR" ] || [ ! -f "$ARCHIVE" ]; then
+    echo "❌ Missing $JAR or $ARCHIVE"
+    echo "Build them first with: mvn -Pappcds package"
+    exit 1
+fi
+
+exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto "$@" -jar "$JAR"
@@ -1,49 +1,51 @@
 package org.example;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
-import org.example.controller.AbstractHttpController;
-import org.example.controller.UserController;
-import org.example.controller.OrderController;
+import org.example.route.ControllerRoutes;
+import org.example.route.GeneratedRoutes;
+import org.example.util.AccessLog;
+import org.example.util.ComputeExecutor;
+import org.example.util.DrainCoordinator;
+import org.example.util.JsonSupport;
+import org.example.util.RuntimeStatsSampler;
+import org.example.util.ThreadConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
 import java.util.List;
-import java.util.function.BiFunction;
-import io.vertx.core.WorkerExecutor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class App {
     
     private static final Logger logger = LoggerFactory.getLogger(App.class);
     
     public static void main(String[] args) {
-        // Dynamic CPU detection and thread calculation
-        int availableCpus = Runtime.getRuntime().availableProcessors();
-        int eventLoopThreads = availableCpus * 2; // Vert.x best practice: 2x CPU cores
-        int verticleInstances = eventLoopThreads;  // Match verticles to event loops for full utilization
-        int workerPoolSize = verticleInstances * 15; // 15 workers per verticle
-        int internalBlockingPool = Math.max(20, availableCpus * 2);
-        
-        logger.info("=== Thread Configuration Analysis ===");
-        logger.info("Available CPU cores: {}", availableCpus);
-        logger.info("Event loop threads: {} (2x CPU cores)", eventLoopThreads);
-        logger.info("Verticle instances: {} (1 per event loop thread)", verticleInstances);
-        logger.info("Worker pool size: {} ({} workers per verticle)", workerPoolSize, 15);
-        logger.info("Internal blocking pool: {}", internalBlockingPool);
-        logger.info("=========================================");
+        // Container-aware thread sizing (cgroup CPU quota and memory limit, config/env overrides)
+        ThreadConfiguration threadConfig = ThreadConfiguration.current();
+        threadConfig.logSummary();
+        int verticleInstances = threadConfig.getVerticleInstances();
         
         VertxOptions options = new VertxOptions()
-            .setEventLoopPoolSize(eventLoopThreads)
-            .setWorkerPoolSize(workerPoolSize)
-            .setInternalBlockingPoolSize(internalBlockingPool);
+            .setEventLoopPoolSize(threadConfig.getEventLoopThreads())
+            .setWorkerPoolSize(threadConfig.getWorkerPoolSize())
+            .setInternalBlockingPoolSize(threadConfig.getInternalBlockingPoolSize());
         
         Vertx vertx = Vertx.vertx(options);
         
-        // Create controller factories for dependency injection
-        List<BiFunction<Vertx, WorkerExecutor, AbstractHttpController>> controllerFactories = List.of(
-            UserController::new,
-            OrderController::new
-        );
+        // Route tables generated at compile time from the @HttpController classes
+        List<ControllerRoutes<?>> routeTables = GeneratedRoutes.all();
+        
+        // Initialise process-wide components once, before the verticles start in parallel on their event loops
+        AccessLog.shared();
+        ComputeExecutor.shared();
+        DrainCoordinator.shared();
+        
+        // In-process serializer warm-up before any verticle listens, so /health never reports a cold instance
+        JsonSupport.warmUp();
         
         // Deploy multiple instances of the HTTP server verticle with injected controllers
         // Vert.x will automatically distribute them across event loop threads
@@ -51,23 +53,51 @@ public class App {
         io.vertx.core.DeploymentOptions deploymentOptions = new io.vertx.core.DeploymentOptions()
             .setInstances(verticleInstances);
         
-        vertx.deployVerticle(() -> new HttpServerVerticle(controllerFactories), deploymentOptions, result -> {
+        List<HttpServerVerticle> verticles = new CopyOnWriteArrayList<>();
+        vertx.deployVerticle(() -> {
+            HttpServerVerticle verticle = new HttpServerVerticle(routeTables);
+            verticles.add(verticle);
+            return verticle;
+        }, deploymentOptions, result -> {
             if (result.succeeded()) {
                 logger.info("Successfully deployed {} HttpServerVerticle instances", verticleInstances);
                 logger.info("Deployment ID: {}", result.result());
-                logger.info("Application ready! Each verticle runs on a different event loop thread.");
+                // Started once the verticles' threads exist, so the first /thread-stats sample counts them
+                RuntimeStatsSampler.shared();
+                logger.info("Application ready in {} ms since JVM start! Each verticle runs on a different event loop thread.",
+                           ManagementFactory.getRuntimeMXBean().getUptime());
                 logger.info("Vert.x handles request sharing automatically using round-robin strategy.");
-                logger.info("Access the application at: http://localhost:8080");
+                int port = verticles.get(0).getActualPort();
+                logger.info("Access the application at: http://localhost:{}", port);
+                
+                // AppCDS training run: replay the request script (if any), then exit so the JVM dumps the archive
+                if (Boolean.getBoolean("app.exit-after-warmup")) {
+                    String script = System.getProperty("app.training-script");
+                    Future<Void> training = script != null ? TrainingRun.run(vertx, port, script) : Future.succeededFuture();
+                    training.onComplete(v -> {
+                        logger.info("Exiting after warm-up (training run)");
+                        System.exit(0);
+                    });
+                }
             } else {
                 logger.error("Failed to deploy HttpServerVerticle instances", result.cause());
                 System.exit(1);
             }
         });
         
-        // Graceful shutdown hook
+        // Graceful shutdown hook: leave the load balancer rotation, finish in-flight requests, then close
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             logger.info("Shutting down application...");
-            vertx.close();
+            DrainCoordinator.shared().drain();
+            try {
+                vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                logger.warn("Vert.x did not close cleanly", e);
+            }
+            RuntimeStatsSampler.shared().close();
+            ComputeExecutor.shared().close();
+            // Flushes the buffered access log records of the drained requests
+            AccessLog.shared().close();
         }));
     }
 }
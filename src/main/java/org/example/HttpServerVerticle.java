@@ -2,42 +2,51 @@ package org.example;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
-import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
 import org.example.controller.AbstractHttpController;
-import org.example.controller.UserController;
-import org.example.controller.OrderController;
+import org.example.route.ControllerRoutes;
+import org.example.route.DispatchTable;
+import org.example.route.GeneratedRoutes;
+import org.example.route.RouteRegistrar;
+import org.example.util.AccessLog;
+import org.example.util.ConcurrencyLimiter;
 import org.example.util.ControllerRegistry;
+import org.example.util.DrainCoordinator;
 import org.example.util.MonitoringEndpoints;
+import org.example.util.RateLimitHandler;
+import org.example.util.RequestTracer;
+import org.example.util.ThreadConfiguration;
+import org.example.util.TunableWorkerPool;
+import org.example.util.WorkerPoolAutoTuner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.function.BiFunction;
 
 public class HttpServerVerticle extends AbstractVerticle {
     
     private static final Logger logger = LoggerFactory.getLogger(HttpServerVerticle.class);
-    private static final int HTTP_PORT = 8888;
+    // A negative port has every verticle share one ephemeral port (AppCDS training runs)
+    static final int HTTP_PORT = Integer.getInteger("http.port", 8888);
     private static final String WORKER_POOL_NAME = "worker-pool-verticle";
-    private static final int WORKER_POOL_SIZE = 15;
     private static final long WORKER_MAX_EXECUTE_TIME = 60000; // 60 seconds
     
     private WorkerExecutor workerExecutor;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private WorkerPoolAutoTuner autoTuner;
+    private TunableWorkerPool workerPool;
     private ControllerRegistry controllerRegistry;
-    private final List<BiFunction<Vertx, WorkerExecutor, AbstractHttpController>> controllerFactories;
+    private final List<ControllerRoutes<?>> routeTables;
+    private volatile int actualPort;
     
-    public HttpServerVerticle(List<BiFunction<Vertx, WorkerExecutor, AbstractHttpController>> controllerFactories) {
-        this.controllerFactories = controllerFactories;
+    public HttpServerVerticle(List<ControllerRoutes<?>> routeTables) {
+        this.routeTables = routeTables;
     }
     
     public HttpServerVerticle() {
-        this.controllerFactories = List.of(
-            UserController::new,
-            OrderController::new
-        );
+        this(GeneratedRoutes.all());
     }
     
     @Override
@@ -48,28 +57,64 @@ public class HttpServerVerticle extends AbstractVerticle {
         logger.info("Starting HttpServerVerticle {} on thread: {}", verticleId, threadName);
         
         try {
+            ThreadConfiguration threadConfig = ThreadConfiguration.current();
+            
             // Create worker executor for this verticle
             workerExecutor = vertx.createSharedWorkerExecutor(
                 WORKER_POOL_NAME + "-" + verticleId, 
-                WORKER_POOL_SIZE, 
+                threadConfig.getWorkerThreadsPerVerticle(), 
                 WORKER_MAX_EXECUTE_TIME
             );
             
+            // Adaptive in-flight limit in front of this verticle's worker pool
+            concurrencyLimiter = ConcurrencyLimiter.fromSystemProperties(
+                WORKER_POOL_NAME + "-" + verticleId,
+                threadConfig.getWorkersPerVerticle() * 2
+            );
+            
+            // Optional runtime tuning of worker concurrency from queue wait and CPU utilization
+            if (threadConfig.isAutoTuneEnabled()) {
+                workerPool = new TunableWorkerPool(workerExecutor, threadConfig.getWorkersPerVerticle());
+                autoTuner = new WorkerPoolAutoTuner(
+                    verticleId,
+                    workerPool,
+                    concurrencyLimiter,
+                    threadConfig.getWorkersPerVerticle(),
+                    threadConfig.getMaxWorkersPerVerticle()
+                );
+                autoTuner.start(vertx);
+            }
+            
             // Setup router
             Router router = Router.router(vertx);
             
             // Global middleware
             setupGlobalHandlers(router);
             
+            // Optional exact/parameterized route lookup ahead of the Router's route walk; misses fall through to it
+            DispatchTable dispatchTable = null;
+            if (Boolean.getBoolean("routes.fast-dispatch")) {
+                dispatchTable = new DispatchTable(RequestTracer.shared().isEnabled());
+            }
+            // Streaming import routes are registered first; the body handler and the dispatch table follow them, ahead
+            // of every other route, when the registrar completes
+            RouteRegistrar routes = new RouteRegistrar(router, dispatchTable, BodyHandler.create());
+            
             // Auto-inject and setup controllers
-            setupControllers(router);
+            setupControllers(routes);
             
             // Setup monitoring endpoints
-            setupMonitoringEndpoints(router, verticleId);
-            
-            // Start HTTP server
-            startHttpServer(router, verticleId, threadName, startPromise);
+            setupMonitoringEndpoints(routes, verticleId, dispatchTable);
+            routes.complete();
+            if (dispatchTable != null) {
+                logger.info("Fast route dispatch: {} routes in the table, {} left to the router",
+                           dispatchTable.getTableRoutes(), dispatchTable.getRouterOnlyRoutes());
+            }
             
+            // One request per route through this router before the server listens on the public port
+            StartupWarmUp.run(vertx, router)
+                .onComplete(v -> startHttpServer(router, verticleId, threadName, startPromise));
+        
         } catch (Exception e) {
             logger.error("Failed to start HttpServerVerticle {}", verticleId, e);
             startPromise.fail(e);
@@ -77,57 +122,70 @@ public class HttpServerVerticle extends AbstractVerticle {
     }
     
     private void setupGlobalHandlers(Router router) {
-        // Body handler for parsing request bodies
-        router.route().handler(BodyHandler.create());
+        // In-flight tracking and connection draining for graceful shutdown; runs before anything else
+        router.route().handler(DrainCoordinator.shared().requestHandler());
+        
+        // Access log middleware: one structured record per request, written asynchronously
+        AccessLog accessLog = AccessLog.shared();
+        router.route().handler(ctx -> {
+            long startNanos = System.nanoTime();
+            String method = ctx.request().method().name();
+            String path = ctx.request().path();
+            ctx.addBodyEndHandler(v -> accessLog.record(
+                method,
+                path,
+                ctx.response().getStatusCode(),
+                System.nanoTime() - startNanos,
+                ctx.response().bytesWritten()
+            ));
+            ctx.next();
+        });
         
         // CORS handler
         router.route().handler(ctx -> {
             ctx.response()
                .putHeader("Access-Control-Allow-Origin", "*")
                .putHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS")
-               .putHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
+               .putHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, X-API-Key");
             ctx.next();
         });
         
-        // Request logging middleware
-        router.route().handler(ctx -> {
-            String method = ctx.request().method().toString();
-            String uri = ctx.request().uri();
-            String thread = Thread.currentThread().getName();
-            logger.debug("Request: {} {} (thread: {})", method, uri, thread);
-            ctx.next();
-        });
+        // Per-client API rate limit, rejected on the event loop before the body is read or a worker is used. Mounted on
+        // the /api/* prefix it is one budget per client address across every API route, not one per endpoint.
+        router.route("/api/*").handler(RateLimitHandler.fromSystemProperties("api", 200, 400));
     }
     
-    private void setupControllers(Router router) {
+    private void setupControllers(RouteRegistrar routes) {
         // Initialize controller registry
         controllerRegistry = new ControllerRegistry();
-        controllerRegistry.registerControllers(vertx, workerExecutor);
-        
-        // Create controllers using factories
-        for (BiFunction<Vertx, WorkerExecutor, AbstractHttpController> factory : controllerFactories) {
-            AbstractHttpController controller = factory.apply(vertx, workerExecutor);
-            controllerRegistry.addController(controller);
+        controllerRegistry.registerControllers(vertx, workerExecutor, routeTables);
+        for (AbstractHttpController controller : controllerRegistry.getControllers()) {
+            controller.setConcurrencyLimiter(concurrencyLimiter);
+            if (workerPool != null) {
+                controller.setWorkerPool(workerPool);
+            }
         }
         
-        controllerRegistry.setupRoutes(router);
+        controllerRegistry.setupRoutes(routes);
         
         logger.info("Auto-injected {} controllers", controllerRegistry.getControllers().size());
     }
     
-    private void setupMonitoringEndpoints(Router router, String verticleId) {
-        MonitoringEndpoints monitoring = new MonitoringEndpoints(verticleId);
-        monitoring.setupRoutes(router);
+    private void setupMonitoringEndpoints(RouteRegistrar routes, String verticleId, DispatchTable dispatchTable) {
+        MonitoringEndpoints monitoring = new MonitoringEndpoints(verticleId, concurrencyLimiter, autoTuner, dispatchTable);
+        monitoring.setupRoutes(routes);
         logger.info("Monitoring endpoints configured");
     }
     
     private void startHttpServer(Router router, String verticleId, String threadName, Promise<Void> startPromise) {
         vertx.createHttpServer()
+             .connectionHandler(DrainCoordinator.shared().connectionHandler())
              .requestHandler(router)
              .listen(HTTP_PORT, result -> {
                  if (result.succeeded()) {
+                     actualPort = result.result().actualPort();
                      logger.info("HTTP server verticle {} started on port {} (thread: {})", 
-                               verticleId, HTTP_PORT, threadName);
+                               verticleId, actualPort, threadName);
                      logger.info("Controllers: {}", 
                                controllerRegistry.getControllers().stream()
                                    .map(c -> c.getClass().getSimpleName())
@@ -146,6 +204,11 @@ public class HttpServerVerticle extends AbstractVerticle {
         String verticleId = deploymentID();
         logger.info("Stopping HttpServerVerticle {}", verticleId);
         
+        if (autoTuner != null) {
+            autoTuner.stop(vertx);
+        }
+        
+        // App drains in-flight requests before closing Vert.x, so closing the pool here no longer drops work
         if (workerExecutor != null) {
             workerExecutor.close();
             logger.info("Worker executor closed for verticle {}", verticleId);
@@ -158,4 +221,8 @@ public class HttpServerVerticle extends AbstractVerticle {
     public ControllerRegistry getControllerRegistry() {
         return controllerRegistry;
     }
+    
+    public int getActualPort() {
+        return actualPort;
+    }
 }
\ No newline at end of file
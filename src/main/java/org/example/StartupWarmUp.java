@@ -0,0 +1,115 @@
+package org.example;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class StartupWarmUp {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+    
+    private static final String LOOPBACK = "127.0.0.1";
+    private static final String PARAMETER_VALUE = "warmup";
+    private static final int ROUNDS = Integer.getInteger("app.warmup-rounds", 1);
+    
+    private StartupWarmUp() {
+    }
+    
+    // Sends one request per registered route through the verticle's own router, served on a loopback listener with an
+    // ephemeral port, so routes, handlers and codecs are loaded before the verticle listens on the public port. A round
+    // is sent at once, so it takes about as long as the slowest route. Path parameters get an unknown id and writes an
+    // empty JSON object, so they are rejected or miss instead of adding data.
+    public static Future<Void> run(Vertx vertx, Router router) {
+        List<RequestOptions> requests = requests(router);
+        if (ROUNDS <= 0 || requests.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        long start = System.nanoTime();
+        return vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0, LOOPBACK)
+            .compose(server -> {
+                HttpClient client = vertx.createHttpClient(new HttpClientOptions().setMaxPoolSize(requests.size()));
+                Future<Void> chain = Future.succeededFuture();
+                for (int round = 0; round < ROUNDS; round++) {
+                    chain = chain.compose(v -> Future.join(requests.stream()
+                        .map(request -> send(client, server, request))
+                        .collect(Collectors.toList()))
+                        .<Void>mapEmpty());
+                }
+                return chain.transform(v -> client.close().compose(closed -> server.close()));
+            })
+            .onSuccess(v -> logger.info("Route warm-up: {} routes in {} ms",
+                                        requests.size(), (System.nanoTime() - start) / 1_000_000))
+            .recover(e -> {
+                logger.warn("Route warm-up failed", e);
+                return Future.succeededFuture();
+            });
+    }
+    
+    // Literal-path routes with explicit methods; catch-all middleware and /debug (acts on the process) are skipped
+    private static List<RequestOptions> requests(Router router) {
+        Set<String> seen = new LinkedHashSet<>();
+        List<RequestOptions> requests = new ArrayList<>();
+        for (Route route : router.getRoutes()) {
+            String path = route.getPath();
+            if (path == null || path.endsWith("*") || path.startsWith("/debug/")
+                || route.methods() == null || route.methods().isEmpty()) {
+                continue;
+            }
+            String uri = path.replaceAll(":[^/]+", PARAMETER_VALUE);
+            for (HttpMethod method : route.methods()) {
+                if (seen.add(method.name() + " " + uri)) {
+                    requests.add(new RequestOptions().setMethod(method).setHost(LOOPBACK).setURI(uri));
+                }
+            }
+        }
+        return requests;
+    }
+    
+    private static Future<Void> send(HttpClient client, HttpServer server, RequestOptions options) {
+        return client.request(new RequestOptions(options).setPort(server.actualPort()))
+            .compose(request -> send(request).compose(response -> {
+                // An event stream never ends on its own
+                if (isEventStream(response)) {
+                    response.exceptionHandler(e -> { });
+                    request.reset();
+                    return Future.<Void>succeededFuture();
+                }
+                return response.body().<Void>mapEmpty();
+            }))
+            .recover(e -> {
+                logger.debug("Warm-up request {} {} failed", options.getMethod(), options.getURI(), e);
+                return Future.succeededFuture();
+            });
+    }
+    
+    private static Future<HttpClientResponse> send(HttpClientRequest request) {
+        HttpMethod method = request.getMethod();
+        if (method == HttpMethod.POST || method == HttpMethod.PUT) {
+            return request.putHeader("Content-Type", "application/json").send("{}");
+        }
+        return request.send();
+    }
+    
+    private static boolean isEventStream(HttpClientResponse response) {
+        String contentType = response.getHeader("Content-Type");
+        return contentType != null && contentType.startsWith("text/event-stream");
+    }
+}
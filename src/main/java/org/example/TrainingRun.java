@@ -0,0 +1,62 @@
+package org.example;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TrainingRun {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TrainingRun.class);
+    
+    private TrainingRun() {
+    }
+    
+    // Replays a request script against the running server before an AppCDS training run exits, so the archive also
+    // holds the classes of the success paths (stores, indexes, import/export streaming, conditional updates).
+    // One request per line, "METHOD path [body]", sent in order over one connection; # starts a comment.
+    public static Future<Void> run(Vertx vertx, int port, String script) {
+        long start = System.nanoTime();
+        HttpClient client = vertx.createHttpClient();
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        return vertx.fileSystem().readFile(script)
+            .compose(buffer -> {
+                Future<Void> chain = Future.succeededFuture();
+                for (String line : buffer.toString().split("\n")) {
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                    chain = chain.compose(v -> send(client, port, trimmed, statuses));
+                }
+                return chain;
+            })
+            .onSuccess(v -> logger.info("Training run: responses {} in {} ms",
+                                        statuses, (System.nanoTime() - start) / 1_000_000))
+            .onFailure(e -> logger.warn("Training run script {} failed", script, e))
+            .eventually(v -> client.close());
+    }
+    
+    private static Future<Void> send(HttpClient client, int port, String line, Map<Integer, Integer> statuses) {
+        String[] parts = line.split("\\s+", 3);
+        RequestOptions options = new RequestOptions()
+            .setMethod(HttpMethod.valueOf(parts[0]))
+            .setHost("localhost")
+            .setPort(port)
+            .setURI(parts[1]);
+        return client.request(options)
+            .compose(request -> parts.length > 2
+                ? request.putHeader("Content-Type", "application/json").send(parts[2])
+                : request.send())
+            .compose(response -> response.body().map(body -> {
+                statuses.merge(response.statusCode(), 1, Integer::sum);
+                return (Void) null;
+            }));
+    }
+}
@@ -5,24 +5,99 @@ import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.web.MIMEHeader;
 import io.vertx.ext.web.RoutingContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Versioned;
+import org.example.store.VersionedStore;
+import org.example.util.AccessLog;
+import org.example.util.CborCodec;
+import org.example.util.ComputeExecutor;
+import org.example.util.ConcurrencyLimiter;
+import org.example.util.IdGenerator;
+import org.example.util.JsonSupport;
+import org.example.util.KeyedSerialExecutor;
+import org.example.util.NdjsonImportStream;
+import org.example.util.NdjsonReadStream;
+import org.example.util.RateLimitHandler;
+import org.example.util.RequestDeadline;
+import org.example.util.RequestTracer;
+import org.example.util.ThreadConfiguration;
+import org.example.util.TunableWorkerPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
 public abstract class AbstractHttpController {
     
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final int IMPORT_BATCH_SIZE = Integer.getInteger("import.batch-size", 500);
+    private static final int IMPORT_MAX_LINE_BYTES = Integer.getInteger("import.max-line-bytes", 1024 * 1024);
+    
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final Vertx vertx;
     protected final WorkerExecutor workerExecutor;
     protected final ObjectMapper objectMapper;
+    protected final AccessLog accessLog;
+    protected final ComputeExecutor computeExecutor;
+    private final boolean computePoolEnabled;
+    protected final IdGenerator idGenerator;
+    // Per controller, like the stores the keys refer to
+    protected final KeyedSerialExecutor keyedExecutor = new KeyedSerialExecutor();
+    protected RequestTracer tracer;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private TunableWorkerPool workerPool;
     
     public AbstractHttpController(Vertx vertx, WorkerExecutor workerExecutor) {
         this.vertx = vertx;
         this.workerExecutor = workerExecutor;
-        this.objectMapper = new ObjectMapper();
+        this.objectMapper = JsonSupport.mapper();
+        this.accessLog = AccessLog.shared();
+        this.computeExecutor = ComputeExecutor.shared();
+        this.computePoolEnabled = ThreadConfiguration.current().isComputePoolEnabled();
+        this.idGenerator = IdGenerator.shared();
+        this.tracer = RequestTracer.shared();
+    }
+    
+    // Injected by the verticle so all controllers sharing a worker pool share one limit
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+    
+    // Injected when the auto-tuner is on: worker tasks then go through its resizable view of the worker executor.
+    // Its queue wait is measured from submission to the pool, so time spent behind the same key is not counted.
+    public void setWorkerPool(TunableWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+    
+    // Defaults to the process-wide tracer (see RequestTracer.shared)
+    public void setRequestTracer(RequestTracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    // Per-request INFO logging is sampled; the access log already records every request
+    protected boolean shouldLogRequest() {
+        return accessLog.shouldLogInfo();
+    }
+    
+    // Route-level limit keyed by client and route pattern; chain it before the handler that dispatches to a worker
+    protected Handler<RoutingContext> rateLimit(String policy, double permitsPerSecond, int burst) {
+        return RateLimitHandler.fromSystemProperties(policy, permitsPerSecond, burst);
+    }
+    
+    // Route-level deadline; the client's X-Request-Timeout header can only tighten it
+    protected Handler<RoutingContext> deadline(long timeoutMillis) {
+        return RequestDeadline.routeTimeout(timeoutMillis);
     }
     
     protected <T> Future<T> executeBlocking(Handler<Promise<T>> blockingCodeHandler) {
@@ -30,41 +105,157 @@ public abstract class AbstractHttpController {
     }
     
     protected <T> Future<T> executeBlockingWithWorker(Handler<Promise<T>> blockingCodeHandler) {
+        if (workerPool != null) {
+            return workerPool.executeBlocking(blockingCodeHandler);
+        }
         return workerExecutor.executeBlocking(blockingCodeHandler, false);
     }
     
+    protected <T> Future<T> executeCompute(Handler<Promise<T>> computeHandler) {
+        return computeExecutor.execute(vertx, computeHandler);
+    }
+    
     protected void sendJsonResponse(RoutingContext context, Object data) {
         sendJsonResponse(context, data, 200);
     }
     
+    // JSON unless the client's Accept header prefers CBOR; both encode the same model through the shared mapper
     protected void sendJsonResponse(RoutingContext context, Object data, int statusCode) {
+        if (claimResponse(context)) {
+            writeJsonResponse(context, data, statusCode);
+        }
+    }
+    
+    private void writeJsonResponse(RoutingContext context, Object data, int statusCode) {
         try {
+            boolean cbor = acceptsCbor(context);
             HttpServerResponse response = context.response();
             response.setStatusCode(statusCode)
-                   .putHeader("Content-Type", "application/json");
+                   .putHeader("Content-Type", cbor ? CborCodec.CONTENT_TYPE : "application/json")
+                   .putHeader("Vary", "Accept");
             
             if (data != null) {
-                String json = objectMapper.writeValueAsString(data);
-                response.end(json);
+                RequestTracer.Trace trace = tracer.current(context);
+                if (trace != null) {
+                    trace.stamp(RequestTracer.Phase.SERIALIZING);
+                }
+                Buffer body = cbor
+                    ? Buffer.buffer(CborCodec.encode(objectMapper, data))
+                    : Buffer.buffer(objectMapper.writeValueAsBytes(data));
+                if (trace != null) {
+                    trace.stamp(RequestTracer.Phase.SERIALIZED);
+                }
+                response.end(body);
             } else {
                 response.end();
             }
         } catch (Exception e) {
             logger.error("Error sending JSON response", e);
-            sendErrorResponse(context, "Internal server error", 500);
+            writeErrorResponse(context, "Internal server error", 500);
+        }
+    }
+    
+    // Streams entities as NDJSON; the pipe stops serializing while the client's socket is backed up
+    protected <T> void sendNdjsonResponse(RoutingContext context, Iterator<T> entities) {
+        HttpServerResponse response = context.response();
+        response.setChunked(true)
+                .putHeader("Content-Type", NDJSON_CONTENT_TYPE);
+        new NdjsonReadStream<>(vertx.getOrCreateContext(), objectMapper, entities)
+            .pipeTo(response)
+            .onFailure(e -> {
+                logger.warn("NDJSON export aborted", e);
+                if (!response.closed()) {
+                    response.close();
+                }
+            });
+    }
+    
+    // Parses the request body line by line as it arrives and hands records to the applier in batches on a
+    // worker thread. The applier returns an error message to reject a record, or null.
+    // The route must not be behind BodyHandler (see HttpServerVerticle).
+    protected <T> void importNdjson(RoutingContext context, Class<T> type, Function<T, String> validator,
+                                    Function<T, String> applier) {
+        NdjsonImportStream<T> importer = new NdjsonImportStream<>(objectMapper, type, IMPORT_BATCH_SIZE, validator,
+            batch -> executeBlockingWithWorker(promise -> {
+                List<String> rejected = new ArrayList<>();
+                for (T record : batch) {
+                    String error = applier.apply(record);
+                    if (error != null) {
+                        rejected.add(error);
+                    }
+                }
+                promise.complete(rejected);
+            }));
+        
+        RecordParser.newDelimited("\n", context.request())
+            .maxRecordSize(IMPORT_MAX_LINE_BYTES)
+            .pipeTo(importer)
+            .onSuccess(v -> sendJsonResponse(context, importer.toJson()))
+            .onFailure(e -> {
+                logger.warn("NDJSON import aborted", e);
+                sendJsonResponse(context, importer.toJson().put("error", String.valueOf(e.getMessage())), 400);
+            });
+    }
+    
+    // The ETag carries the entity version; clients send it back in If-Match for conditional updates
+    protected void sendVersionedResponse(RoutingContext context, Versioned entity, int statusCode) {
+        if (claimResponse(context)) {
+            context.response().putHeader("ETag", "\"" + entity.getVersion() + "\"");
+            writeJsonResponse(context, entity, statusCode);
+        }
+    }
+    
+    // Version required by If-Match, ANY_VERSION when absent or "*"; an unparseable tag never matches
+    protected long ifMatchVersion(RoutingContext context) {
+        String ifMatch = context.request().getHeader("If-Match");
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return VersionedStore.ANY_VERSION;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+    
+    protected void sendVersionConflict(RoutingContext context, Versioned current, boolean preconditionHeader) {
+        if (claimResponse(context)) {
+            context.response().putHeader("ETag", "\"" + current.getVersion() + "\"");
+            writeErrorResponse(context, "Version conflict, current version is " + current.getVersion(),
+                               preconditionHeader ? 412 : 409);
         }
     }
     
     protected void sendErrorResponse(RoutingContext context, String message, int statusCode) {
+        if (claimResponse(context)) {
+            writeErrorResponse(context, message, statusCode);
+        }
+    }
+    
+    private void writeErrorResponse(RoutingContext context, String message, int statusCode) {
         try {
             JsonObject error = new JsonObject()
                 .put("error", true)
                 .put("message", message)
                 .put("statusCode", statusCode);
             
+            if (acceptsCbor(context)) {
+                context.response()
+                       .setStatusCode(statusCode)
+                       .putHeader("Content-Type", CborCodec.CONTENT_TYPE)
+                       .putHeader("Vary", "Accept")
+                       .end(Buffer.buffer(CborCodec.encode(objectMapper, error)));
+                return;
+            }
             context.response()
                    .setStatusCode(statusCode)
                    .putHeader("Content-Type", "application/json")
+                   .putHeader("Vary", "Accept")
                    .end(error.encode());
         } catch (Exception e) {
             logger.error("Error sending error response", e);
@@ -72,8 +263,12 @@ public abstract class AbstractHttpController {
         }
     }
     
+    @SuppressWarnings("unchecked")
     protected JsonObject getRequestBody(RoutingContext context) {
         try {
+            if (isCborBody(context)) {
+                return new JsonObject(CborCodec.decode(objectMapper, context.body().buffer().getBytes(), Map.class));
+            }
             return context.getBodyAsJson();
         } catch (Exception e) {
             logger.warn("Invalid JSON in request body", e);
@@ -83,6 +278,9 @@ public abstract class AbstractHttpController {
     
     protected <T> T parseRequestBody(RoutingContext context, Class<T> clazz) {
         try {
+            if (isCborBody(context)) {
+                return CborCodec.decode(objectMapper, context.body().buffer().getBytes(), clazz);
+            }
             String body = context.getBodyAsString();
             return objectMapper.readValue(body, clazz);
         } catch (Exception e) {
@@ -92,40 +290,168 @@ public abstract class AbstractHttpController {
     }
     
     protected void handleAsync(RoutingContext context, Handler<Promise<Object>> asyncHandler) {
-        executeBlocking(promise -> {
-            try {
-                asyncHandler.handle(promise);
-            } catch (Exception e) {
-                logger.error("Error in async handler", e);
-                promise.fail(e);
-            }
-        }).onSuccess(result -> {
-            // Success handled by the async handler itself
-        }).onFailure(throwable -> {
-            logger.error("Async operation failed", throwable);
-            if (!context.response().ended()) {
-                sendErrorResponse(context, "Operation failed", 500);
+        dispatch(context, asyncHandler, this::executeBlocking, "async", concurrencyLimiter);
+    }
+    
+    protected void handleAsyncWithWorker(RoutingContext context, Handler<Promise<Object>> asyncHandler) {
+        dispatch(context, asyncHandler, this::executeBlockingWithWorker, "worker async", concurrencyLimiter);
+    }
+    
+    // Like handleAsyncWithWorker, but requests with the same key run one at a time in arrival order until their
+    // promise completes; other keys still run in parallel. Use for writes to one entity, keyed by its id.
+    // The deadline runs from arrival, so waiting behind the key counts against it and a request that times out
+    // there is answered 504 and never started. The concurrency permit and latency sample start only on the
+    // request's turn, so a hot key neither starves other keys of permits nor shrinks the limit; instead each key
+    // queues a bounded number of requests and sheds the rest with 503.
+    protected void handleAsyncWithWorkerForKey(RoutingContext context, Object key, Handler<Promise<Object>> asyncHandler) {
+        RequestDeadline deadline = armDeadline(context);
+        try {
+            keyedExecutor.submit(key, () -> isResponseDone(context) || deadline.isCancelled()
+                ? Future.succeededFuture()
+                : dispatch(context, asyncHandler, this::executeBlockingWithWorker, "keyed worker async",
+                           concurrencyLimiter, deadline));
+        } catch (RejectedExecutionException e) {
+            deadline.disarm(vertx);
+            shed(context);
+        }
+    }
+    
+    // For CPU-bound handlers that never block: runs on the shared work-stealing pool under the compute pool's own
+    // limiter, not the I/O worker pool, unless -Dcompute.enabled=false; the handler then occupies a worker thread
+    // and takes a worker permit like any other worker task
+    protected void handleAsyncWithCompute(RoutingContext context, Handler<Promise<Object>> asyncHandler) {
+        if (!computePoolEnabled) {
+            handleAsyncWithWorker(context, asyncHandler);
+            return;
+        }
+        dispatch(context, asyncHandler, this::executeCompute, "compute", computeExecutor.getLimiter());
+    }
+    
+    private void dispatch(RoutingContext context, Handler<Promise<Object>> asyncHandler,
+                          Function<Handler<Promise<Object>>, Future<Object>> executor, String label,
+                          ConcurrencyLimiter limiter) {
+        dispatch(context, asyncHandler, executor, label, limiter, armDeadline(context));
+    }
+    
+    // On timeout reply 504 straight away; the task is skipped if still queued or interrupted if running
+    private RequestDeadline armDeadline(RoutingContext context) {
+        RequestDeadline deadline = RequestDeadline.forRequest(context);
+        deadline.arm(vertx, context, () -> {
+            if (!isResponseDone(context)) {
+                writeErrorResponse(context, "Request deadline exceeded", 504);
             }
         });
+        return deadline;
     }
     
-    protected void handleAsyncWithWorker(RoutingContext context, Handler<Promise<Object>> asyncHandler) {
-        executeBlockingWithWorker(promise -> {
+    // The returned future completes once the task has finished, or straight away if the request was shed
+    private Future<Object> dispatch(RoutingContext context, Handler<Promise<Object>> asyncHandler,
+                                    Function<Handler<Promise<Object>>, Future<Object>> executor, String label,
+                                    ConcurrencyLimiter limiter, RequestDeadline deadline) {
+        if (!acquireConcurrency(context, limiter)) {
+            deadline.disarm(vertx);
+            return Future.succeededFuture();
+        }
+        long startNanos = System.nanoTime();
+        RequestTracer.Trace trace = tracer.begin(context);
+        return executor.apply(promise -> {
+            if (trace != null) {
+                trace.started();
+            }
+            if (!deadline.begin()) {
+                if (trace != null) {
+                    tracer.release(trace);
+                }
+                promise.fail("Deadline exceeded before " + label + " task started");
+                return;
+            }
             try {
                 asyncHandler.handle(promise);
             } catch (Exception e) {
-                logger.error("Error in worker async handler", e);
+                logger.error("Error in {} handler", label, e);
                 promise.fail(e);
+            } finally {
+                deadline.end();
+                if (trace != null) {
+                    tracer.release(trace);
+                }
             }
-        }).onSuccess(result -> {
-            // Success handled by the async handler itself
+        }).onComplete(result -> {
+            deadline.disarm(vertx);
+            releaseConcurrency(limiter, startNanos, result.failed() && isOverload(result.cause(), deadline));
         }).onFailure(throwable -> {
-            logger.error("Worker async operation failed", throwable);
-            if (!context.response().ended()) {
-                sendErrorResponse(context, "Operation failed", 500);
+            if (deadline.isCancelled()) {
+                logger.debug("{} operation cancelled: {}", label, throwable.getMessage());
+                sendErrorResponse(context, "Request deadline exceeded", 504);
+                return;
             }
+            logger.error("{} operation failed", label, throwable);
+            sendErrorResponse(context, "Operation failed", 500);
         });
     }
     
-    public abstract void setupRoutes(io.vertx.ext.web.Router router);
+    // The first acceptable type by q-value wins: CBOR only when it outranks JSON and */*, so JSON stays the default
+    private static boolean acceptsCbor(RoutingContext context) {
+        String accept = context.request().getHeader("Accept");
+        if (accept == null || !accept.contains("cbor")) {
+            return false;
+        }
+        for (MIMEHeader type : context.parsedHeaders().accept()) {
+            if (type.weight() <= 0) {
+                continue;
+            }
+            String component = type.component();
+            String subComponent = type.subComponent();
+            if ("application".equalsIgnoreCase(component) && "cbor".equalsIgnoreCase(subComponent)) {
+                return true;
+            }
+            if ("*".equals(component) || ("application".equalsIgnoreCase(component)
+                                          && ("json".equalsIgnoreCase(subComponent) || "*".equals(subComponent)))) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isCborBody(RoutingContext context) {
+        String contentType = context.request().getHeader("Content-Type");
+        return contentType != null && contentType.regionMatches(true, 0, CborCodec.CONTENT_TYPE, 0,
+                                                                 CborCodec.CONTENT_TYPE.length());
+    }
+    
+    private boolean isResponseDone(RoutingContext context) {
+        return context.response().ended() || context.response().closed();
+    }
+    
+    // Single writer per response: the handler's reply and the deadline's 504 race from different threads
+    private boolean claimResponse(RoutingContext context) {
+        return !isResponseDone(context) && RequestDeadline.claimResponse(context);
+    }
+    
+    // Sheds excess work on the event loop instead of letting the worker queue grow without bound
+    private boolean acquireConcurrency(RoutingContext context, ConcurrencyLimiter limiter) {
+        if (limiter == null || limiter.tryAcquire()) {
+            return true;
+        }
+        shed(context);
+        return false;
+    }
+    
+    private void shed(RoutingContext context) {
+        if (claimResponse(context)) {
+            context.response().putHeader("Retry-After", "1");
+            writeErrorResponse(context, "Server overloaded", 503);
+        }
+    }
+    
+    // Only saturation backs the limit off; handler errors and client disconnects say nothing about capacity
+    private static boolean isOverload(Throwable cause, RequestDeadline deadline) {
+        return cause instanceof RejectedExecutionException || deadline.isExpiredInQueue();
+    }
+    
+    private void releaseConcurrency(ConcurrencyLimiter limiter, long startNanos, boolean overloaded) {
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - startNanos, overloaded);
+        }
+    }
 }
\ No newline at end of file
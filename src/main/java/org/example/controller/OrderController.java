@@ -3,75 +3,96 @@ package org.example.controller;
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import org.example.feed.ChangeEvent;
+import org.example.feed.OrderChangeFeed;
 import org.example.model.Order;
 import org.example.model.Order.OrderItem;
 import org.example.model.Order.OrderStatus;
+import org.example.route.Deadline;
+import org.example.route.Delete;
+import org.example.route.Get;
+import org.example.route.HttpController;
+import org.example.route.PathParam;
+import org.example.route.Post;
+import org.example.route.Put;
+import org.example.route.QueryParam;
+import org.example.route.RateLimited;
+import org.example.route.StreamingBody;
+import org.example.store.EntityStore;
+import org.example.store.OffHeapOrderStore;
+import org.example.store.OrderAggregates;
+import org.example.store.ProductCatalog;
+import org.example.store.VersionedStore;
+import org.example.store.VersionedStore.UpdateResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
+@HttpController
 public class OrderController extends AbstractHttpController {
     
-    private final ConcurrentHashMap<String, Order> orderStore = new ConcurrentHashMap<>();
+    private final EntityStore<Order> orderStore = createOrderStore();
+    private final OrderChangeFeed changeFeed;
+    // Items of stored orders share one Product per catalog entry instead of their own id/name strings
+    private final ProductCatalog productCatalog = ProductCatalog.shared();
+    // Counts and revenue per status/customer, updated with every write instead of scanning the store
+    private final OrderAggregates aggregates = new OrderAggregates();
     
     public OrderController(Vertx vertx, WorkerExecutor workerExecutor) {
         super(vertx, workerExecutor);
+        this.changeFeed = new OrderChangeFeed(vertx);
         // Initialize with some sample data
         initSampleData();
     }
     
+    // -Dorders.store=offheap keeps orders as compact records in direct memory instead of on the heap
+    private static EntityStore<Order> createOrderStore() {
+        if ("offheap".equalsIgnoreCase(System.getProperty("orders.store", "heap"))) {
+            return new OffHeapOrderStore();
+        }
+        return new VersionedStore<>(Order::new);
+    }
+    
     private void initSampleData() {
         // Sample order 1
-        List<OrderItem> items1 = Arrays.asList(
+        List<OrderItem> items1 = productCatalog.canonicalize(List.of(
             new OrderItem("prod-1", "Laptop", 1, new BigDecimal("999.99")),
             new OrderItem("prod-2", "Mouse", 2, new BigDecimal("29.99"))
-        );
+        ));
         BigDecimal total1 = items1.stream()
             .map(OrderItem::getTotalPrice)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
         Order order1 = new Order("order-1", "customer-1", items1, total1, OrderStatus.CONFIRMED);
-        orderStore.put("order-1", order1);
+        aggregates.apply(orderStore.insert("order-1", order1));
         
         // Sample order 2
-        List<OrderItem> items2 = Arrays.asList(
+        List<OrderItem> items2 = productCatalog.canonicalize(List.of(
             new OrderItem("prod-3", "Keyboard", 1, new BigDecimal("79.99")),
             new OrderItem("prod-4", "Monitor", 1, new BigDecimal("299.99"))
-        );
+        ));
         BigDecimal total2 = items2.stream()
             .map(OrderItem::getTotalPrice)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
         Order order2 = new Order("order-2", "customer-2", items2, total2, OrderStatus.PROCESSING);
-        orderStore.put("order-2", order2);
+        aggregates.apply(orderStore.insert("order-2", order2));
     }
     
-    @Override
-    public void setupRoutes(Router router) {
-        router.get("/api/orders").handler(this::getAllOrders);
-        router.get("/api/orders/:id").handler(this::getOrderById);
-        router.post("/api/orders").handler(this::createOrder);
-        router.put("/api/orders/:id").handler(this::updateOrder);
-        router.delete("/api/orders/:id").handler(this::deleteOrder);
-        router.put("/api/orders/:id/status").handler(this::updateOrderStatus);
-        router.get("/api/orders/:id/calculate-total").handler(this::calculateOrderTotal);
-    }
-    
-    private void getAllOrders(RoutingContext context) {
+    @Get("/api/orders")
+    void getAllOrders(RoutingContext context) {
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Fetching all orders");
+                if (shouldLogRequest()) {
+                    logger.info("Fetching all orders");
+                }
                 // Simulate database operation
                 Thread.sleep(150);
                 
-                List<Order> orders = new ArrayList<>(orderStore.values());
+                List<Order> orders = orderStore.values();
                 sendJsonResponse(context, orders);
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error fetching orders", e);
                 promise.fail(e);
@@ -79,23 +100,78 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void getOrderById(RoutingContext context) {
-        String orderId = context.pathParam("id");
+    // Server-Sent Events feed of order changes, so dashboards don't have to poll GET /api/orders
+    @Get("/api/orders/stream")
+    void streamOrderChanges(RoutingContext context, @QueryParam("customerId") String customerId) {
+        // EventSource resends Last-Event-ID on reconnect; the query parameter allows resuming on a fresh connection
+        String lastEventId = context.request().getHeader("Last-Event-ID");
+        if (lastEventId == null) {
+            lastEventId = context.queryParams().get("lastEventId");
+        }
         
+        if (!changeFeed.subscribe(context.response(), customerId, lastEventId)) {
+            sendErrorResponse(context, "Too many change feed subscribers", 503);
+        }
+    }
+    
+    @Get("/api/orders/export")
+    void exportOrders(RoutingContext context) {
+        sendNdjsonResponse(context, orderStore.iterator());
+    }
+    
+    @Post("/api/orders/import")
+    @StreamingBody
+    void importOrders(RoutingContext context) {
+        importNdjson(context, Order.class,
+            order -> order.getCustomerId() == null || order.getItems() == null || order.getItems().isEmpty()
+                ? "Order customerId and items are required" : null,
+            order -> {
+                String orderId = order.getId() != null ? order.getId() : "order-" + idGenerator.nextId();
+                order.setId(orderId);
+                order.setItems(productCatalog.canonicalize(order.getItems()));
+                order.setTotalAmount(order.getItems().stream()
+                    .map(OrderItem::getTotalPrice)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+                if (order.getStatus() == null) {
+                    order.setStatus(OrderStatus.PENDING);
+                }
+                
+                UpdateResult<Order> result = orderStore.upsert(orderId, order);
+                aggregates.apply(result);
+                changeFeed.publish(result.getPrevious() == null ? ChangeEvent.Type.CREATED : ChangeEvent.Type.UPDATED,
+                                   result.getCurrent());
+                return null;
+            });
+    }
+    
+    // Served from the running aggregates on the event loop; ?customerId= adds that customer's totals
+    @Get("/api/orders/stats")
+    void getOrderStats(RoutingContext context, @QueryParam("customerId") String customerId) {
+        JsonObject stats = aggregates.toJson();
+        if (customerId != null) {
+            stats.put("customer", aggregates.customerJson(customerId));
+        }
+        sendJsonResponse(context, stats);
+    }
+    
+    @Get("/api/orders/:id")
+    void getOrderById(RoutingContext context, @PathParam("id") String orderId) {
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Fetching order with ID: {}", orderId);
+                if (shouldLogRequest()) {
+                    logger.info("Fetching order with ID: {}", orderId);
+                }
                 // Simulate database lookup
                 Thread.sleep(75);
                 
                 Order order = orderStore.get(orderId);
                 if (order != null) {
-                    sendJsonResponse(context, order);
+                    sendVersionedResponse(context, order, 200);
                 } else {
                     sendErrorResponse(context, "Order not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error fetching order {}", orderId, e);
                 promise.fail(e);
@@ -103,7 +179,8 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void createOrder(RoutingContext context) {
+    @Post("/api/orders")
+    void createOrder(RoutingContext context) {
         Order newOrder = parseRequestBody(context, Order.class);
         
         if (newOrder == null || newOrder.getCustomerId() == null || newOrder.getItems() == null || newOrder.getItems().isEmpty()) {
@@ -113,12 +190,14 @@ public class OrderController extends AbstractHttpController {
         
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Creating new order for customer: {}", newOrder.getCustomerId());
+                if (shouldLogRequest()) {
+                    logger.info("Creating new order for customer: {}", newOrder.getCustomerId());
+                }
                 // Simulate order processing
                 Thread.sleep(300);
                 
                 // Generate order ID
-                String orderId = "order-" + System.currentTimeMillis();
+                String orderId = "order-" + idGenerator.nextId();
                 newOrder.setId(orderId);
                 
                 // Calculate total amount
@@ -131,12 +210,15 @@ public class OrderController extends AbstractHttpController {
                 newOrder.setStatus(OrderStatus.PENDING);
                 newOrder.setCreatedAt(LocalDateTime.now());
                 newOrder.setUpdatedAt(LocalDateTime.now());
+                newOrder.setItems(productCatalog.canonicalize(newOrder.getItems()));
                 
-                orderStore.put(orderId, newOrder);
+                UpdateResult<Order> result = orderStore.insert(orderId, newOrder);
+                aggregates.apply(result);
+                changeFeed.publish(ChangeEvent.Type.CREATED, result.getCurrent());
                 
-                sendJsonResponse(context, newOrder, 201);
+                sendVersionedResponse(context, result.getCurrent(), 201);
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error creating order", e);
                 promise.fail(e);
@@ -144,8 +226,8 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void updateOrder(RoutingContext context) {
-        String orderId = context.pathParam("id");
+    @Put("/api/orders/:id")
+    void updateOrder(RoutingContext context, @PathParam("id") String orderId) {
         Order updatedOrder = parseRequestBody(context, Order.class);
         
         if (updatedOrder == null) {
@@ -153,33 +235,49 @@ public class OrderController extends AbstractHttpController {
             return;
         }
         
-        handleAsyncWithWorker(context, promise -> {
+        // If-Match takes precedence; otherwise a version in the body is used for the optimistic check
+        long ifMatch = ifMatchVersion(context);
+        boolean precondition = ifMatch != VersionedStore.ANY_VERSION;
+        long expectedVersion = precondition || updatedOrder.getVersion() <= 0 ? ifMatch : updatedOrder.getVersion();
+        
+        handleAsyncWithWorkerForKey(context, orderId, promise -> {
             try {
-                logger.info("Updating order with ID: {}", orderId);
+                if (shouldLogRequest()) {
+                    logger.info("Updating order with ID: {}", orderId);
+                }
                 // Simulate database update operation
                 Thread.sleep(200);
                 
-                Order existingOrder = orderStore.get(orderId);
-                if (existingOrder == null) {
-                    sendErrorResponse(context, "Order not found", 404);
-                } else {
-                    updatedOrder.setId(orderId);
-                    updatedOrder.setCreatedAt(existingOrder.getCreatedAt());
-                    updatedOrder.setUpdatedAt(LocalDateTime.now());
+                UpdateResult<Order> result = orderStore.update(orderId, expectedVersion, current -> {
+                    Order next = new Order(updatedOrder);
+                    next.setId(orderId);
+                    next.setCreatedAt(current.getCreatedAt());
+                    next.setUpdatedAt(LocalDateTime.now());
                     
                     // Recalculate total if items changed
-                    if (updatedOrder.getItems() != null && !updatedOrder.getItems().isEmpty()) {
-                        BigDecimal totalAmount = updatedOrder.getItems().stream()
+                    if (next.getItems() != null && !next.getItems().isEmpty()) {
+                        next.setItems(productCatalog.canonicalize(next.getItems()));
+                        BigDecimal totalAmount = next.getItems().stream()
                             .map(OrderItem::getTotalPrice)
                             .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        updatedOrder.setTotalAmount(totalAmount);
+                        next.setTotalAmount(totalAmount);
                     }
-                    
-                    orderStore.put(orderId, updatedOrder);
-                    sendJsonResponse(context, updatedOrder);
+                    return next;
+                });
+                switch (result.getStatus()) {
+                    case UPDATED:
+                        aggregates.apply(result);
+                        changeFeed.publish(ChangeEvent.Type.UPDATED, result.getCurrent());
+                        sendVersionedResponse(context, result.getCurrent(), 200);
+                        break;
+                    case CONFLICT:
+                        sendVersionConflict(context, result.getCurrent(), precondition);
+                        break;
+                    default:
+                        sendErrorResponse(context, "Order not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error updating order {}", orderId, e);
                 promise.fail(e);
@@ -187,23 +285,33 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void deleteOrder(RoutingContext context) {
-        String orderId = context.pathParam("id");
+    @Delete("/api/orders/:id")
+    void deleteOrder(RoutingContext context, @PathParam("id") String orderId) {
+        long ifMatch = ifMatchVersion(context);
         
-        handleAsyncWithWorker(context, promise -> {
+        handleAsyncWithWorkerForKey(context, orderId, promise -> {
             try {
-                logger.info("Deleting order with ID: {}", orderId);
+                if (shouldLogRequest()) {
+                    logger.info("Deleting order with ID: {}", orderId);
+                }
                 // Simulate database delete operation
                 Thread.sleep(120);
                 
-                Order deletedOrder = orderStore.remove(orderId);
-                if (deletedOrder != null) {
-                    sendJsonResponse(context, new JsonObject().put("message", "Order deleted successfully"));
-                } else {
-                    sendErrorResponse(context, "Order not found", 404);
+                UpdateResult<Order> result = orderStore.remove(orderId, ifMatch);
+                switch (result.getStatus()) {
+                    case UPDATED:
+                        aggregates.apply(result);
+                        changeFeed.publish(ChangeEvent.Type.DELETED, result.getPrevious());
+                        sendJsonResponse(context, new JsonObject().put("message", "Order deleted successfully"));
+                        break;
+                    case CONFLICT:
+                        sendVersionConflict(context, result.getCurrent(), true);
+                        break;
+                    default:
+                        sendErrorResponse(context, "Order not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error deleting order {}", orderId, e);
                 promise.fail(e);
@@ -211,8 +319,8 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void updateOrderStatus(RoutingContext context) {
-        String orderId = context.pathParam("id");
+    @Put("/api/orders/:id/status")
+    void updateOrderStatus(RoutingContext context, @PathParam("id") String orderId) {
         JsonObject statusUpdate = getRequestBody(context);
         
         if (statusUpdate == null || !statusUpdate.containsKey("status")) {
@@ -220,29 +328,44 @@ public class OrderController extends AbstractHttpController {
             return;
         }
         
-        handleAsyncWithWorker(context, promise -> {
+        OrderStatus newStatus;
+        try {
+            newStatus = OrderStatus.valueOf(statusUpdate.getString("status").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sendErrorResponse(context, "Invalid status value", 400);
+            return;
+        }
+        long ifMatch = ifMatchVersion(context);
+        
+        handleAsyncWithWorkerForKey(context, orderId, promise -> {
             try {
-                logger.info("Updating status for order: {}", orderId);
+                if (shouldLogRequest()) {
+                    logger.info("Updating status for order: {}", orderId);
+                }
                 // Simulate status update operation
                 Thread.sleep(100);
                 
-                Order order = orderStore.get(orderId);
-                if (order == null) {
-                    sendErrorResponse(context, "Order not found", 404);
-                } else {
-                    try {
-                        OrderStatus newStatus = OrderStatus.valueOf(statusUpdate.getString("status").toUpperCase());
-                        order.setStatus(newStatus);
-                        order.setUpdatedAt(LocalDateTime.now());
-                        
-                        orderStore.put(orderId, order);
-                        sendJsonResponse(context, order);
-                    } catch (IllegalArgumentException e) {
-                        sendErrorResponse(context, "Invalid status value", 400);
-                    }
+                // Status changes don't need the client's version: concurrent writers are retried, not lost
+                UpdateResult<Order> result = orderStore.update(orderId, ifMatch, current -> {
+                    Order next = new Order(current);
+                    next.setStatus(newStatus);
+                    next.setUpdatedAt(LocalDateTime.now());
+                    return next;
+                });
+                switch (result.getStatus()) {
+                    case UPDATED:
+                        aggregates.apply(result);
+                        changeFeed.publish(ChangeEvent.Type.STATUS, result.getCurrent());
+                        sendVersionedResponse(context, result.getCurrent(), 200);
+                        break;
+                    case CONFLICT:
+                        sendVersionConflict(context, result.getCurrent(), true);
+                        break;
+                    default:
+                        sendErrorResponse(context, "Order not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error updating order status {}", orderId, e);
                 promise.fail(e);
@@ -250,13 +373,16 @@ public class OrderController extends AbstractHttpController {
         });
     }
     
-    private void calculateOrderTotal(RoutingContext context) {
-        String orderId = context.pathParam("id");
-        
+    @Get("/api/orders/:id/calculate-total")
+    @RateLimited(policy = "calculate-total", permitsPerSecond = 10, burst = 20)
+    @Deadline(2000)
+    void calculateOrderTotal(RoutingContext context, @PathParam("id") String orderId) {
         // Use worker executor for calculation-heavy operations
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Calculating total for order: {}", orderId);
+                if (shouldLogRequest()) {
+                    logger.info("Calculating total for order: {}", orderId);
+                }
                 
                 Order order = orderStore.get(orderId);
                 if (order == null) {
@@ -296,7 +422,7 @@ public class OrderController extends AbstractHttpController {
                 
                 sendJsonResponse(context, calculation);
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error calculating order total for {}", orderId, e);
                 promise.fail(e);
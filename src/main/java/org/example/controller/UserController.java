@@ -1,20 +1,49 @@
 package org.example.controller;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import org.example.model.User;
+import org.example.route.Deadline;
+import org.example.route.Delete;
+import org.example.route.Get;
+import org.example.route.HttpController;
+import org.example.route.PathParam;
+import org.example.route.Post;
+import org.example.route.Put;
+import org.example.route.QueryParam;
+import org.example.route.RateLimited;
+import org.example.route.StreamingBody;
+import org.example.store.UniqueIndex;
+import org.example.store.UserSearchIndex;
+import org.example.store.VersionedStore;
+import org.example.store.VersionedStore.UpdateResult;
+import org.example.util.TinyLfuCache;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ThreadLocalRandom;
 
+@HttpController
 public class UserController extends AbstractHttpController {
     
-    private final ConcurrentHashMap<String, User> userStore = new ConcurrentHashMap<>();
+    private static final int CALCULATION_ITERATIONS = 1_000_000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final long HEAVY_CACHE_SIZE = Long.getLong("cache.heavy-operation.max-size", 10_000);
+    private static final long HEAVY_CACHE_TTL_MILLIS = Long.getLong("cache.heavy-operation.ttl-ms", 60_000);
+    
+    private final VersionedStore<User> userStore = new VersionedStore<>(User::new);
+    private final UserSearchIndex searchIndex = new UserSearchIndex(userStore::get);
+    // Email -> id of the user holding it; claimed before a write so duplicates are rejected without a scan
+    private final UniqueIndex emailIndex = new UniqueIndex(email -> email.trim().toLowerCase(Locale.ROOT));
+    // Heavy-operation results by user id; traffic to it concentrates on a few users
+    private final TinyLfuCache<String, Integer> heavyResults = new TinyLfuCache<>(HEAVY_CACHE_SIZE, HEAVY_CACHE_TTL_MILLIS);
     
     public UserController(Vertx vertx, WorkerExecutor workerExecutor) {
         super(vertx, workerExecutor);
@@ -23,31 +52,28 @@ public class UserController extends AbstractHttpController {
     }
     
     private void initSampleData() {
-        userStore.put("1", new User("1", "John Doe", "john@example.com"));
-        userStore.put("2", new User("2", "Jane Smith", "jane@example.com"));
-    }
-    
-    @Override
-    public void setupRoutes(Router router) {
-        router.get("/api/users").handler(this::getAllUsers);
-        router.get("/api/users/:id").handler(this::getUserById);
-        router.post("/api/users").handler(this::createUser);
-        router.put("/api/users/:id").handler(this::updateUser);
-        router.delete("/api/users/:id").handler(this::deleteUser);
-        router.get("/api/users/:id/heavy-operation").handler(this::performHeavyOperation);
+        for (User user : List.of(new User("1", "John Doe", "john@example.com"),
+                                 new User("2", "Jane Smith", "jane@example.com"))) {
+            emailIndex.claim(user.getEmail(), user.getId());
+            userStore.insert(user.getId(), user);
+            searchIndex.refresh(user.getId());
+        }
     }
     
-    private void getAllUsers(RoutingContext context) {
+    @Get("/api/users")
+    void getAllUsers(RoutingContext context) {
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Fetching all users");
+                if (shouldLogRequest()) {
+                    logger.info("Fetching all users");
+                }
                 // Simulate database operation
                 Thread.sleep(100);
                 
-                List<User> users = new ArrayList<>(userStore.values());
+                List<User> users = userStore.values();
                 sendJsonResponse(context, users);
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error fetching users", e);
                 promise.fail(e);
@@ -55,23 +81,85 @@ public class UserController extends AbstractHttpController {
         });
     }
     
-    private void getUserById(RoutingContext context) {
-        String userId = context.pathParam("id");
+    // NDJSON export streamed straight from the store, without materializing the list
+    @Get("/api/users/export")
+    void exportUsers(RoutingContext context) {
+        sendNdjsonResponse(context, userStore.iterator());
+    }
+    
+    @Post("/api/users/import")
+    @StreamingBody
+    void importUsers(RoutingContext context) {
+        importNdjson(context, User.class,
+            user -> user.getName() == null || user.getEmail() == null ? "User name and email are required" : null,
+            user -> {
+                String id = user.getId() != null ? user.getId() : idGenerator.nextId();
+                user.setId(id);
+                String owner = emailIndex.claim(user.getEmail(), id);
+                if (owner != null && !owner.equals(id)) {
+                    return "Email " + user.getEmail() + " is already used by user " + owner;
+                }
+                
+                UpdateResult<User> result = userStore.upsert(id, user);
+                releaseChangedEmail(result);
+                searchIndex.refresh(id);
+                return null;
+            });
+    }
+    
+    // Answered from the in-memory index on the compute pool; there is no simulated database round trip
+    @Get("/api/users/search")
+    void searchUsers(RoutingContext context, @QueryParam("q") String query, @QueryParam("limit") String limitParam) {
+        if (query == null || query.isBlank()) {
+            sendErrorResponse(context, "Query parameter q is required", 400);
+            return;
+        }
+        int limit;
+        try {
+            limit = limitParam == null ? DEFAULT_SEARCH_LIMIT : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            sendErrorResponse(context, "Invalid limit", 400);
+            return;
+        }
+        int maxResults = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
         
+        handleAsyncWithCompute(context, promise -> {
+            try {
+                List<User> users = new ArrayList<>();
+                for (String userId : searchIndex.search(query, maxResults)) {
+                    User user = userStore.get(userId);
+                    if (user != null) {
+                        users.add(user);
+                    }
+                }
+                sendJsonResponse(context, users);
+                promise.complete();
+            
+            } catch (Exception e) {
+                logger.error("Error searching users for '{}'", query, e);
+                promise.fail(e);
+            }
+        });
+    }
+    
+    @Get("/api/users/:id")
+    void getUserById(RoutingContext context, @PathParam("id") String userId) {
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Fetching user with ID: {}", userId);
+                if (shouldLogRequest()) {
+                    logger.info("Fetching user with ID: {}", userId);
+                }
                 // Simulate database lookup
                 Thread.sleep(50);
                 
                 User user = userStore.get(userId);
                 if (user != null) {
-                    sendJsonResponse(context, user);
+                    sendVersionedResponse(context, user, 200);
                 } else {
                     sendErrorResponse(context, "User not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error fetching user {}", userId, e);
                 promise.fail(e);
@@ -79,7 +167,8 @@ public class UserController extends AbstractHttpController {
         });
     }
     
-    private void createUser(RoutingContext context) {
+    @Post("/api/users")
+    void createUser(RoutingContext context) {
         User newUser = parseRequestBody(context, User.class);
         
         if (newUser == null || newUser.getName() == null || newUser.getEmail() == null) {
@@ -89,17 +178,26 @@ public class UserController extends AbstractHttpController {
         
         handleAsyncWithWorker(context, promise -> {
             try {
-                logger.info("Creating new user: {}", newUser.getName());
+                if (shouldLogRequest()) {
+                    logger.info("Creating new user: {}", newUser.getName());
+                }
                 // Simulate database save operation
                 Thread.sleep(200);
                 
-                String id = String.valueOf(System.currentTimeMillis());
+                String id = idGenerator.nextId();
                 newUser.setId(id);
-                userStore.put(id, newUser);
+                String owner = emailIndex.claim(newUser.getEmail(), id);
+                if (owner != null) {
+                    sendErrorResponse(context, "Email already in use", 409);
+                    promise.complete();
+                    return;
+                }
+                UpdateResult<User> result = userStore.insert(id, newUser);
+                searchIndex.refresh(id);
                 
-                sendJsonResponse(context, newUser, 201);
+                sendVersionedResponse(context, result.getCurrent(), 201);
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error creating user", e);
                 promise.fail(e);
@@ -107,8 +205,8 @@ public class UserController extends AbstractHttpController {
         });
     }
     
-    private void updateUser(RoutingContext context) {
-        String userId = context.pathParam("id");
+    @Put("/api/users/:id")
+    void updateUser(RoutingContext context, @PathParam("id") String userId) {
         User updatedUser = parseRequestBody(context, User.class);
         
         if (updatedUser == null) {
@@ -116,22 +214,51 @@ public class UserController extends AbstractHttpController {
             return;
         }
         
-        handleAsyncWithWorker(context, promise -> {
+        // If-Match takes precedence; otherwise a version in the body is used for the optimistic check
+        long ifMatch = ifMatchVersion(context);
+        boolean precondition = ifMatch != VersionedStore.ANY_VERSION;
+        long expectedVersion = precondition || updatedUser.getVersion() <= 0 ? ifMatch : updatedUser.getVersion();
+        
+        handleAsyncWithWorkerForKey(context, userId, promise -> {
             try {
-                logger.info("Updating user with ID: {}", userId);
+                if (shouldLogRequest()) {
+                    logger.info("Updating user with ID: {}", userId);
+                }
                 // Simulate database update operation
                 Thread.sleep(150);
                 
-                User existingUser = userStore.get(userId);
-                if (existingUser == null) {
-                    sendErrorResponse(context, "User not found", 404);
-                } else {
-                    updatedUser.setId(userId);
-                    userStore.put(userId, updatedUser);
-                    sendJsonResponse(context, updatedUser);
+                String newEmail = updatedUser.getEmail();
+                String owner = newEmail == null ? null : emailIndex.claim(newEmail, userId);
+                if (owner != null && !owner.equals(userId)) {
+                    sendErrorResponse(context, "Email already in use", 409);
+                    promise.complete();
+                    return;
                 }
-                promise.complete();
                 
+                UpdateResult<User> result = userStore.update(userId, expectedVersion, current -> {
+                    User next = new User(updatedUser);
+                    next.setId(userId);
+                    return next;
+                });
+                if (result.getStatus() == UpdateResult.Status.UPDATED) {
+                    releaseChangedEmail(result);
+                    searchIndex.refresh(userId);
+                } else if (owner == null && newEmail != null) {
+                    // The claim was made for this update only
+                    emailIndex.release(newEmail, userId);
+                }
+                switch (result.getStatus()) {
+                    case UPDATED:
+                        sendVersionedResponse(context, result.getCurrent(), 200);
+                        break;
+                    case CONFLICT:
+                        sendVersionConflict(context, result.getCurrent(), precondition);
+                        break;
+                    default:
+                        sendErrorResponse(context, "User not found", 404);
+                }
+                promise.complete();
+            
             } catch (Exception e) {
                 logger.error("Error updating user {}", userId, e);
                 promise.fail(e);
@@ -139,23 +266,36 @@ public class UserController extends AbstractHttpController {
         });
     }
     
-    private void deleteUser(RoutingContext context) {
-        String userId = context.pathParam("id");
+    @Delete("/api/users/:id")
+    void deleteUser(RoutingContext context, @PathParam("id") String userId) {
+        long ifMatch = ifMatchVersion(context);
         
-        handleAsyncWithWorker(context, promise -> {
+        handleAsyncWithWorkerForKey(context, userId, promise -> {
             try {
-                logger.info("Deleting user with ID: {}", userId);
+                if (shouldLogRequest()) {
+                    logger.info("Deleting user with ID: {}", userId);
+                }
                 // Simulate database delete operation
                 Thread.sleep(100);
                 
-                User deletedUser = userStore.remove(userId);
-                if (deletedUser != null) {
-                    sendJsonResponse(context, new JsonObject().put("message", "User deleted successfully"));
-                } else {
-                    sendErrorResponse(context, "User not found", 404);
+                UpdateResult<User> result = userStore.remove(userId, ifMatch);
+                if (result.getStatus() == UpdateResult.Status.UPDATED) {
+                    emailIndex.release(result.getPrevious().getEmail(), userId);
+                    searchIndex.refresh(userId);
+                    heavyResults.invalidate(userId);
+                }
+                switch (result.getStatus()) {
+                    case UPDATED:
+                        sendJsonResponse(context, new JsonObject().put("message", "User deleted successfully"));
+                        break;
+                    case CONFLICT:
+                        sendVersionConflict(context, result.getCurrent(), true);
+                        break;
+                    default:
+                        sendErrorResponse(context, "User not found", 404);
                 }
                 promise.complete();
-                
+            
             } catch (Exception e) {
                 logger.error("Error deleting user {}", userId, e);
                 promise.fail(e);
@@ -163,13 +303,24 @@ public class UserController extends AbstractHttpController {
         });
     }
     
-    private void performHeavyOperation(RoutingContext context) {
-        String userId = context.pathParam("id");
-        
-        // Use worker executor for CPU-intensive operations
-        handleAsyncWithWorker(context, promise -> {
+    // After a write: frees the previous email unless the user kept it
+    private void releaseChangedEmail(UpdateResult<User> result) {
+        User previous = result.getPrevious();
+        if (previous != null && !emailIndex.sameKey(previous.getEmail(), result.getCurrent().getEmail())) {
+            emailIndex.release(previous.getEmail(), previous.getId());
+        }
+    }
+    
+    @Get("/api/users/:id/heavy-operation")
+    @RateLimited(policy = "heavy-operation", permitsPerSecond = 5, burst = 10)
+    @Deadline(5000)
+    void performHeavyOperation(RoutingContext context, @PathParam("id") String userId) {
+        // Use the compute executor for CPU-intensive operations
+        handleAsyncWithCompute(context, promise -> {
             try {
-                logger.info("Performing heavy operation for user: {}", userId);
+                if (shouldLogRequest()) {
+                    logger.info("Performing heavy operation for user: {}", userId);
+                }
                 
                 User user = userStore.get(userId);
                 if (user == null) {
@@ -178,18 +329,20 @@ public class UserController extends AbstractHttpController {
                     return;
                 }
                 
-                // Simulate heavy CPU-bound operation
-                int result = performComplexCalculation();
-                
-                JsonObject response = new JsonObject()
-                    .put("userId", userId)
-                    .put("userName", user.getName())
-                    .put("calculationResult", result)
-                    .put("processingTime", "Heavy operation completed");
-                
-                sendJsonResponse(context, response);
-                promise.complete();
-                
+                // Simulate heavy CPU-bound operation; concurrent misses for one user share a single calculation
+                heavyResults.get(userId, id -> Future.succeededFuture(performComplexCalculation()))
+                    .onSuccess(result -> {
+                        JsonObject response = new JsonObject()
+                            .put("userId", userId)
+                            .put("userName", user.getName())
+                            .put("calculationResult", result)
+                            .put("processingTime", "Heavy operation completed");
+                        
+                        sendJsonResponse(context, response);
+                        promise.complete();
+                    })
+                    .onFailure(promise::fail);
+            
             } catch (Exception e) {
                 logger.error("Error in heavy operation for user {}", userId, e);
                 promise.fail(e);
@@ -198,11 +351,42 @@ public class UserController extends AbstractHttpController {
     }
     
     private int performComplexCalculation() {
-        // Simulate CPU-intensive work
-        int result = 0;
-        for (int i = 0; i < 1000000; i++) {
-            result += ThreadLocalRandom.current().nextInt(1000);
+        // Simulate CPU-intensive work, split into fork/join subtasks on the compute pool. With -Dcompute.enabled=false
+        // this runs on a worker thread, where fork() would spill into the common pool, so it stays sequential there.
+        long result = ForkJoinTask.inForkJoinPool()
+            ? new RandomSumTask(CALCULATION_ITERATIONS).invoke()
+            : RandomSumTask.sum(CALCULATION_ITERATIONS);
+        return (int) (result % 10000);
+    }
+    
+    private static class RandomSumTask extends RecursiveTask<Long> {
+        private static final int SEQUENTIAL_THRESHOLD = 100_000;
+        private final int iterations;
+        
+        RandomSumTask(int iterations) {
+            this.iterations = iterations;
+        }
+        
+        @Override
+        protected Long compute() {
+            if (iterations <= SEQUENTIAL_THRESHOLD) {
+                return sum(iterations);
+            }
+            
+            int half = iterations / 2;
+            RandomSumTask left = new RandomSumTask(half);
+            left.fork();
+            long right = new RandomSumTask(iterations - half).compute();
+            return right + left.join();
+        }
+        
+        static long sum(int iterations) {
+            long sum = 0;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < iterations; i++) {
+                sum += random.nextInt(1000);
+            }
+            return sum;
         }
-        return result % 10000;
     }
 }
\ No newline at end of file
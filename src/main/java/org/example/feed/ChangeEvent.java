@@ -0,0 +1,104 @@
+package org.example.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+import org.example.model.Order;
+import org.example.util.JsonSupport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Immutable order change, carrying its SSE frame pre-encoded so fan-out never serializes per subscriber
+public final class ChangeEvent {
+    
+    public enum Type {
+        CREATED, UPDATED, STATUS, DELETED;
+        
+        String eventName() {
+            return name().toLowerCase();
+        }
+    }
+    
+    private final String id;
+    private final Type type;
+    private final String orderId;
+    private final String customerId;
+    private final byte[] frame;
+    
+    ChangeEvent(String id, Type type, String orderId, String customerId, byte[] frame) {
+        this.id = id;
+        this.type = type;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.frame = frame;
+    }
+    
+    static ChangeEvent of(String id, Type type, Order order) throws JsonProcessingException {
+        Payload payload = new Payload(type.eventName(), order.getId(), order.getCustomerId(), order.getVersion(),
+                                      type == Type.DELETED ? null : order);
+        String frame = "id: " + id + "\n"
+                     + "event: " + type.eventName() + "\n"
+                     + "data: " + JsonSupport.mapper().writeValueAsString(payload) + "\n\n";
+        return new ChangeEvent(id, type, order.getId(), order.getCustomerId(), frame.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public String getId() { return id; }
+    public Type getType() { return type; }
+    public String getOrderId() { return orderId; }
+    public String getCustomerId() { return customerId; }
+    
+    // Shared across subscribers; callers must not modify it
+    byte[] frame() {
+        return frame;
+    }
+    
+    private record Payload(String type, String orderId, String customerId, long version, Order order) {
+    }
+    
+    // Events are immutable, so local delivery hands every verticle the same instance instead of a copy
+    static final class Codec implements MessageCodec<ChangeEvent, ChangeEvent> {
+        
+        static final String NAME = "order-change-event";
+        
+        @Override
+        public void encodeToWire(Buffer buffer, ChangeEvent event) {
+            Buffer json = new JsonObject()
+                .put("id", event.id)
+                .put("type", event.type.name())
+                .put("orderId", event.orderId)
+                .put("customerId", event.customerId)
+                .put("frame", Base64.getEncoder().encodeToString(event.frame))
+                .toBuffer();
+            buffer.appendInt(json.length()).appendBuffer(json);
+        }
+        
+        @Override
+        public ChangeEvent decodeFromWire(int pos, Buffer buffer) {
+            int length = buffer.getInt(pos);
+            JsonObject json = new JsonObject(buffer.slice(pos + 4, pos + 4 + length));
+            return new ChangeEvent(
+                json.getString("id"),
+                Type.valueOf(json.getString("type")),
+                json.getString("orderId"),
+                json.getString("customerId"),
+                Base64.getDecoder().decode(json.getString("frame")));
+        }
+        
+        @Override
+        public ChangeEvent transform(ChangeEvent event) {
+            return event;
+        }
+        
+        @Override
+        public String name() {
+            return NAME;
+        }
+        
+        @Override
+        public byte systemCodecID() {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.feed;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import org.example.model.Order;
+import org.example.util.DrainCoordinator;
+import org.example.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+// One instance per verticle. Every instance receives every order change over the event bus, so a
+// subscriber sees changes made through any verticle. Subscribers, history and timers are confined
+// to the owning verticle's event loop and need no locking.
+public class OrderChangeFeed {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderChangeFeed.class);
+    
+    public static final String ADDRESS = "orders.changes";
+    
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("orders.stream.flush-ms", 50L);
+    private static final long HEARTBEAT_INTERVAL_MILLIS = Long.getLong("orders.stream.heartbeat-ms", 15000L);
+    private static final int HISTORY_SIZE = Integer.getInteger("orders.stream.history-size", 1024);
+    private static final int MAX_PENDING = Math.max(HISTORY_SIZE, Integer.getInteger("orders.stream.max-pending", 2048));
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("orders.stream.max-subscribers", 10_000);
+    
+    private static final byte[] RETRY = "retry: 2000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESET = "event: reset\ndata: {\"reason\":\"history-unavailable\"}\n\n"
+        .getBytes(StandardCharsets.UTF_8);
+    
+    private static final Set<Vertx> codecRegistered = Collections.newSetFromMap(new WeakHashMap<>());
+    
+    private final Vertx vertx;
+    private final int historySize;
+    private final int maxPending;
+    private final long flushIntervalMillis;
+    private final DrainCoordinator drainCoordinator;
+    // Registered with the drain coordinator only while there are subscribers
+    private final Runnable drainListener;
+    private final IdGenerator idGenerator = IdGenerator.shared();
+    private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+    // Recent events in arrival order, used to resume a stream from Last-Event-ID
+    private final ArrayDeque<ChangeEvent> history = new ArrayDeque<>();
+    private boolean historyTruncated;
+    private long flushTimerId = -1;
+    private long lastHeartbeatMillis = System.currentTimeMillis();
+    
+    public OrderChangeFeed(Vertx vertx) {
+        this(vertx, HISTORY_SIZE, MAX_PENDING, FLUSH_INTERVAL_MILLIS, DrainCoordinator.shared());
+    }
+    
+    OrderChangeFeed(Vertx vertx, int historySize, int maxPending, long flushIntervalMillis,
+                    DrainCoordinator drainCoordinator) {
+        this.vertx = vertx;
+        this.historySize = historySize;
+        this.maxPending = maxPending;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.drainCoordinator = drainCoordinator;
+        registerCodec(vertx);
+        vertx.eventBus().<ChangeEvent>localConsumer(ADDRESS, message -> onEvent(message.body()));
+        Context context = vertx.getOrCreateContext();
+        drainListener = () -> context.runOnContext(v -> closeAll());
+    }
+    
+    private static void registerCodec(Vertx vertx) {
+        synchronized (codecRegistered) {
+            if (codecRegistered.add(vertx)) {
+                vertx.eventBus().registerDefaultCodec(ChangeEvent.class, new ChangeEvent.Codec());
+            }
+        }
+    }
+    
+    // Safe to call from any thread; the frame is encoded once here, on the publishing worker
+    public void publish(ChangeEvent.Type type, Order order) {
+        try {
+            vertx.eventBus().publish(ADDRESS, ChangeEvent.of(idGenerator.nextId(), type, order));
+        } catch (Exception e) {
+            logger.warn("Failed to publish {} event for order {}", type, order.getId(), e);
+        }
+    }
+    
+    // Must be called on the event loop that owns the response. Returns false when the feed is full.
+    public boolean subscribe(HttpServerResponse response, String customerId, String lastEventId) {
+        if (subscribers.size() >= MAX_SUBSCRIBERS) {
+            return false;
+        }
+        
+        response.setChunked(true)
+                .putHeader("Content-Type", "text/event-stream")
+                .putHeader("Cache-Control", "no-cache")
+                .putHeader("X-Accel-Buffering", "no");
+        response.write(Buffer.buffer(RETRY));
+        
+        Subscriber subscriber = new Subscriber(response, customerId);
+        response.closeHandler(v -> unsubscribe(subscriber));
+        response.exceptionHandler(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        if (flushTimerId < 0) {
+            flushTimerId = vertx.setPeriodic(flushIntervalMillis, id -> flushAll());
+            drainCoordinator.onClose(drainListener);
+        }
+        
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            replay(subscriber, lastEventId);
+            subscriber.flush(false);
+        }
+        return true;
+    }
+    
+    // Event loop only
+    int subscriberCount() {
+        return subscribers.size();
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty() && flushTimerId >= 0) {
+            vertx.cancelTimer(flushTimerId);
+            flushTimerId = -1;
+            drainCoordinator.removeOnClose(drainListener);
+        }
+    }
+    
+    private void replay(Subscriber subscriber, String lastEventId) {
+        // Resume right after the last seen event when this verticle has it. Otherwise fall back to
+        // comparing IDs, which sort by creation time.
+        boolean found = false;
+        for (ChangeEvent event : history) {
+            if (found) {
+                subscriber.offer(event);
+            } else if (event.getId().equals(lastEventId)) {
+                found = true;
+            }
+        }
+        if (found) {
+            return;
+        }
+        
+        ChangeEvent oldest = history.peekFirst();
+        if (historyTruncated && (oldest == null || lastEventId.compareTo(oldest.getId()) < 0)) {
+            // Events the client missed are gone; it has to reload the order list
+            subscriber.response.write(Buffer.buffer(RESET));
+            return;
+        }
+        for (ChangeEvent event : history) {
+            if (event.getId().compareTo(lastEventId) > 0) {
+                subscriber.offer(event);
+            }
+        }
+    }
+    
+    private void onEvent(ChangeEvent event) {
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+            historyTruncated = true;
+        }
+        
+        List<Subscriber> overflowed = null;
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(event)) {
+                if (overflowed == null) {
+                    overflowed = new ArrayList<>();
+                }
+                overflowed.add(subscriber);
+            }
+        }
+        if (overflowed != null) {
+            for (Subscriber subscriber : overflowed) {
+                // The client can reconnect with Last-Event-ID and catch up from history
+                logger.warn("Closing slow change feed subscriber after {} pending orders", maxPending);
+                unsubscribe(subscriber);
+                subscriber.response.close();
+            }
+        }
+    }
+    
+    // On shutdown: streams never finish by themselves, so end them and let clients resume elsewhere
+    private void closeAll() {
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.flush(false);
+            unsubscribe(subscriber);
+            subscriber.response.end();
+        }
+    }
+    
+    private void flushAll() {
+        long now = System.currentTimeMillis();
+        boolean heartbeat = now - lastHeartbeatMillis >= HEARTBEAT_INTERVAL_MILLIS;
+        if (heartbeat) {
+            lastHeartbeatMillis = now;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.flush(heartbeat);
+        }
+    }
+    
+    private final class Subscriber {
+        
+        private final HttpServerResponse response;
+        private final String customerId;
+        // Latest pending event per order: rapid updates to one order collapse into a single frame
+        private final Map<String, ChangeEvent> pending = new LinkedHashMap<>();
+        
+        Subscriber(HttpServerResponse response, String customerId) {
+            this.response = response;
+            this.customerId = customerId;
+        }
+        
+        // Returns false when the subscriber has fallen too far behind
+        boolean offer(ChangeEvent event) {
+            if (customerId != null && !customerId.equals(event.getCustomerId())) {
+                return true;
+            }
+            // Re-insert so the coalesced event keeps its place in arrival order
+            pending.remove(event.getOrderId());
+            pending.put(event.getOrderId(), event);
+            return pending.size() <= maxPending;
+        }
+        
+        void flush(boolean heartbeat) {
+            // Backpressure: while the socket is backed up events keep coalescing in pending
+            if (response.writeQueueFull()) {
+                return;
+            }
+            if (pending.isEmpty()) {
+                if (heartbeat) {
+                    response.write(Buffer.buffer(HEARTBEAT));
+                }
+                return;
+            }
+            
+            int size = 0;
+            for (ChangeEvent event : pending.values()) {
+                size += event.frame().length;
+            }
+            Buffer batch = Buffer.buffer(size);
+            for (ChangeEvent event : pending.values()) {
+                batch.appendBytes(event.frame());
+            }
+            pending.clear();
+            response.write(batch);
+        }
+    }
+}
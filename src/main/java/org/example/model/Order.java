@@ -1,13 +1,14 @@
 package org.example.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public class Order {
+public class Order implements Versioned {
     
     private String id;
     private String customerId;
@@ -16,9 +17,23 @@ public class Order {
     private OrderStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private long version;
     
     public Order() {}
     
+    // Deep copy: the stores copy entities in and out, so the copy gets its own unmodifiable list of its own items
+    // rather than sharing (or later changing) the ones held by the other order
+    public Order(Order other) {
+        this.id = other.id;
+        this.customerId = other.customerId;
+        this.items = other.items == null ? null : other.items.stream().map(OrderItem::new).toList();
+        this.totalAmount = other.totalAmount;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+    }
+    
     @JsonCreator
     public Order(@JsonProperty("id") String id,
                  @JsonProperty("customerId") String customerId,
@@ -59,6 +74,11 @@ public class Order {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    @Override
+    public long getVersion() { return version; }
+    @Override
+    public void setVersion(long version) { this.version = version; }
+    
     @Override
     public String toString() {
         return "Order{" +
@@ -69,37 +89,56 @@ public class Order {
                ", status=" + status +
                ", createdAt=" + createdAt +
                ", updatedAt=" + updatedAt +
+               ", version=" + version +
                '}';
     }
     
     // Inner classes
     public static class OrderItem {
-        private String productId;
-        private String productName;
+        // Product id and name live in a shared Product, so items for the same product don't repeat the strings
+        private Product product;
         private int quantity;
         private BigDecimal unitPrice;
         private BigDecimal totalPrice;
         
-        public OrderItem() {}
+        public OrderItem() {
+            this.product = new Product(null, null);
+        }
         
         @JsonCreator
         public OrderItem(@JsonProperty("productId") String productId,
                         @JsonProperty("productName") String productName,
                         @JsonProperty("quantity") int quantity,
                         @JsonProperty("unitPrice") BigDecimal unitPrice) {
-            this.productId = productId;
-            this.productName = productName;
+            this(new Product(productId, productName), quantity, unitPrice);
+        }
+        
+        // Product and the amounts are immutable, so a field copy is a deep copy
+        public OrderItem(OrderItem other) {
+            this.product = other.product;
+            this.quantity = other.quantity;
+            this.unitPrice = other.unitPrice;
+            this.totalPrice = other.totalPrice;
+        }
+        
+        public OrderItem(Product product, int quantity, BigDecimal unitPrice) {
+            this.product = product;
             this.quantity = quantity;
             this.unitPrice = unitPrice;
             this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
         }
         
         // Getters and Setters
-        public String getProductId() { return productId; }
-        public void setProductId(String productId) { this.productId = productId; }
+        @JsonIgnore
+        public Product getProduct() { return product; }
+        @JsonIgnore
+        public void setProduct(Product product) { this.product = product; }
+        
+        public String getProductId() { return product.getProductId(); }
+        public void setProductId(String productId) { this.product = new Product(productId, product.getProductName()); }
         
-        public String getProductName() { return productName; }
-        public void setProductName(String productName) { this.productName = productName; }
+        public String getProductName() { return product.getProductName(); }
+        public void setProductName(String productName) { this.product = new Product(product.getProductId(), productName); }
         
         public int getQuantity() { return quantity; }
         public void setQuantity(int quantity) { 
@@ -118,8 +157,8 @@ public class Order {
         @Override
         public String toString() {
             return "OrderItem{" +
-                   "productId='" + productId + '\'' +
-                   ", productName='" + productName + '\'' +
+                   "productId='" + getProductId() + '\'' +
+                   ", productName='" + getProductName() + '\'' +
                    ", quantity=" + quantity +
                    ", unitPrice=" + unitPrice +
                    ", totalPrice=" + totalPrice +
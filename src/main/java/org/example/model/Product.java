@@ -0,0 +1,43 @@
+package org.example.model;
+
+import java.util.Objects;
+
+// Immutable product identity shared by every order item that references it (see ProductCatalog)
+public final class Product {
+    
+    private final String productId;
+    private final String productName;
+    
+    public Product(String productId, String productName) {
+        this.productId = productId;
+        this.productName = productName;
+    }
+    
+    public String getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    
+    public boolean matches(String productId, String productName) {
+        return Objects.equals(this.productId, productId) && Objects.equals(this.productName, productName);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Product)) return false;
+        Product other = (Product) o;
+        return matches(other.productId, other.productName);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, productName);
+    }
+    
+    @Override
+    public String toString() {
+        return "Product{" +
+               "productId='" + productId + '\'' +
+               ", productName='" + productName + '\'' +
+               '}';
+    }
+}
@@ -3,14 +3,23 @@ package org.example.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class User {
+public class User implements Versioned {
     
     private String id;
     private String name;
     private String email;
+    private long version;
     
     public User() {}
     
+    // Copy used to build a new snapshot; the stores also copy entities in and out with it
+    public User(User other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.version = other.version;
+    }
+    
     @JsonCreator
     public User(@JsonProperty("id") String id, 
                 @JsonProperty("name") String name, 
@@ -44,12 +53,23 @@ public class User {
         this.email = email;
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return "User{" +
                "id='" + id + '\'' +
                ", name='" + name + '\'' +
                ", email='" + email + '\'' +
+               ", version=" + version +
                '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package org.example.model;
+
+public interface Versioned {
+    
+    long getVersion();
+    
+    void setVersion(long version);
+}
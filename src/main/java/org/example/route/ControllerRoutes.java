@@ -0,0 +1,14 @@
+package org.example.route;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+
+// Implemented by the <Controller>Routes classes that RouteProcessor generates for each @HttpController
+public interface ControllerRoutes<C> {
+    
+    C create(Vertx vertx, WorkerExecutor workerExecutor);
+    
+    void register(C controller, RouteRegistrar routes);
+    
+    int routeCount();
+}
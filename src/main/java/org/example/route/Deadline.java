@@ -0,0 +1,15 @@
+package org.example.route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Puts AbstractHttpController.deadline(millis) in front of the handler, after any rate limit. Replaces the default
+// deadline for the route, so it may be longer; 0 (RequestDeadline.NO_TIMEOUT) turns the server-side deadline off.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Deadline {
+    
+    long value();
+}
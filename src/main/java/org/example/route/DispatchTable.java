@@ -0,0 +1,252 @@
+package org.example.route;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Optional fast path in front of the Router's route-by-route walk (-Droutes.fast-dispatch=true):
+//   exact paths    one hash lookup per method (/health, /api/orders/stats)
+//   :param paths   a segment trie per method, trying literal children before the parameter child
+// It runs as one router.route() handler after the global middleware and the body handler; a miss calls
+// next() and the Router matches as before. Every route is still registered on the Router, and routes the
+// table cannot resolve exactly as the Router would are left to it: handler chains (their handlers call
+// next()), paths with wildcards or percent-escapes, and routes overlapped by an earlier route, since the
+// Router picks the first registered match where the trie picks the most specific one.
+// Built during verticle start and only read afterwards, on the same event loop.
+public class DispatchTable implements Handler<RoutingContext> {
+    
+    // Context key for the matched :param route pattern, set only when recordPatterns is on (request tracing)
+    public static final String ROUTE_PATTERN_KEY = "route.pattern";
+    
+    private final boolean recordPatterns;
+    private final Map<HttpMethod, Map<String, Handler<RoutingContext>>> exactRoutes = new HashMap<>();
+    private final Map<HttpMethod, Node> parameterRoutes = new HashMap<>();
+    // Every route in registration order, for the overlap check
+    private final List<Pattern> registered = new ArrayList<>();
+    private int maxSegments;
+    private int tableRoutes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public DispatchTable() {
+        this(false);
+    }
+    
+    public DispatchTable(boolean recordPatterns) {
+        this.recordPatterns = recordPatterns;
+    }
+    
+    public void add(HttpMethod method, String path, List<Handler<RoutingContext>> handlers) {
+        Pattern pattern = Pattern.parse(method, path);
+        boolean dispatchable = pattern != null && handlers.size() == 1 && !shadowedByEarlierRoute(pattern);
+        registered.add(pattern != null ? pattern : Pattern.opaque(method));
+        if (!dispatchable) {
+            return;
+        }
+        
+        Handler<RoutingContext> handler = handlers.get(0);
+        if (pattern.parameterCount == 0) {
+            exactRoutes.computeIfAbsent(method, key -> new HashMap<>()).put(path, handler);
+        } else {
+            Node node = parameterRoutes.computeIfAbsent(method, key -> new Node());
+            for (String segment : pattern.segments) {
+                node = segment.startsWith(":")
+                    ? (node.parameter != null ? node.parameter : (node.parameter = new Node()))
+                    : node.literals.computeIfAbsent(segment, key -> new Node());
+            }
+            node.route = new Leaf(handler, path, pattern.parameterNames());
+            maxSegments = Math.max(maxSegments, pattern.segments.length);
+        }
+        tableRoutes++;
+    }
+    
+    // True if an earlier route matches some request this one matches and the table would resolve it differently
+    private boolean shadowedByEarlierRoute(Pattern pattern) {
+        for (Pattern earlier : registered) {
+            if (earlier.method.equals(pattern.method) && earlier.overlaps(pattern)) {
+                // An earlier route in the table wins the shared requests only if it is literal where this one
+                // first differs from it, which is also where the trie decides
+                if (earlier.segments == null || !earlier.moreSpecificThan(pattern)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void handle(RoutingContext context) {
+        HttpMethod method = context.request().method();
+        String path = context.normalizedPath();
+        
+        Map<String, Handler<RoutingContext>> exact = exactRoutes.get(method);
+        Handler<RoutingContext> handler = exact != null ? exact.get(path) : null;
+        if (handler != null) {
+            hits.increment();
+            handler.handle(context);
+            return;
+        }
+        
+        Node root = parameterRoutes.get(method);
+        if (root != null && path.length() > 1 && path.charAt(0) == '/' && path.indexOf('%') < 0) {
+            String[] values = new String[maxSegments];
+            Leaf leaf = match(root, path, 1, values, 0);
+            if (leaf != null) {
+                hits.increment();
+                Map<String, String> pathParams = context.pathParams();
+                for (int i = 0; i < leaf.parameterNames.length; i++) {
+                    if (leaf.parameterNames[i] != null) {
+                        pathParams.put(leaf.parameterNames[i], values[i]);
+                    }
+                }
+                if (recordPatterns) {
+                    context.put(ROUTE_PATTERN_KEY, leaf.path);
+                }
+                leaf.handler.handle(context);
+                return;
+            }
+        }
+        misses.increment();
+        context.next();
+    }
+    
+    // Depth-first with literals first; values[depth] is only written on the successful branch
+    private static Leaf match(Node node, String path, int start, String[] values, int depth) {
+        if (depth == values.length) {
+            return null;
+        }
+        int end = path.indexOf('/', start);
+        boolean last = end < 0;
+        if (last) {
+            end = path.length();
+        }
+        if (end == start) {
+            return null;
+        }
+        String segment = path.substring(start, end);
+        
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Leaf leaf = last ? literal.route : match(literal, path, end + 1, values, depth + 1);
+            if (leaf != null) {
+                return leaf;
+            }
+        }
+        if (node.parameter != null) {
+            Leaf leaf = last ? node.parameter.route : match(node.parameter, path, end + 1, values, depth + 1);
+            if (leaf != null) {
+                values[depth] = segment;
+                return leaf;
+            }
+        }
+        return null;
+    }
+    
+    public int getTableRoutes() {
+        return tableRoutes;
+    }
+    
+    public int getRouterOnlyRoutes() {
+        return registered.size() - tableRoutes;
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("tableRoutes", tableRoutes)
+            .put("routerOnlyRoutes", getRouterOnlyRoutes())
+            .put("hits", hits.sum())
+            .put("misses", misses.sum());
+    }
+    
+    private static final class Node {
+        
+        final Map<String, Node> literals = new HashMap<>();
+        Node parameter;
+        Leaf route;
+    }
+    
+    private record Leaf(Handler<RoutingContext> handler, String path, String[] parameterNames) {
+    }
+    
+    private static final class Pattern {
+        
+        final HttpMethod method;
+        // Null for paths the table does not handle; they still take part in overlap checks as "matches anything"
+        final String[] segments;
+        final int parameterCount;
+        
+        private Pattern(HttpMethod method, String[] segments, int parameterCount) {
+            this.method = method;
+            this.segments = segments;
+            this.parameterCount = parameterCount;
+        }
+        
+        static Pattern opaque(HttpMethod method) {
+            return new Pattern(method, null, 0);
+        }
+        
+        // Plain "/literal/:param" paths only; wildcards, regex routes and trailing slashes stay with the Router
+        static Pattern parse(HttpMethod method, String path) {
+            if (path == null || path.length() < 2 || path.charAt(0) != '/' || path.endsWith("/")) {
+                return null;
+            }
+            String[] segments = path.substring(1).split("/", -1);
+            int parameterCount = 0;
+            for (String segment : segments) {
+                if (segment.isEmpty() || segment.indexOf('*') >= 0 || segment.indexOf('%') >= 0
+                    || segment.lastIndexOf(':') > 0 || segment.equals(":")) {
+                    return null;
+                }
+                if (segment.charAt(0) == ':') {
+                    parameterCount++;
+                }
+            }
+            return new Pattern(method, segments, parameterCount);
+        }
+        
+        String[] parameterNames() {
+            String[] names = new String[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].startsWith(":")) {
+                    names[i] = segments[i].substring(1);
+                }
+            }
+            return names;
+        }
+        
+        boolean overlaps(Pattern other) {
+            if (segments == null || other.segments == null) {
+                return true;
+            }
+            if (segments.length != other.segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (!isParameter(i) && !other.isParameter(i) && !segments[i].equals(other.segments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        boolean moreSpecificThan(Pattern other) {
+            for (int i = 0; i < segments.length; i++) {
+                if (isParameter(i) != other.isParameter(i)) {
+                    return !isParameter(i);
+                }
+            }
+            return false;
+        }
+        
+        private boolean isParameter(int index) {
+            return segments[index].charAt(0) == ':';
+        }
+    }
+}
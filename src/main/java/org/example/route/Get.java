@@ -0,0 +1,14 @@
+package org.example.route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Get {
+    
+    // Vert.x Web path, with :name segments for path parameters
+    String value();
+}
@@ -0,0 +1,13 @@
+package org.example.route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a controller whose @Get/@Post/@Put/@Delete methods are compiled into a route table by
+// RouteProcessor. The class needs a (Vertx, WorkerExecutor) constructor and non-private handler methods.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface HttpController {
+}
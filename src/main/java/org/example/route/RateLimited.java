@@ -0,0 +1,18 @@
+package org.example.route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Puts AbstractHttpController.rateLimit(policy, permitsPerSecond, burst) in front of the handler
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface RateLimited {
+    
+    String policy();
+    
+    double permitsPerSecond();
+    
+    int burst();
+}
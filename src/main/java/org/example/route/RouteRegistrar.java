@@ -0,0 +1,101 @@
+package org.example.route;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Registers application routes on the Router and, when fast dispatch is on, in the DispatchTable in front of
+// it. Routes that bypass this and go straight to the Router after the table is installed are not seen by
+// its overlap check, so everything past the global middleware should be added here.
+public class RouteRegistrar {
+    
+    private final Router router;
+    private final DispatchTable dispatchTable;
+    private final Handler<RoutingContext> bodyHandler;
+    // Routes that wait for complete() to be registered after the body handler; null once registered directly
+    private List<Runnable> pending;
+    
+    // dispatchTable may be null, in which case routes only go to the Router. Routes are registered as they are
+    // added, and the caller mounts the table and any body handling itself.
+    public RouteRegistrar(Router router, DispatchTable dispatchTable) {
+        this(router, dispatchTable, null, null);
+    }
+    
+    // Streaming routes go on the Router as they are added; every other route waits for complete(), which mounts
+    // the body handler, then the dispatch table, then those routes. A streaming request matches its route before
+    // the body handler is reached, so the body is never buffered for it.
+    public RouteRegistrar(Router router, DispatchTable dispatchTable, Handler<RoutingContext> bodyHandler) {
+        this(router, dispatchTable, bodyHandler, new ArrayList<>());
+    }
+    
+    private RouteRegistrar(Router router, DispatchTable dispatchTable, Handler<RoutingContext> bodyHandler,
+                           List<Runnable> pending) {
+        this.router = router;
+        this.dispatchTable = dispatchTable;
+        this.bodyHandler = bodyHandler;
+        this.pending = pending;
+    }
+    
+    // For routes whose handlers read the request body themselves, e.g. NDJSON imports. They stay out of the
+    // dispatch table, which sits after the body handler and never sees their requests.
+    public RouteRegistrar streaming() {
+        return pending == null ? this : new RouteRegistrar(router, null);
+    }
+    
+    public void complete() {
+        if (pending == null) {
+            return;
+        }
+        router.route().handler(bodyHandler);
+        if (dispatchTable != null) {
+            router.route().handler(dispatchTable);
+        }
+        List<Runnable> routes = pending;
+        pending = null;
+        routes.forEach(Runnable::run);
+    }
+    
+    @SafeVarargs
+    public final void get(String path, Handler<RoutingContext>... handlers) {
+        add(HttpMethod.GET, path, handlers);
+    }
+    
+    @SafeVarargs
+    public final void post(String path, Handler<RoutingContext>... handlers) {
+        add(HttpMethod.POST, path, handlers);
+    }
+    
+    @SafeVarargs
+    public final void put(String path, Handler<RoutingContext>... handlers) {
+        add(HttpMethod.PUT, path, handlers);
+    }
+    
+    @SafeVarargs
+    public final void delete(String path, Handler<RoutingContext>... handlers) {
+        add(HttpMethod.DELETE, path, handlers);
+    }
+    
+    @SafeVarargs
+    public final void add(HttpMethod method, String path, Handler<RoutingContext>... handlers) {
+        if (pending != null) {
+            pending.add(() -> add(method, path, handlers));
+            return;
+        }
+        Route route = router.route(method, path);
+        for (Handler<RoutingContext> handler : handlers) {
+            route.handler(handler);
+        }
+        if (dispatchTable != null) {
+            dispatchTable.add(method, path, List.of(handlers));
+        }
+    }
+    
+    public Router router() {
+        return router;
+    }
+}
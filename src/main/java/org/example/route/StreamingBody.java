@@ -0,0 +1,13 @@
+package org.example.route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Registers the route without the BodyHandler, so the handler can read the request body as a stream (bulk imports)
+// instead of having it buffered in memory first
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface StreamingBody {
+}
@@ -0,0 +1,316 @@
+package org.example.route.processor;
+
+import org.example.route.Deadline;
+import org.example.route.Delete;
+import org.example.route.Get;
+import org.example.route.HttpController;
+import org.example.route.PathParam;
+import org.example.route.Post;
+import org.example.route.Put;
+import org.example.route.QueryParam;
+import org.example.route.RateLimited;
+import org.example.route.StreamingBody;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Compiles @HttpController classes into plain route registration code at build time:
+//   <Controller>Routes  creates the controller and registers each route with its handler chain,
+//                       extracting @PathParam/@QueryParam arguments inline
+//   GeneratedRoutes     lists every route table, replacing hand-maintained controller factory lists
+// Routes keep declaration order (the order Vert.x matches them in), and a route that could never match
+// because an earlier one on the same method already covers its path is a compile error.
+@SupportedAnnotationTypes("org.example.route.*")
+public class RouteProcessor extends AbstractProcessor {
+    
+    static final String INDEX_PACKAGE = "org.example.route";
+    static final String INDEX_CLASS = "GeneratedRoutes";
+    
+    private static final String ROUTING_CONTEXT = "io.vertx.ext.web.RoutingContext";
+    
+    private final List<String> routeTables = new ArrayList<>();
+    private boolean indexWritten;
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        List<TypeElement> controllers = new ArrayList<>(
+            ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(HttpController.class)));
+        if (controllers.isEmpty()) {
+            return false;
+        }
+        if (indexWritten) {
+            error(controllers.get(0), "@HttpController classes must not be generated by other processors");
+            return false;
+        }
+        // Stable output regardless of the order javac hands the classes over
+        controllers.sort((a, b) -> a.getQualifiedName().toString().compareTo(b.getQualifiedName().toString()));
+        for (TypeElement controller : controllers) {
+            generateRouteTable(controller);
+        }
+        writeIndex(controllers);
+        return false;
+    }
+    
+    private void generateRouteTable(TypeElement controller) {
+        List<Route> routes = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(controller.getEnclosedElements())) {
+            Route route = route(method);
+            if (route != null && validate(route)) {
+                for (Route earlier : routes) {
+                    if (earlier.shadows(route)) {
+                        error(method, route.httpMethod + " " + route.path + " can never match: " + earlier.path
+                            + " is registered first and matches the same requests");
+                    }
+                }
+                routes.add(route);
+            }
+        }
+        if (!hasRequiredConstructor(controller)) {
+            error(controller, "@HttpController needs a non-private (Vertx, WorkerExecutor) constructor");
+            return;
+        }
+        
+        String packageName = processingEnv.getElementUtils().getPackageOf(controller).getQualifiedName().toString();
+        String controllerName = controller.getSimpleName().toString();
+        String className = controllerName + "Routes";
+        StringBuilder source = new StringBuilder()
+            .append("package ").append(packageName).append(";\n\n")
+            .append("import io.vertx.core.Vertx;\n")
+            .append("import io.vertx.core.WorkerExecutor;\n")
+            .append("import org.example.route.ControllerRoutes;\n")
+            .append("import org.example.route.RouteRegistrar;\n\n")
+            .append("// Generated by RouteProcessor from ").append(controllerName).append(". Do not edit.\n")
+            .append("public final class ").append(className)
+            .append(" implements ControllerRoutes<").append(controllerName).append("> {\n\n")
+            .append("    @Override\n")
+            .append("    public ").append(controllerName).append(" create(Vertx vertx, WorkerExecutor workerExecutor) {\n")
+            .append("        return new ").append(controllerName).append("(vertx, workerExecutor);\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public void register(").append(controllerName).append(" controller, RouteRegistrar routes) {\n");
+        for (Route route : routes) {
+            source.append("        routes.")
+                  .append(route.method.getAnnotation(StreamingBody.class) != null ? "streaming()." : "")
+                  .append(route.httpMethod.toLowerCase()).append("(").append(literal(route.path));
+            RateLimited rateLimited = route.method.getAnnotation(RateLimited.class);
+            if (rateLimited != null) {
+                source.append(",\n            controller.rateLimit(").append(literal(rateLimited.policy())).append(", ")
+                      .append(rateLimited.permitsPerSecond()).append(", ").append(rateLimited.burst()).append(")");
+            }
+            Deadline deadline = route.method.getAnnotation(Deadline.class);
+            if (deadline != null) {
+                source.append(",\n            controller.deadline(").append(deadline.value()).append("L)");
+            }
+            source.append(",\n            ").append(handlerExpression(route)).append(");\n");
+        }
+        source.append("    }\n\n")
+              .append("    @Override\n")
+              .append("    public int routeCount() {\n")
+              .append("        return ").append(routes.size()).append(";\n")
+              .append("    }\n")
+              .append("}\n");
+        
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        write(qualifiedName, source.toString(), controller);
+        routeTables.add(qualifiedName);
+    }
+    
+    private void writeIndex(List<TypeElement> controllers) {
+        StringBuilder source = new StringBuilder()
+            .append("package ").append(INDEX_PACKAGE).append(";\n\n")
+            .append("import java.util.List;\n\n")
+            .append("// Generated by RouteProcessor: one route table per @HttpController, in class name order.\n")
+            .append("public final class ").append(INDEX_CLASS).append(" {\n\n")
+            .append("    private ").append(INDEX_CLASS).append("() {\n")
+            .append("    }\n\n")
+            .append("    public static List<ControllerRoutes<?>> all() {\n")
+            .append("        return List.of(");
+        for (int i = 0; i < routeTables.size(); i++) {
+            source.append(i == 0 ? "\n            " : ",\n            ").append("new ").append(routeTables.get(i)).append("()");
+        }
+        source.append("\n        );\n")
+              .append("    }\n")
+              .append("}\n");
+        write(INDEX_PACKAGE + "." + INDEX_CLASS, source.toString(), controllers.toArray(new Element[0]));
+        indexWritten = true;
+    }
+    
+    private Route route(ExecutableElement method) {
+        List<Route> routes = new ArrayList<>();
+        Get get = method.getAnnotation(Get.class);
+        if (get != null) {
+            routes.add(new Route(method, "GET", get.value()));
+        }
+        Post post = method.getAnnotation(Post.class);
+        if (post != null) {
+            routes.add(new Route(method, "POST", post.value()));
+        }
+        Put put = method.getAnnotation(Put.class);
+        if (put != null) {
+            routes.add(new Route(method, "PUT", put.value()));
+        }
+        Delete delete = method.getAnnotation(Delete.class);
+        if (delete != null) {
+            routes.add(new Route(method, "DELETE", delete.value()));
+        }
+        if (routes.size() > 1) {
+            error(method, "A handler method can have only one of @Get, @Post, @Put and @Delete");
+            return null;
+        }
+        return routes.isEmpty() ? null : routes.get(0);
+    }
+    
+    private boolean validate(Route route) {
+        ExecutableElement method = route.method;
+        boolean valid = true;
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, "Route handlers must be non-private instance methods");
+            valid = false;
+        }
+        if (method.getReturnType().getKind() != TypeKind.VOID) {
+            error(method, "Route handlers must return void");
+            valid = false;
+        }
+        if (!route.path.startsWith("/")) {
+            error(method, "Route path must start with '/': " + route.path);
+            valid = false;
+        }
+        
+        boolean hasContext = false;
+        Set<String> pathParams = new TreeSet<>(route.pathParams());
+        for (VariableElement parameter : method.getParameters()) {
+            String type = parameter.asType().toString();
+            PathParam pathParam = parameter.getAnnotation(PathParam.class);
+            QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+            if (pathParam == null && queryParam == null) {
+                if (!type.equals(ROUTING_CONTEXT) || hasContext) {
+                    error(parameter, "Unannotated handler parameters must be a single RoutingContext");
+                    valid = false;
+                }
+                hasContext = true;
+            } else if (!type.equals(String.class.getName())) {
+                error(parameter, "@PathParam and @QueryParam parameters must be Strings");
+                valid = false;
+            } else if (pathParam != null && !pathParams.contains(pathParam.value())) {
+                error(parameter, "Path " + route.path + " has no :" + pathParam.value() + " segment");
+                valid = false;
+            }
+        }
+        if (!hasContext) {
+            error(method, "Route handlers take the RoutingContext to respond on");
+            valid = false;
+        }
+        return valid;
+    }
+    
+    private static String handlerExpression(Route route) {
+        List<? extends VariableElement> parameters = route.method.getParameters();
+        String name = route.method.getSimpleName().toString();
+        if (parameters.size() == 1) {
+            return "controller::" + name;
+        }
+        StringBuilder call = new StringBuilder("context -> controller.").append(name).append("(");
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            PathParam pathParam = parameter.getAnnotation(PathParam.class);
+            QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+            call.append(i == 0 ? "" : ", ");
+            if (pathParam != null) {
+                call.append("context.pathParam(").append(literal(pathParam.value())).append(")");
+            } else if (queryParam != null) {
+                call.append("context.queryParams().get(").append(literal(queryParam.value())).append(")");
+            } else {
+                call.append("context");
+            }
+        }
+        return call.append(")").toString();
+    }
+    
+    private static boolean hasRequiredConstructor(TypeElement controller) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(controller.getEnclosedElements())) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (!constructor.getModifiers().contains(Modifier.PRIVATE) && parameters.size() == 2
+                && parameters.get(0).asType().toString().equals("io.vertx.core.Vertx")
+                && parameters.get(1).asType().toString().equals("io.vertx.core.WorkerExecutor")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+    
+    private void write(String qualifiedName, String source, Element... origins) {
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, origins).openWriter()) {
+            writer.write(source);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Could not write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+    
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+    
+    private static final class Route {
+        
+        final ExecutableElement method;
+        final String httpMethod;
+        final String path;
+        final String[] segments;
+        
+        Route(ExecutableElement method, String httpMethod, String path) {
+            this.method = method;
+            this.httpMethod = httpMethod;
+            this.path = path;
+            this.segments = path.split("/", -1);
+        }
+        
+        List<String> pathParams() {
+            List<String> names = new ArrayList<>();
+            for (String segment : segments) {
+                if (segment.startsWith(":")) {
+                    names.add(segment.substring(1));
+                }
+            }
+            return names;
+        }
+        
+        // True if every request this later route would match is already taken by this one
+        boolean shadows(Route later) {
+            if (!httpMethod.equals(later.httpMethod) || segments.length != later.segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (!segments[i].startsWith(":") && !segments[i].equals(later.segments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.store;
+
+import org.example.model.Versioned;
+import org.example.store.VersionedStore.UpdateResult;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Entities handed out by a store are copies of its snapshots, and entities passed in are copied before they are stored:
+// changing either side never changes the other, updates go through update/upsert
+public interface EntityStore<T extends Versioned> {
+    
+    long ANY_VERSION = -1;
+    
+    T get(String id);
+    
+    List<T> values();
+    
+    // Weakly consistent; suitable for streaming large stores without copying them up front
+    Iterator<T> iterator();
+    
+    int size();
+    
+    // Inserts a new entity at version 1; CONFLICT with the stored entity if the id is already taken
+    UpdateResult<T> insert(String id, T entity);
+    
+    // Inserts at version 1 or replaces the stored entity with the next version; previous is null for an insert
+    UpdateResult<T> upsert(String id, T entity);
+    
+    // The updater gets its own copy of the current snapshot and returns the next one; it may run more than once
+    UpdateResult<T> update(String id, long expectedVersion, UnaryOperator<T> updater);
+    
+    UpdateResult<T> remove(String id, long expectedVersion);
+}
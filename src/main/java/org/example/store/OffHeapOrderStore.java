@@ -0,0 +1,393 @@
+package org.example.store;
+
+import io.vertx.core.json.JsonObject;
+import org.example.model.Order;
+import org.example.store.VersionedStore.UpdateResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+// Keeps orders as compact binary records in direct memory instead of object graphs on the heap.
+// Records are appended to fixed-size segments; an update appends a new record and the old one
+// becomes garbage, reclaimed by compacting into fresh segments once garbage outweighs live data.
+// The index is open addressing over two primitive arrays (record address and key hash), so the heap
+// holds no per-order objects for the GC to trace. Orders are decoded only when read.
+public class OffHeapOrderStore implements EntityStore<Order> {
+    
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES;
+    private static final long EMPTY = -1L;
+    private static final long TOMBSTONE = -2L;
+    private static final double MAX_LOAD = 0.6;
+    
+    private final int segmentBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writers hold the write lock, so one encoder (and its scratch buffer) is enough
+    private final OrderBinaryCodec encoder = OrderBinaryCodec.newEncoder();
+    
+    private List<ByteBuffer> segments = new ArrayList<>();
+    private int writeOffset;
+    private long[] addresses;
+    private int[] hashes;
+    private int size;
+    private int tombstones;
+    private long liveBytes;
+    private long garbageBytes;
+    private long compactions;
+    
+    public OffHeapOrderStore() {
+        this(Integer.getInteger("orders.offheap.segment-mb", 16) * 1024 * 1024,
+             Integer.getInteger("orders.offheap.initial-capacity", 1024));
+    }
+    
+    public OffHeapOrderStore(int segmentBytes, int initialCapacity) {
+        this.segmentBytes = segmentBytes;
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (initialCapacity / MAX_LOAD)) - 1) << 1;
+        this.addresses = newAddressTable(capacity);
+        this.hashes = new int[capacity];
+        this.writeOffset = segmentBytes;
+    }
+    
+    @Override
+    public Order get(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(key, hash(id));
+            return slot < 0 ? null : decode(addresses[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Order> values() {
+        lock.readLock().lock();
+        try {
+            List<Order> orders = new ArrayList<>(size);
+            for (long address : addresses) {
+                if (address >= 0) {
+                    orders.add(decode(address));
+                }
+            }
+            return orders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Decodes one order ahead under a short read lock. An index resize during iteration moves entries
+    // between slots, so with a concurrent writer entries may be skipped or repeated.
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private int slot = -1;
+            private Order nextOrder = fetch();
+            
+            private Order fetch() {
+                lock.readLock().lock();
+                try {
+                    long[] table = addresses;
+                    for (slot++; slot < table.length; slot++) {
+                        if (table[slot] >= 0) {
+                            return decode(table[slot]);
+                        }
+                    }
+                    return null;
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return nextOrder != null;
+            }
+            
+            @Override
+            public Order next() {
+                Order order = nextOrder;
+                if (order == null) {
+                    throw new NoSuchElementException();
+                }
+                nextOrder = fetch();
+                return order;
+            }
+        };
+    }
+    
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public UpdateResult<Order> insert(String id, Order entity) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash);
+            if (slot >= 0) {
+                return UpdateResult.conflict(decode(addresses[slot]));
+            }
+            Order stored = withId(new Order(entity), id);
+            stored.setVersion(1);
+            put(hash, append(stored));
+            return UpdateResult.updated(null, stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public UpdateResult<Order> upsert(String id, Order entity) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash);
+            Order stored = withId(new Order(entity), id);
+            if (slot < 0) {
+                stored.setVersion(1);
+                put(hash, append(stored));
+                return UpdateResult.updated(null, stored);
+            }
+            Order current = decode(addresses[slot]);
+            stored.setVersion(current.getVersion() + 1);
+            replace(slot, append(stored));
+            return UpdateResult.updated(current, stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public UpdateResult<Order> update(String id, long expectedVersion, UnaryOperator<Order> updater) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash);
+            if (slot < 0) {
+                return UpdateResult.notFound();
+            }
+            Order current = decode(addresses[slot]);
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(current);
+            }
+            // The updater gets its own decoded copy, so it can change neither current (returned as previous) nor next
+            Order next = withId(new Order(updater.apply(decode(addresses[slot]))), id);
+            next.setVersion(current.getVersion() + 1);
+            replace(slot, append(next));
+            return UpdateResult.updated(current, next);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public UpdateResult<Order> remove(String id, long expectedVersion) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash(id));
+            if (slot < 0) {
+                return UpdateResult.notFound();
+            }
+            Order current = decode(addresses[slot]);
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(current);
+            }
+            long bytes = recordBytes(addresses[slot]);
+            liveBytes -= bytes;
+            garbageBytes += bytes;
+            addresses[slot] = TOMBSTONE;
+            size--;
+            tombstones++;
+            compactIfNeeded();
+            return UpdateResult.updated(current, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public JsonObject toJson() {
+        lock.readLock().lock();
+        try {
+            return new JsonObject()
+                .put("entries", size)
+                .put("segments", segments.size())
+                .put("segmentBytes", segmentBytes)
+                .put("offHeapBytesReserved", (long) segments.size() * segmentBytes)
+                .put("liveBytes", liveBytes)
+                .put("garbageBytes", garbageBytes)
+                .put("indexCapacity", addresses.length)
+                .put("indexHeapBytes", (long) addresses.length * (Long.BYTES + Integer.BYTES))
+                .put("compactions", compactions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static Order withId(Order order, String id) {
+        if (!id.equals(order.getId())) {
+            order.setId(id);
+        }
+        return order;
+    }
+    
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    private static long[] newAddressTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+    
+    private static long address(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+    
+    private ByteBuffer segmentOf(long address) {
+        return segments.get((int) (address >>> 32));
+    }
+    
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+    
+    private Order decode(long address) {
+        return OrderBinaryCodec.decode(segmentOf(address), offsetOf(address) + RECORD_HEADER_BYTES);
+    }
+    
+    private long recordBytes(long address) {
+        return RECORD_HEADER_BYTES + segmentOf(address).getInt(offsetOf(address));
+    }
+    
+    private int findSlot(byte[] key, int hash) {
+        int mask = addresses.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long address = addresses[i];
+            if (address == EMPTY) {
+                return -1;
+            }
+            if (address != TOMBSTONE && hashes[i] == hash
+                && OrderBinaryCodec.idEquals(segmentOf(address), offsetOf(address) + RECORD_HEADER_BYTES, key)) {
+                return i;
+            }
+        }
+    }
+    
+    // Caller has checked the key is absent
+    private void put(int hash, long address) {
+        if (size + tombstones + 1 > addresses.length * MAX_LOAD) {
+            // Grow only when live entries need it; otherwise rehashing at the same size clears tombstones
+            rehash(size + 1 > addresses.length * MAX_LOAD / 2 ? addresses.length * 2 : addresses.length);
+        }
+        int mask = addresses.length - 1;
+        int i = hash & mask;
+        while (addresses[i] >= 0) {
+            i = (i + 1) & mask;
+        }
+        if (addresses[i] == TOMBSTONE) {
+            tombstones--;
+        }
+        addresses[i] = address;
+        hashes[i] = hash;
+        size++;
+    }
+    
+    private void replace(int slot, long address) {
+        long bytes = recordBytes(addresses[slot]);
+        liveBytes -= bytes;
+        garbageBytes += bytes;
+        addresses[slot] = address;
+        compactIfNeeded();
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldAddresses = addresses;
+        int[] oldHashes = hashes;
+        addresses = newAddressTable(capacity);
+        hashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldAddresses.length; j++) {
+            if (oldAddresses[j] >= 0) {
+                int i = oldHashes[j] & mask;
+                while (addresses[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                addresses[i] = oldAddresses[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+        tombstones = 0;
+    }
+    
+    private long append(Order order) {
+        ByteBuffer record = encoder.encode(order);
+        int length = record.remaining();
+        int total = RECORD_HEADER_BYTES + length;
+        if (total > segmentBytes) {
+            throw new IllegalArgumentException("Order " + order.getId() + " needs " + total
+                + " bytes, more than the segment size " + segmentBytes);
+        }
+        long address = allocate(total);
+        ByteBuffer segment = segmentOf(address);
+        int offset = offsetOf(address);
+        segment.putInt(offset, length);
+        segment.put(offset + RECORD_HEADER_BYTES, record, 0, length);
+        liveBytes += total;
+        return address;
+    }
+    
+    private long allocate(int bytes) {
+        if (writeOffset + bytes > segmentBytes) {
+            segments.add(ByteBuffer.allocateDirect(segmentBytes));
+            writeOffset = 0;
+        }
+        long address = address(segments.size() - 1, writeOffset);
+        writeOffset += bytes;
+        return address;
+    }
+    
+    // Copies live records into fresh segments; the old direct buffers are freed once unreachable
+    private void compactIfNeeded() {
+        if (garbageBytes < segmentBytes || garbageBytes < liveBytes) {
+            return;
+        }
+        List<ByteBuffer> oldSegments = segments;
+        segments = new ArrayList<>();
+        writeOffset = segmentBytes;
+        liveBytes = 0;
+        for (int i = 0; i < addresses.length; i++) {
+            long address = addresses[i];
+            if (address >= 0) {
+                ByteBuffer source = oldSegments.get((int) (address >>> 32));
+                int offset = offsetOf(address);
+                int total = RECORD_HEADER_BYTES + source.getInt(offset);
+                long moved = allocate(total);
+                segmentOf(moved).put(offsetOf(moved), source, offset, total);
+                addresses[i] = moved;
+                liveBytes += total;
+            }
+        }
+        garbageBytes = 0;
+        compactions++;
+    }
+}
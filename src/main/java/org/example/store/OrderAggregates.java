@@ -0,0 +1,139 @@
+package org.example.store;
+
+import io.vertx.core.json.JsonObject;
+import org.example.model.Order;
+import org.example.model.Order.OrderStatus;
+import org.example.store.VersionedStore.UpdateResult;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Order counts and revenue per status and per customer, kept current by applying each store write as a
+// delta (remove the previous version, add the new one) to striped counters. Revenue is summed in minor
+// units, so reading the stats costs the same at any order volume. Each store write yields exactly one
+// previous/current pair, so the deltas add up to the stored state once writers are quiet; a read that
+// races a write may see one half of that write.
+public class OrderAggregates {
+    
+    public static final int MINOR_UNIT_SCALE = 2;
+    
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    // Orders saved without a status are counted in an extra slot after the real ones
+    private static final int UNSET_STATUS = STATUSES.length;
+    
+    private final Totals all = new Totals();
+    private final Totals[] byStatus = new Totals[STATUSES.length + 1];
+    private final ConcurrentHashMap<String, Totals> byCustomer = new ConcurrentHashMap<>();
+    
+    public OrderAggregates() {
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new Totals();
+        }
+    }
+    
+    // Either side may be null: null previous for an insert, null current for a delete
+    public void apply(Order previous, Order current) {
+        if (previous != null) {
+            add(previous, -1);
+        }
+        if (current != null) {
+            add(current, 1);
+        }
+    }
+    
+    public void apply(UpdateResult<Order> result) {
+        if (result.getStatus() == UpdateResult.Status.UPDATED) {
+            apply(result.getPrevious(), result.getCurrent());
+        }
+    }
+    
+    private void add(Order order, int sign) {
+        long amount = sign * toMinorUnits(order.getTotalAmount());
+        all.add(sign, amount);
+        byStatus[order.getStatus() == null ? UNSET_STATUS : order.getStatus().ordinal()].add(sign, amount);
+        if (order.getCustomerId() != null) {
+            // Under the map's per-key lock, so a customer back at zero can be dropped without losing a
+            // concurrent delta. Both counters must be zero: out-of-order halves of two writes can leave
+            // no orders but some revenue until the other halves land.
+            byCustomer.compute(order.getCustomerId(), (key, totals) -> {
+                Totals next = totals == null ? new Totals() : totals;
+                next.add(sign, amount);
+                return next.isZero() ? null : next;
+            });
+        }
+    }
+    
+    // Rounded per order; amounts beyond the long range of minor units are not supported
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(MINOR_UNIT_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+    
+    public long orders() {
+        return all.orders.sum();
+    }
+    
+    public long revenueMinorUnits() {
+        return all.revenue.sum();
+    }
+    
+    public long orders(OrderStatus status) {
+        return byStatus[status.ordinal()].orders.sum();
+    }
+    
+    public long revenueMinorUnits(OrderStatus status) {
+        return byStatus[status.ordinal()].revenue.sum();
+    }
+    
+    public long orders(String customerId) {
+        Totals totals = byCustomer.get(customerId);
+        return totals == null ? 0 : totals.orders.sum();
+    }
+    
+    public long revenueMinorUnits(String customerId) {
+        Totals totals = byCustomer.get(customerId);
+        return totals == null ? 0 : totals.revenue.sum();
+    }
+    
+    public JsonObject toJson() {
+        JsonObject statuses = new JsonObject();
+        for (int i = 0; i < byStatus.length; i++) {
+            if (i < STATUSES.length || byStatus[i].orders.sum() != 0) {
+                statuses.put(i < STATUSES.length ? STATUSES[i].name() : "UNSET", byStatus[i].toJson());
+            }
+        }
+        return all.toJson()
+            .put("byStatus", statuses)
+            .put("customers", byCustomer.size());
+    }
+    
+    public JsonObject customerJson(String customerId) {
+        Totals totals = byCustomer.get(customerId);
+        return (totals == null ? new Totals() : totals).toJson().put("customerId", customerId);
+    }
+    
+    private static final class Totals {
+        
+        final LongAdder orders = new LongAdder();
+        final LongAdder revenue = new LongAdder();
+        
+        void add(int count, long amount) {
+            orders.add(count);
+            revenue.add(amount);
+        }
+        
+        boolean isZero() {
+            return orders.sum() == 0 && revenue.sum() == 0;
+        }
+        
+        JsonObject toJson() {
+            return new JsonObject()
+                .put("orders", orders.sum())
+                .put("revenue", BigDecimal.valueOf(revenue.sum(), MINOR_UNIT_SCALE));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.store;
+
+import org.example.model.Order;
+import org.example.model.Order.OrderItem;
+import org.example.model.Order.OrderStatus;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact binary layout for an order. The id comes first so the index can compare keys in place:
+//   int idLength, id bytes, long version, string customerId, byte status, decimal totalAmount,
+//   dateTime createdAt, dateTime updatedAt, int itemCount,
+//   itemCount x (string productId, string productName, int quantity, decimal unitPrice)
+// Strings are int length (-1 for null) + UTF-8. Decimals are a tag byte, then int scale and either a
+// long unscaled value or length-prefixed bytes. Date-times are a long epoch second + int nano (UTC),
+// with Long.MIN_VALUE for null.
+final class OrderBinaryCodec {
+    
+    private static final byte DECIMAL_NULL = 0;
+    private static final byte DECIMAL_LONG = 1;
+    private static final byte DECIMAL_BIG = 2;
+    private static final byte STATUS_NULL = -1;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    
+    private OrderBinaryCodec() {
+    }
+    
+    // Each writer thread needs its own instance; decoding is static and safe for concurrent readers
+    static OrderBinaryCodec newEncoder() {
+        return new OrderBinaryCodec();
+    }
+    
+    // Returns a heap buffer flipped for reading; valid until the next call
+    ByteBuffer encode(Order order) {
+        scratch.clear();
+        writeBytes(order.getId().getBytes(StandardCharsets.UTF_8));
+        ensure(Long.BYTES).putLong(order.getVersion());
+        writeString(order.getCustomerId());
+        ensure(1).put(order.getStatus() == null ? STATUS_NULL : (byte) order.getStatus().ordinal());
+        writeDecimal(order.getTotalAmount());
+        writeDateTime(order.getCreatedAt());
+        writeDateTime(order.getUpdatedAt());
+        
+        List<OrderItem> items = order.getItems();
+        ensure(Integer.BYTES).putInt(items == null ? -1 : items.size());
+        if (items != null) {
+            for (OrderItem item : items) {
+                writeString(item.getProductId());
+                writeString(item.getProductName());
+                ensure(Integer.BYTES).putInt(item.getQuantity());
+                writeDecimal(item.getUnitPrice());
+            }
+        }
+        return scratch.flip();
+    }
+    
+    static Order decode(ByteBuffer buffer, int offset) {
+        Reader reader = new Reader(buffer, offset);
+        Order order = new Order();
+        order.setId(reader.readString());
+        order.setVersion(reader.readLong());
+        order.setCustomerId(reader.readString());
+        byte status = reader.readByte();
+        // setStatus stamps updatedAt, so it goes before the stored timestamps are applied
+        order.setStatus(status == STATUS_NULL ? null : STATUSES[status]);
+        order.setTotalAmount(reader.readDecimal());
+        order.setCreatedAt(reader.readDateTime());
+        order.setUpdatedAt(reader.readDateTime());
+        
+        int itemCount = reader.readInt();
+        if (itemCount >= 0) {
+            List<OrderItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                String productId = reader.readString();
+                String productName = reader.readString();
+                int quantity = reader.readInt();
+                BigDecimal unitPrice = reader.readDecimal();
+                items.add(new OrderItem(productId, productName, quantity, unitPrice));
+            }
+            order.setItems(List.copyOf(items));
+        }
+        return order;
+    }
+    
+    // Compares the stored id with the given UTF-8 bytes without decoding the record
+    static boolean idEquals(ByteBuffer buffer, int offset, byte[] id) {
+        if (buffer.getInt(offset) != id.length) {
+            return false;
+        }
+        int start = offset + Integer.BYTES;
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(start + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private ByteBuffer ensure(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            larger.put(scratch.flip());
+            scratch = larger;
+        }
+        return scratch;
+    }
+    
+    private void writeBytes(byte[] bytes) {
+        ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+    }
+    
+    private void writeString(String value) {
+        if (value == null) {
+            ensure(Integer.BYTES).putInt(-1);
+        } else {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private void writeDecimal(BigDecimal value) {
+        if (value == null) {
+            ensure(1).put(DECIMAL_NULL);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            ensure(1 + Integer.BYTES + Long.BYTES).put(DECIMAL_LONG).putInt(value.scale()).putLong(unscaled.longValue());
+        } else {
+            ensure(1 + Integer.BYTES).put(DECIMAL_BIG).putInt(value.scale());
+            writeBytes(unscaled.toByteArray());
+        }
+    }
+    
+    private void writeDateTime(LocalDateTime value) {
+        if (value == null) {
+            ensure(Long.BYTES).putLong(Long.MIN_VALUE);
+        } else {
+            ensure(Long.BYTES + Integer.BYTES).putLong(value.toEpochSecond(ZoneOffset.UTC)).putInt(value.getNano());
+        }
+    }
+    
+    // Absolute reads only, so any number of threads can decode from the same segment
+    private static final class Reader {
+        
+        private final ByteBuffer buffer;
+        private int position;
+        
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+        
+        byte readByte() {
+            return buffer.get(position++);
+        }
+        
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+        
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+        
+        byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return bytes;
+        }
+        
+        String readString() {
+            int length = readInt();
+            return length < 0 ? null : new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+        
+        BigDecimal readDecimal() {
+            byte tag = readByte();
+            if (tag == DECIMAL_NULL) {
+                return null;
+            }
+            int scale = readInt();
+            if (tag == DECIMAL_LONG) {
+                return BigDecimal.valueOf(readLong(), scale);
+            }
+            return new BigDecimal(new BigInteger(readBytes(readInt())), scale);
+        }
+        
+        LocalDateTime readDateTime() {
+            long seconds = readLong();
+            if (seconds == Long.MIN_VALUE) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(seconds, readInt(), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.store;
+
+import io.vertx.core.json.JsonObject;
+import org.example.model.Order.OrderItem;
+import org.example.model.Product;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Flyweight registry of products: order items point at one shared Product per (id, name) instead of
+// carrying their own copies of the strings parsed from each request
+public class ProductCatalog {
+    
+    private static volatile ProductCatalog shared;
+    
+    private final int maxProducts;
+    // Keyed by product id; the same id under a different name (a rename) goes to the variants map
+    private final ConcurrentHashMap<String, Product> products = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Product, Product> variants = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public ProductCatalog(int maxProducts) {
+        this.maxProducts = maxProducts;
+    }
+    
+    public static ProductCatalog shared() {
+        ProductCatalog instance = shared;
+        if (instance == null) {
+            synchronized (ProductCatalog.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new ProductCatalog(Integer.getInteger("catalog.max-products", 100_000));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    public Product canonical(Product product) {
+        String productId = product.getProductId();
+        if (productId == null) {
+            return product;
+        }
+        Product existing = products.get(productId);
+        if (existing == null && size() < maxProducts) {
+            existing = products.putIfAbsent(productId, product);
+            if (existing == null) {
+                misses.increment();
+                return product;
+            }
+        }
+        if (existing != null && existing.matches(productId, product.getProductName())) {
+            hits.increment();
+            return existing;
+        }
+        
+        Product variant = variants.get(product);
+        if (variant == null) {
+            if (size() >= maxProducts) {
+                // Full: keep the item's own copy rather than let arbitrary input grow the catalog
+                misses.increment();
+                return product;
+            }
+            variant = variants.putIfAbsent(product, product);
+            if (variant == null) {
+                misses.increment();
+                return product;
+            }
+        }
+        hits.increment();
+        return variant;
+    }
+    
+    // Points each item at the shared product entry; returns an immutable list ready to be stored
+    public List<OrderItem> canonicalize(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            item.setProduct(canonical(item.getProduct()));
+        }
+        return List.copyOf(items);
+    }
+    
+    public int size() {
+        return products.size() + variants.size();
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("products", products.size())
+            .put("variants", variants.size())
+            .put("maxProducts", maxProducts)
+            .put("hits", hits.sum())
+            .put("misses", misses.sum());
+    }
+}
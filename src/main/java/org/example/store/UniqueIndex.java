@@ -0,0 +1,38 @@
+package org.example.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+// Maps a normalized key (e.g. an email address) to the id of the single entity allowed to hold it
+public class UniqueIndex {
+    
+    private final ConcurrentHashMap<String, String> owners = new ConcurrentHashMap<>();
+    private final UnaryOperator<String> normalizer;
+    
+    public UniqueIndex(UnaryOperator<String> normalizer) {
+        this.normalizer = normalizer;
+    }
+    
+    // Returns null if the key was free and now belongs to owner, otherwise the current holder (which may be owner)
+    public String claim(String key, String owner) {
+        return owners.putIfAbsent(normalizer.apply(key), owner);
+    }
+    
+    public void release(String key, String owner) {
+        if (key != null) {
+            owners.remove(normalizer.apply(key), owner);
+        }
+    }
+    
+    public boolean sameKey(String first, String second) {
+        return first != null && second != null && normalizer.apply(first).equals(normalizer.apply(second));
+    }
+    
+    public String ownerOf(String key) {
+        return owners.get(normalizer.apply(key));
+    }
+    
+    public int size() {
+        return owners.size();
+    }
+}
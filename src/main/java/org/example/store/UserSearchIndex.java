@@ -0,0 +1,297 @@
+package org.example.store;
+
+import io.vertx.core.json.JsonObject;
+import org.example.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+// Substring and prefix search over user name and email. Queries of three or more characters intersect
+// the posting lists of their trigrams; shorter ones walk the sorted word map by prefix. Postings are
+// sorted int arrays of per-user document numbers rather than sets of ids, which keeps millions of users
+// affordable. Candidates are always checked against the indexed text, so stale postings never surface.
+public class UserSearchIndex {
+    
+    private static final int GRAM_LENGTH = 3;
+    private static final int LOCK_STRIPES = 64;
+    private static final int CANDIDATE_CHUNK = 512;
+    
+    // Reads the current state from the store, so refreshes applied out of order still converge
+    private final Function<String, User> lookup;
+    private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PostingList> grams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, PostingList> words = new ConcurrentSkipListMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Written under the instance lock, read without it: a search that misses a brand new slot just skips it
+    private volatile Document[] byNumber = new Document[1024];
+    private int nextNumber;
+    
+    public UserSearchIndex(Function<String, User> lookup) {
+        this.lookup = lookup;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    // Call after any write to the user; re-reads it and indexes the difference
+    public void refresh(String userId) {
+        synchronized (locks[(userId.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            User user = lookup.apply(userId);
+            String text = user == null ? null : text(user);
+            Document document = documents.get(userId);
+            if (document == null) {
+                if (text == null) {
+                    return;
+                }
+                document = newDocument(userId);
+            }
+            String previous = document.text;
+            if (text != null && text.equals(previous)) {
+                return;
+            }
+            
+            Set<String> oldGrams = grams(previous);
+            Set<String> newGrams = grams(text);
+            Set<String> oldWords = words(previous);
+            Set<String> newWords = words(text);
+            // Add before removing so a concurrent search sees the union, never a gap
+            document.text = text;
+            for (String gram : newGrams) {
+                if (!oldGrams.contains(gram)) {
+                    grams.computeIfAbsent(gram, key -> new PostingList()).add(document.number);
+                }
+            }
+            for (String word : newWords) {
+                if (!oldWords.contains(word)) {
+                    words.computeIfAbsent(word, key -> new PostingList()).add(document.number);
+                }
+            }
+            for (String gram : oldGrams) {
+                if (!newGrams.contains(gram)) {
+                    grams.get(gram).remove(document.number);
+                }
+            }
+            for (String word : oldWords) {
+                if (!newWords.contains(word)) {
+                    words.get(word).remove(document.number);
+                }
+            }
+            if (text == null) {
+                documents.remove(userId);
+                release(document);
+            }
+        }
+    }
+    
+    // Returns the ids of up to limit matching users, oldest first for substring queries
+    public List<String> search(String query, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty() || limit <= 0 || needle.indexOf('\n') >= 0) {
+            return List.of();
+        }
+        return needle.length() < GRAM_LENGTH ? searchPrefix(needle, limit) : searchSubstring(needle, limit);
+    }
+    
+    private List<String> searchSubstring(String needle, int limit) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            PostingList list = grams.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        // Walk the rarest gram in chunks, narrowing each with the others, until enough users match;
+        // a common query stops after a few chunks instead of intersecting whole lists
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        List<String> ids = new ArrayList<>(limit);
+        int[] candidates = new int[CANDIDATE_CHUNK];
+        int after = -1;
+        int copied;
+        while (ids.size() < limit && (copied = lists.get(0).copyAfter(after, candidates)) > 0) {
+            after = candidates[copied - 1];
+            int count = copied;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = lists.get(i).retainAll(candidates, count);
+            }
+            for (int i = 0; i < count && ids.size() < limit; i++) {
+                Document document = document(candidates[i]);
+                String text = document == null ? null : document.text;
+                if (text != null && text.contains(needle)) {
+                    ids.add(document.userId);
+                }
+            }
+        }
+        return ids;
+    }
+    
+    private List<String> searchPrefix(String needle, int limit) {
+        Set<String> ids = new LinkedHashSet<>();
+        int[] candidates = new int[CANDIDATE_CHUNK];
+        for (Map.Entry<String, PostingList> entry : words.subMap(needle, needle + Character.MAX_VALUE).entrySet()) {
+            int after = -1;
+            int copied;
+            while ((copied = entry.getValue().copyAfter(after, candidates)) > 0) {
+                after = candidates[copied - 1];
+                for (int i = 0; i < copied; i++) {
+                    Document document = document(candidates[i]);
+                    String text = document == null ? null : document.text;
+                    if (text != null && words(text).contains(entry.getKey())) {
+                        ids.add(document.userId);
+                        if (ids.size() >= limit) {
+                            return new ArrayList<>(ids);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+    
+    public int size() {
+        return documents.size();
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("documents", documents.size())
+            .put("grams", grams.size())
+            .put("words", words.size());
+    }
+    
+    private synchronized Document newDocument(String userId) {
+        if (nextNumber == byNumber.length) {
+            byNumber = Arrays.copyOf(byNumber, byNumber.length * 2);
+        }
+        Document document = new Document(nextNumber++, userId);
+        byNumber[document.number] = document;
+        documents.put(userId, document);
+        return document;
+    }
+    
+    // Numbers are not reused, so a posting left behind by a racing search can never name another user
+    private synchronized void release(Document document) {
+        byNumber[document.number] = null;
+    }
+    
+    private Document document(int number) {
+        Document[] table = byNumber;
+        return number < table.length ? table[number] : null;
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    // Fields are joined by a newline and queries containing one are refused, so matches never span them
+    private static String text(User user) {
+        return normalize(user.getName()) + '\n' + normalize(user.getEmail());
+    }
+    
+    private static Set<String> grams(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            String gram = text.substring(i, i + GRAM_LENGTH);
+            if (gram.indexOf('\n') < 0) {
+                result.add(gram);
+            }
+        }
+        return result;
+    }
+    
+    private static Set<String> words(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+    
+    private static final class Document {
+        
+        final int number;
+        final String userId;
+        volatile String text;
+        
+        Document(int number, String userId) {
+            this.number = number;
+            this.userId = userId;
+        }
+    }
+    
+    // Sorted document numbers. New users get increasing numbers, so adds are almost always appends.
+    private static final class PostingList {
+        
+        private int[] numbers = new int[4];
+        private int size;
+        
+        synchronized void add(int number) {
+            int index = size > 0 && numbers[size - 1] < number ? size : Arrays.binarySearch(numbers, 0, size, number);
+            if (index < 0) {
+                index = -index - 1;
+            } else if (index < size) {
+                return;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            System.arraycopy(numbers, index, numbers, index + 1, size - index);
+            numbers[index] = number;
+            size++;
+        }
+        
+        synchronized void remove(int number) {
+            int index = Arrays.binarySearch(numbers, 0, size, number);
+            if (index >= 0) {
+                System.arraycopy(numbers, index + 1, numbers, index, size - index - 1);
+                size--;
+            }
+        }
+        
+        synchronized int size() {
+            return size;
+        }
+        
+        // Copies the numbers greater than after into the array; returns how many were copied
+        synchronized int copyAfter(int after, int[] into) {
+            int from = Arrays.binarySearch(numbers, 0, size, after);
+            from = from < 0 ? -from - 1 : from + 1;
+            int count = Math.min(into.length, size - from);
+            System.arraycopy(numbers, from, into, 0, count);
+            return count;
+        }
+        
+        // Compacts the first count candidates down to those also in this list; returns the new count
+        synchronized int retainAll(int[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                int index = Arrays.binarySearch(numbers, from, size, candidates[i]);
+                if (index >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
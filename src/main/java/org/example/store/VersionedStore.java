@@ -0,0 +1,162 @@
+package org.example.store;
+
+import org.example.model.Versioned;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+public class VersionedStore<T extends Versioned> implements EntityStore<T> {
+    
+    // Values are snapshots compared by identity (the models don't override equals), so
+    // ConcurrentHashMap.replace(key, old, new) acts as a compare-and-swap on the entity. The models are mutable, so
+    // no stored instance ever leaves the store: entities are deep-copied on the way in and on the way out.
+    private final ConcurrentHashMap<String, T> entities = new ConcurrentHashMap<>();
+    private final UnaryOperator<T> copier;
+    
+    public VersionedStore(UnaryOperator<T> copier) {
+        this.copier = copier;
+    }
+    
+    @Override
+    public T get(String id) {
+        return copyOf(entities.get(id));
+    }
+    
+    @Override
+    public List<T> values() {
+        List<T> values = new ArrayList<>(entities.size());
+        for (T entity : entities.values()) {
+            values.add(copier.apply(entity));
+        }
+        return values;
+    }
+    
+    // Weakly consistent view for streaming: each entity is copied as it is reached, concurrent changes may or may
+    // not be seen
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> stored = entities.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return stored.hasNext();
+            }
+            
+            @Override
+            public T next() {
+                return copier.apply(stored.next());
+            }
+        };
+    }
+    
+    @Override
+    public int size() {
+        return entities.size();
+    }
+    
+    @Override
+    public UpdateResult<T> insert(String id, T entity) {
+        T stored = copier.apply(entity);
+        stored.setVersion(1);
+        T existing = entities.putIfAbsent(id, stored);
+        return existing == null ? updated(null, stored) : UpdateResult.conflict(copier.apply(existing));
+    }
+    
+    @Override
+    public UpdateResult<T> upsert(String id, T entity) {
+        T stored = copier.apply(entity);
+        while (true) {
+            T current = entities.get(id);
+            if (current == null) {
+                stored.setVersion(1);
+                if (entities.putIfAbsent(id, stored) == null) {
+                    return updated(null, stored);
+                }
+            } else {
+                stored.setVersion(current.getVersion() + 1);
+                if (entities.replace(id, current, stored)) {
+                    return updated(current, stored);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public UpdateResult<T> update(String id, long expectedVersion, UnaryOperator<T> updater) {
+        while (true) {
+            T current = entities.get(id);
+            if (current == null) {
+                return UpdateResult.notFound();
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(copier.apply(current));
+            }
+            
+            // The updater works on its own copy and keeps no reference to what is stored
+            T next = copier.apply(updater.apply(copier.apply(current)));
+            next.setVersion(current.getVersion() + 1);
+            if (entities.replace(id, current, next)) {
+                return updated(current, next);
+            }
+        }
+    }
+    
+    @Override
+    public UpdateResult<T> remove(String id, long expectedVersion) {
+        while (true) {
+            T current = entities.get(id);
+            if (current == null) {
+                return UpdateResult.notFound();
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(copier.apply(current));
+            }
+            if (entities.remove(id, current)) {
+                return UpdateResult.updated(copier.apply(current), null);
+            }
+        }
+    }
+    
+    private UpdateResult<T> updated(T previous, T current) {
+        return UpdateResult.updated(copyOf(previous), copier.apply(current));
+    }
+    
+    private T copyOf(T entity) {
+        return entity == null ? null : copier.apply(entity);
+    }
+    
+    public static final class UpdateResult<T> {
+        
+        public enum Status { UPDATED, NOT_FOUND, CONFLICT }
+        
+        private final Status status;
+        private final T previous;
+        private final T current;
+        
+        private UpdateResult(Status status, T previous, T current) {
+            this.status = status;
+            this.previous = previous;
+            this.current = current;
+        }
+        
+        static <T> UpdateResult<T> updated(T previous, T current) {
+            return new UpdateResult<>(Status.UPDATED, previous, current);
+        }
+        
+        static <T> UpdateResult<T> notFound() {
+            return new UpdateResult<>(Status.NOT_FOUND, null, null);
+        }
+        
+        static <T> UpdateResult<T> conflict(T current) {
+            return new UpdateResult<>(Status.CONFLICT, null, current);
+        }
+        
+        public Status getStatus() { return status; }
+        public T getPrevious() { return previous; }
+        // The new snapshot for UPDATED, the snapshot that did not match for CONFLICT, null otherwise
+        public T getCurrent() { return current; }
+    }
+}
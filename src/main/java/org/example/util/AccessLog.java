@@ -0,0 +1,325 @@
+package org.example.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class AccessLog {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+    
+    private static final String FILE_PROPERTY = "access.log.file";
+    private static final String ENABLED_PROPERTY = "access.log.enabled";
+    private static final String CAPACITY_PROPERTY = "access.log.buffer-size";
+    private static final String MAX_BYTES_PROPERTY = "access.log.max-bytes";
+    private static final String MAX_FILES_PROPERTY = "access.log.max-files";
+    private static final String SAMPLE_RATE_PROPERTY = "access.log.info-sample-rate";
+    
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = 10_000_000L; // 10 ms
+    
+    private static volatile AccessLog shared;
+    
+    private final boolean enabled;
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final double infoSampleRate;
+    
+    // Ring buffer slots stored as parallel arrays so producers only copy primitives and references
+    private final int mask;
+    private final AtomicLongArray published;
+    private final long[] timestamps;
+    private final long[] durations;
+    private final long[] bytesSent;
+    private final int[] statuses;
+    private final String[] methods;
+    private final String[] paths;
+    
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private final LongAdder dropped = new LongAdder();
+    
+    private final StringBuilder line = new StringBuilder(256);
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private Writer writer;
+    // Encoded bytes in the current file, counted as they reach it (see CountingOutputStream)
+    private long currentBytes;
+    
+    public AccessLog(boolean enabled, Path file, int capacity, long maxBytes, int maxFiles, double infoSampleRate) {
+        this(enabled, file, capacity, maxBytes, maxFiles, infoSampleRate, true);
+    }
+    
+    // Tests leave the flusher stopped to fill the buffer deterministically, then call start()
+    AccessLog(boolean enabled, Path file, int capacity, long maxBytes, int maxFiles, double infoSampleRate,
+              boolean startFlusher) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.enabled = enabled;
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.infoSampleRate = infoSampleRate;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.timestamps = new long[size];
+        this.durations = new long[size];
+        this.bytesSent = new long[size];
+        this.statuses = new int[size];
+        this.methods = new String[size];
+        this.paths = new String[size];
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+        
+        this.flusher = new Thread(this::runFlusher, "access-log-flusher");
+        this.flusher.setDaemon(true);
+        if (startFlusher) {
+            start();
+        }
+    }
+    
+    void start() {
+        if (enabled) {
+            flusher.start();
+        }
+    }
+    
+    public static AccessLog shared() {
+        AccessLog instance = shared;
+        if (instance == null) {
+            synchronized (AccessLog.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = fromSystemProperties();
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static AccessLog fromSystemProperties() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+        Path file = Paths.get(System.getProperty(FILE_PROPERTY, "logs/access.log"));
+        int capacity = Integer.getInteger(CAPACITY_PROPERTY, 65536);
+        long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, 100L * 1024 * 1024);
+        int maxFiles = Integer.getInteger(MAX_FILES_PROPERTY, 5);
+        double sampleRate = Double.parseDouble(System.getProperty(SAMPLE_RATE_PROPERTY, "0.01"));
+        
+        logger.info("Access log: enabled={}, file={}, buffer={}, maxBytes={}, maxFiles={}, infoSampleRate={}",
+                   enabled, file, capacity, maxBytes, maxFiles, sampleRate);
+        return new AccessLog(enabled, file, capacity, maxBytes, maxFiles, sampleRate);
+    }
+    
+    // Called from the event loop once the response has been written; never blocks and drops on overflow
+    public boolean record(String method, String path, int status, long durationNanos, long bytes) {
+        if (!enabled) {
+            return false;
+        }
+        
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        
+        int index = (int) (seq & mask);
+        timestamps[index] = System.currentTimeMillis();
+        durations[index] = durationNanos;
+        bytesSent[index] = bytes;
+        statuses[index] = status;
+        methods[index] = method;
+        paths[index] = path;
+        published.lazySet(index, seq);
+        return true;
+    }
+    
+    // Per-request INFO messages are sampled so the synchronous logback appender stays off the hot path
+    public boolean shouldLogInfo() {
+        if (infoSampleRate >= 1.0) {
+            return true;
+        }
+        if (infoSampleRate <= 0.0) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextDouble() < infoSampleRate;
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    public long getPendingCount() {
+        return head.get() - tail;
+    }
+    
+    public void close() {
+        if (!enabled || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void runFlusher() {
+        try {
+            openWriter();
+            while (running) {
+                if (drainBatch() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            while (drainBatch() > 0) {
+                // Flush whatever is left after close()
+            }
+        } catch (IOException e) {
+            logger.error("Access log flusher stopped", e);
+        } finally {
+            closeWriter();
+        }
+    }
+    
+    private int drainBatch() throws IOException {
+        long next = tail;
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                break;
+            }
+            format(index);
+            methods[index] = null;
+            paths[index] = null;
+            next++;
+            count++;
+        }
+        
+        if (count > 0) {
+            tail = next;
+            writer.flush();
+            if (currentBytes >= maxBytes) {
+                roll();
+            }
+        }
+        return count;
+    }
+    
+    private void format(int index) throws IOException {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append("{\"ts\":").append(timestamps[index])
+          .append(",\"method\":\"").append(methods[index])
+          .append("\",\"path\":\"");
+        appendEscaped(sb, paths[index]);
+        sb.append("\",\"status\":").append(statuses[index])
+          .append(",\"durationUs\":").append(durations[index] / 1000)
+          .append(",\"bytes\":").append(bytesSent[index])
+          .append("}\n");
+        
+        writer.append(sb);
+    }
+    
+    private static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(' ');
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+    
+    private void openWriter() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        currentBytes = Files.exists(file) ? Files.size(file) : 0;
+        OutputStream out = new CountingOutputStream(
+            Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Error closing access log", e);
+            }
+        }
+    }
+    
+    private void roll() throws IOException {
+        writer.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = rolledFile(i);
+            if (Files.exists(source)) {
+                Files.move(source, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        openWriter();
+    }
+    
+    private Path rolledFile(int generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+    
+    // Rotation compares file sizes, so count UTF-8 bytes rather than chars: a non-ASCII path takes up to 3 bytes
+    // per char. The writer is flushed after every batch, before the size check.
+    private final class CountingOutputStream extends FilterOutputStream {
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            currentBytes++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            currentBytes += len;
+        }
+    }
+}
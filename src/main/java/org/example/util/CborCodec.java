@@ -0,0 +1,44 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// CBOR (RFC 8949) for clients that send "Accept: application/cbor" or a body with that Content-Type. Each mapper
+// gets a copy bound to Jackson's CBORFactory, so the model codecs, the Vert.x JSON types and every mapper setting
+// apply unchanged; only the wire format differs. BigDecimals are written as decimal fractions (tag 4), integers
+// and floating-point values in their shortest exact form. LocalDateTime stays an ISO text string: the CBOR date
+// tags need an offset, which the models do not carry.
+public final class CborCodec {
+    
+    public static final String CONTENT_TYPE = "application/cbor";
+    
+    private static final CBORFactory FACTORY = CBORFactory.builder()
+        .enable(CBORGenerator.Feature.WRITE_MINIMAL_INTS)
+        .enable(CBORGenerator.Feature.WRITE_MINIMAL_DOUBLES)
+        .build();
+    
+    // Keyed by identity; in practice only the process-wide JsonSupport mapper
+    private static final ConcurrentHashMap<ObjectMapper, ObjectMapper> MAPPERS = new ConcurrentHashMap<>();
+    
+    private CborCodec() {
+    }
+    
+    public static byte[] encode(ObjectMapper mapper, Object value) throws IOException {
+        return cborMapper(mapper).writeValueAsBytes(value);
+    }
+    
+    // One complete item per body: trailing bytes are rejected rather than ignored
+    public static <T> T decode(ObjectMapper mapper, byte[] bytes, Class<T> type) throws IOException {
+        return cborMapper(mapper).readValue(bytes, type);
+    }
+    
+    private static ObjectMapper cborMapper(ObjectMapper mapper) {
+        return MAPPERS.computeIfAbsent(mapper, json -> json.copyWith(FACTORY)
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS));
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+
+public class ComputeExecutor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ComputeExecutor.class);
+    
+    public static final String THREAD_PREFIX = "compute-pool-";
+    
+    private static volatile ComputeExecutor shared;
+    
+    private final ForkJoinPool pool;
+    // Compute routes are limited separately from the per-verticle worker pools: their RTT is CPU time on this pool
+    private final ConcurrencyLimiter limiter;
+    
+    public ComputeExecutor(int parallelism) {
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(THREAD_PREFIX + thread.getPoolIndex());
+            return thread;
+        };
+        this.pool = new ForkJoinPool(parallelism, factory, null, true);
+        this.limiter = ConcurrencyLimiter.fromSystemProperties("compute-pool", "compute.concurrency.limit", parallelism * 2);
+    }
+    
+    // CPU-bound work is sized to the cores, not to the I/O worker pools, and shared by every verticle
+    public static ComputeExecutor shared() {
+        ComputeExecutor instance = shared;
+        if (instance == null) {
+            synchronized (ComputeExecutor.class) {
+                instance = shared;
+                if (instance == null) {
+                    int parallelism = ThreadConfiguration.current().getComputeParallelism();
+                    logger.info("Compute executor parallelism: {}", parallelism);
+                    instance = new ComputeExecutor(parallelism);
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    // Runs the handler on the work-stealing pool; callbacks on the returned future run on the caller's context
+    public <T> Future<T> execute(Vertx vertx, Handler<Promise<T>> handler) {
+        Context context = vertx.getOrCreateContext();
+        Promise<T> promise = Promise.promise();
+        Promise<T> taskPromise = Promise.promise();
+        taskPromise.future().onComplete(result -> context.runOnContext(v -> promise.handle(result)));
+        
+        try {
+            pool.execute(() -> {
+                try {
+                    handler.handle(taskPromise);
+                } catch (Throwable t) {
+                    taskPromise.tryFail(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promise.fail(e);
+        }
+        return promise.future();
+    }
+    
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+    
+    public void close() {
+        pool.shutdown();
+    }
+}
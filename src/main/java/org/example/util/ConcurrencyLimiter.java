@@ -0,0 +1,184 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class ConcurrencyLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+    
+    private static final long WINDOW_NANOS = 100_000_000L; // 100 ms sampling window
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final long MIN_RTT_RESET_NANOS = 30_000_000_000L; // re-probe the no-load RTT every 30 s
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    
+    private final String name;
+    private final LongSupplier nanoTime;
+    private final int minLimit;
+    private volatile int maxLimit;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    
+    // Current window samples; rolled by whichever thread observes the window has elapsed
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder windowDrops = new LongAdder();
+    // Fastest single sample of the window; the no-load RTT is the minimum of these, not of the window averages
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicBoolean rolling = new AtomicBoolean();
+    private volatile long windowStart;
+    private volatile long minRttNanos = Long.MAX_VALUE;
+    private volatile long minRttResetAt;
+    private volatile long lastAvgRttNanos;
+    
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this(name, initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+    
+    ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, LongSupplier nanoTime) {
+        this.name = name;
+        this.nanoTime = nanoTime;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStart = nanoTime.getAsLong();
+        this.minRttResetAt = windowStart + MIN_RTT_RESET_NANOS;
+    }
+    
+    public static ConcurrencyLimiter fromSystemProperties(String name, int defaultInitialLimit) {
+        return fromSystemProperties(name, "concurrency.limit", defaultInitialLimit);
+    }
+    
+    // One limiter per route class, each with its own <prefix>.initial/.min/.max properties
+    public static ConcurrencyLimiter fromSystemProperties(String name, String prefix, int defaultInitialLimit) {
+        int initial = Integer.getInteger(prefix + ".initial", defaultInitialLimit);
+        int min = Integer.getInteger(prefix + ".min", 1);
+        int max = Integer.getInteger(prefix + ".max", defaultInitialLimit * 10);
+        return new ConcurrencyLimiter(name, initial, min, max);
+    }
+    
+    // Non-blocking; callers that get false must shed the request instead of queueing it
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        accepted.increment();
+        return true;
+    }
+    
+    // rttNanos covers queue wait plus execution, which is what grows once the worker pool saturates. overloaded is
+    // for saturation only (the pool refused the task, or it waited out its deadline in the queue): plain failures,
+    // client disconnects and cancellations while running still count as RTT samples, not drops.
+    public void release(long rttNanos, boolean overloaded) {
+        inFlight.decrementAndGet();
+        if (overloaded) {
+            windowDrops.increment();
+        } else {
+            windowRttSum.add(rttNanos);
+            windowSamples.increment();
+            if (rttNanos < windowMinRtt.get()) {
+                windowMinRtt.accumulateAndGet(rttNanos, Math::min);
+            }
+        }
+        
+        long now = nanoTime.getAsLong();
+        if (now - windowStart >= WINDOW_NANOS && rolling.compareAndSet(false, true)) {
+            try {
+                rollWindow(now);
+            } finally {
+                rolling.set(false);
+            }
+        }
+    }
+    
+    private void rollWindow(long now) {
+        long samples = windowSamples.sumThenReset();
+        long rttSum = windowRttSum.sumThenReset();
+        long drops = windowDrops.sumThenReset();
+        long minRtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+        windowStart = now;
+        
+        double current = limit;
+        double next;
+        if (drops > 0) {
+            // Overload: multiplicative decrease
+            next = current * BACKOFF_RATIO;
+        } else if (samples < MIN_WINDOW_SAMPLES) {
+            return;
+        } else {
+            long avgRtt = rttSum / samples;
+            lastAvgRttNanos = avgRtt;
+            if (now >= minRttResetAt) {
+                minRttNanos = minRtt;
+                minRttResetAt = now + MIN_RTT_RESET_NANOS;
+            } else if (minRtt < minRttNanos) {
+                minRttNanos = minRtt;
+            }
+            
+            // Gradient: shrink proportionally as RTT inflates past the no-load RTT, grow by a queue allowance otherwise
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * minRttNanos / (double) avgRtt));
+            double queueAllowance = Math.sqrt(current);
+            double target = current * gradient + queueAllowance;
+            next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        }
+        
+        next = Math.max(minLimit, Math.min(maxLimit, next));
+        if ((int) next != (int) current) {
+            logger.debug("Concurrency limit {} changed {} -> {} (minRtt={}us, avgRtt={}us)",
+                        name, (int) current, (int) next, minRttNanos / 1000, lastAvgRttNanos / 1000);
+        }
+        limit = next;
+    }
+    
+    // Caps the adaptive limit, e.g. to a multiple of the worker concurrency chosen by the auto-tuner
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        if (limit > this.maxLimit) {
+            limit = this.maxLimit;
+        }
+    }
+    
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+    
+    public int getLimit() {
+        return (int) limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public JsonObject toJson() {
+        long minRtt = minRttNanos;
+        return new JsonObject()
+            .put("name", name)
+            .put("limit", getLimit())
+            .put("inFlight", getInFlight())
+            .put("minLimit", minLimit)
+            .put("maxLimit", maxLimit)
+            .put("minRttMicros", minRtt == Long.MAX_VALUE ? null : minRtt / 1000)
+            .put("avgRttMicros", lastAvgRttNanos / 1000)
+            .put("accepted", accepted.sum())
+            .put("rejected", rejected.sum());
+    }
+}
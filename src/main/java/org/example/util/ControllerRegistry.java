@@ -2,41 +2,51 @@ package org.example.util;
 
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
-import io.vertx.ext.web.Router;
 import org.example.controller.AbstractHttpController;
+import org.example.route.ControllerRoutes;
+import org.example.route.RouteRegistrar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class ControllerRegistry {
     
     private static final Logger logger = LoggerFactory.getLogger(ControllerRegistry.class);
-    private final List<AbstractHttpController> controllers = new ArrayList<>();
+    private final List<BoundController> controllers = new ArrayList<>();
     
-    public void registerControllers(Vertx vertx, WorkerExecutor workerExecutor) {
+    // Route tables are generated at compile time from @HttpController classes (see RouteProcessor)
+    public void registerControllers(Vertx vertx, WorkerExecutor workerExecutor, List<ControllerRoutes<?>> routeTables) {
         logger.info("Registering HTTP controllers...");
         
-        // Controllers are now registered externally
+        for (ControllerRoutes<?> routes : routeTables) {
+            controllers.add(bind(routes, vertx, workerExecutor));
+        }
         
         logger.info("Registered {} controllers", controllers.size());
     }
     
-    public void addController(AbstractHttpController controller) {
-        controllers.add(controller);
+    private static <C> BoundController bind(ControllerRoutes<C> routes, Vertx vertx, WorkerExecutor workerExecutor) {
+        C controller = routes.create(vertx, workerExecutor);
+        if (!(controller instanceof AbstractHttpController httpController)) {
+            throw new IllegalArgumentException(controller.getClass().getName() + " does not extend AbstractHttpController");
+        }
+        return new BoundController(httpController, routes.routeCount(), registrar -> routes.register(controller, registrar));
     }
     
-    public void setupRoutes(Router router) {
+    public void setupRoutes(RouteRegistrar routes) {
         logger.info("Setting up routes for {} controllers", controllers.size());
         
-        for (AbstractHttpController controller : controllers) {
+        for (BoundController bound : controllers) {
             try {
-                controller.setupRoutes(router);
-                logger.info("Routes configured for: {}", controller.getClass().getSimpleName());
+                bound.registration().accept(routes);
+                logger.info("Routes configured for: {} ({} routes)",
+                           bound.controller().getClass().getSimpleName(), bound.routeCount());
             } catch (Exception e) {
-                logger.error("Failed to setup routes for controller: {}", 
-                           controller.getClass().getSimpleName(), e);
+                logger.error("Failed to setup routes for controller: {}",
+                           bound.controller().getClass().getSimpleName(), e);
             }
         }
         
@@ -44,15 +54,22 @@ public class ControllerRegistry {
     }
     
     public List<AbstractHttpController> getControllers() {
-        return new ArrayList<>(controllers);
+        List<AbstractHttpController> result = new ArrayList<>(controllers.size());
+        for (BoundController bound : controllers) {
+            result.add(bound.controller());
+        }
+        return result;
     }
     
     public <T extends AbstractHttpController> T getController(Class<T> controllerClass) {
-        for (AbstractHttpController controller : controllers) {
-            if (controllerClass.isInstance(controller)) {
-                return controllerClass.cast(controller);
+        for (BoundController bound : controllers) {
+            if (controllerClass.isInstance(bound.controller())) {
+                return controllerClass.cast(bound.controller());
             }
         }
         return null;
     }
-}
\ No newline at end of file
+    
+    private record BoundController(AbstractHttpController controller, int routeCount, Consumer<RouteRegistrar> registration) {
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Takes the process out of rotation before it stops, so a rolling restart costs clients nothing:
+//   DRAINING: /health reports 503 so load balancers stop routing here; requests are still served, but the
+//             connection is closed after each response, moving keep-alive clients to other nodes. HTTP/1.x
+//             responses say so with Connection: close; HTTP/2 has no such header (RFC 9113 8.2.2), so the
+//             connection gets a GOAWAY instead and its other streams finish first
+//   CLOSED:   after the grace period new connections are closed on accept and new requests get 503
+// drain() then waits for in-flight requests up to the timeout. Vert.x 4 can only close an HTTP server
+// together with its open connections, so the listener stays up until the caller closes Vert.x.
+public class DrainCoordinator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DrainCoordinator.class);
+    
+    private static final long POLL_MILLIS = 20;
+    
+    public enum Phase {
+        SERVING,
+        DRAINING,
+        CLOSED
+    }
+    
+    private static volatile DrainCoordinator shared;
+    
+    private final long graceMillis;
+    private final long timeoutMillis;
+    private volatile Phase phase = Phase.SERVING;
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+    // HTTP/2 connections sent a GOAWAY; only filled while draining, so it lives until the process exits
+    private final Set<HttpConnection> shutDownConnections = ConcurrentHashMap.newKeySet();
+    
+    public DrainCoordinator(long graceMillis, long timeoutMillis) {
+        this.graceMillis = graceMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    public static DrainCoordinator shared() {
+        DrainCoordinator instance = shared;
+        if (instance == null) {
+            synchronized (DrainCoordinator.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new DrainCoordinator(Long.getLong("shutdown.drain-grace-ms", 2000),
+                                                    Long.getLong("shutdown.drain-timeout-ms", 20000));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    public Phase getPhase() {
+        return phase;
+    }
+    
+    public boolean isDraining() {
+        return phase != Phase.SERVING;
+    }
+    
+    public long getInFlight() {
+        return inFlight.get();
+    }
+    
+    // Long-lived responses (e.g. event streams) register here to be ended once new work is refused, and remove the
+    // listener when they end, so the coordinator does not hold on to them
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+    }
+    
+    public void removeOnClose(Runnable listener) {
+        closeListeners.remove(listener);
+    }
+    
+    // First handler on every route: counts the request until its response ends or the connection drops
+    public Handler<RoutingContext> requestHandler() {
+        return context -> {
+            if (phase == Phase.CLOSED) {
+                rejected.increment();
+                HttpServerResponse response = context.response().setStatusCode(503).putHeader("Retry-After", "0");
+                if (isHttp1(context.request())) {
+                    response.putHeader("Connection", "close");
+                }
+                response.end();
+                closeConnection(context.request());
+                return;
+            }
+            inFlight.incrementAndGet();
+            context.addEndHandler(result -> inFlight.decrementAndGet());
+            context.addHeadersEndHandler(v -> {
+                if (isDraining() && isHttp1(context.request())) {
+                    context.response().putHeader("Connection", "close");
+                }
+            });
+            context.addBodyEndHandler(v -> {
+                // Closes once the response is flushed; the header told the client not to reuse the connection
+                if (isDraining()) {
+                    closeConnection(context.request());
+                }
+            });
+            context.next();
+        };
+    }
+    
+    public Handler<HttpConnection> connectionHandler() {
+        return connection -> {
+            if (phase == Phase.CLOSED) {
+                connectionsClosed.increment();
+                connection.close();
+            }
+        };
+    }
+    
+    private static boolean isHttp1(HttpServerRequest request) {
+        return request.version() != HttpVersion.HTTP_2;
+    }
+    
+    // An HTTP/2 connection carries other streams, so it is shut down (GOAWAY, then closed once they end) rather than
+    // closed, and only once however many of its responses end while draining
+    private void closeConnection(HttpServerRequest request) {
+        HttpConnection connection = request.connection();
+        if (!isHttp1(request)) {
+            if (shutDownConnections.add(connection)) {
+                connectionsClosed.increment();
+                connection.shutdown();
+            }
+            return;
+        }
+        connectionsClosed.increment();
+        connection.close();
+    }
+    
+    // Blocks the calling (non event loop) thread; returns true if every in-flight request finished in time
+    public boolean drain() {
+        if (phase != Phase.SERVING) {
+            return inFlight.get() == 0;
+        }
+        long start = System.currentTimeMillis();
+        phase = Phase.DRAINING;
+        logger.info("Draining: health reports DRAINING, {} requests in flight, closing to new work in {} ms",
+                   inFlight.get(), graceMillis);
+        sleep(graceMillis);
+        
+        phase = Phase.CLOSED;
+        for (Runnable listener : closeListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Drain listener failed", e);
+            }
+        }
+        
+        long deadline = start + graceMillis + timeoutMillis;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            sleep(POLL_MILLIS);
+        }
+        long remaining = inFlight.get();
+        if (remaining > 0) {
+            logger.warn("Drain timed out after {} ms with {} requests still in flight",
+                       System.currentTimeMillis() - start, remaining);
+        } else {
+            logger.info("Drained in {} ms ({} requests rejected, {} connections closed)",
+                       System.currentTimeMillis() - start, rejected.sum(), connectionsClosed.sum());
+        }
+        return remaining == 0;
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("phase", phase.name())
+            .put("inFlight", inFlight.get())
+            .put("rejected", rejected.sum())
+            .put("connectionsClosed", connectionsClosed.sum())
+            .put("closeListeners", closeListeners.size())
+            .put("graceMillis", graceMillis)
+            .put("timeoutMillis", timeoutMillis);
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonObject;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// One on-demand Flight Recorder recording per process, driven from /debug/jfr/*, so a live node can be
+// profiled under load without shell access. Profiles are the JDK's built-in settings: "default" (about 1%
+// overhead, safe to leave on) or "profile" (more frequent method sampling and allocation events). The
+// recording keeps a bounded rolling window (maxAge/maxSize) until it is stopped. Recordings are written to
+// profiling.jfr-dir (default logs/jfr), which keeps only the newest profiling.jfr-max-files of them. Recording is
+// off unless profiling.jfr-enabled is set, since the endpoints are unauthenticated. All methods block on file I/O
+// or the recorder, so callers run them off the event loop.
+public class FlightRecorderControl {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderControl.class);
+    
+    private static final String ENABLED_PROPERTY = "profiling.jfr-enabled";
+    private static final String DIRECTORY_PROPERTY = "profiling.jfr-dir";
+    private static final String MAX_FILES_PROPERTY = "profiling.jfr-max-files";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(10);
+    public static final long DEFAULT_MAX_SIZE_BYTES = 256L * 1024 * 1024;
+    
+    private static volatile FlightRecorderControl shared;
+    
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxFiles;
+    private Recording recording;
+    private String profile;
+    private Path lastFile;
+    
+    public FlightRecorderControl(boolean enabled, Path directory, int maxFiles) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+    
+    public static FlightRecorderControl shared() {
+        FlightRecorderControl instance = shared;
+        if (instance == null) {
+            synchronized (FlightRecorderControl.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new FlightRecorderControl(Boolean.getBoolean(ENABLED_PROPERTY),
+                                                         Paths.get(System.getProperty(DIRECTORY_PROPERTY, "logs/jfr")),
+                                                         Integer.getInteger(MAX_FILES_PROPERTY, 10));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    // IllegalStateException if a recording is already running, IllegalArgumentException for an unknown profile
+    public synchronized JsonObject start(String profile, Duration maxAge, long maxSizeBytes) {
+        if (!enabled) {
+            throw new IllegalStateException("Flight recording is disabled; set -D" + ENABLED_PROPERTY + "=true");
+        }
+        if (isRunning()) {
+            throw new IllegalStateException("A " + this.profile + " recording is already running");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR profile: " + profile);
+        }
+        Recording started = new Recording(configuration);
+        started.setName("on-demand-" + profile);
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeBytes);
+        started.start();
+        recording = started;
+        this.profile = profile;
+        logger.info("Flight recording started: profile={}, maxAge={}, maxSize={}", profile, maxAge, maxSizeBytes);
+        return toJson();
+    }
+    
+    // Writes what has been recorded so far to a new file and keeps recording
+    public synchronized Path dump() throws IOException {
+        if (!isRunning()) {
+            throw new IllegalStateException("No recording is running");
+        }
+        Path file = newFile("dump");
+        recording.dump(file);
+        lastFile = file;
+        deleteOldFiles();
+        logger.info("Flight recording dumped to {} ({} bytes)", file, Files.size(file));
+        return file;
+    }
+    
+    public synchronized Path stop() throws IOException {
+        if (!isRunning()) {
+            throw new IllegalStateException("No recording is running");
+        }
+        Path file = newFile("final");
+        try {
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+        lastFile = file;
+        deleteOldFiles();
+        logger.info("Flight recording stopped and written to {} ({} bytes)", file, Files.size(file));
+        return file;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public synchronized boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+    
+    private Path newFile(String kind) throws IOException {
+        Files.createDirectories(directory);
+        return directory.resolve(profile + "-" + kind + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+    }
+    
+    // Every dump is a new file of up to maxSize, so without a cap repeated dumps would fill the disk
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = new ArrayList<>(listing.filter(file -> file.getFileName().toString().endsWith(".jfr")).toList());
+        }
+        if (files.size() <= maxFiles) {
+            return;
+        }
+        // Newest first; the timestamped names break ties between files written in the same millisecond
+        files.sort(Comparator.<Path>comparingLong(FlightRecorderControl::lastModified)
+                             .thenComparing(Comparator.naturalOrder())
+                             .reversed());
+        for (Path file : files.subList(maxFiles, files.size())) {
+            if (!file.equals(lastFile)) {
+                Files.deleteIfExists(file);
+                logger.info("Deleted old flight recording {}", file);
+            }
+        }
+    }
+    
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    public synchronized JsonObject toJson() {
+        JsonObject json = new JsonObject()
+            .put("enabled", enabled)
+            .put("running", isRunning())
+            .put("maxFiles", maxFiles)
+            .put("directory", directory.toAbsolutePath().toString())
+            .put("lastFile", lastFile != null ? lastFile.toAbsolutePath().toString() : null);
+        if (isRunning()) {
+            json.put("profile", profile)
+                .put("name", recording.getName())
+                .put("startedAt", recording.getStartTime().toEpochMilli())
+                .put("maxAgeSeconds", recording.getMaxAge().toSeconds())
+                .put("maxSizeBytes", recording.getMaxSize());
+        }
+        return json;
+    }
+}
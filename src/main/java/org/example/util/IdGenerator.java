@@ -0,0 +1,77 @@
+package org.example.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdGenerator {
+    
+    // Layout: 41 bits milliseconds since EPOCH | 10 bits node | 12 bits sequence
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray(); // Crockford base32
+    public static final int ENCODED_LENGTH = 13;
+    
+    private static volatile IdGenerator shared;
+    
+    private final long node;
+    // Packed (millis << SEQUENCE_BITS | sequence) of the last issued ID
+    private final AtomicLong lastState = new AtomicLong();
+    
+    public IdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+    }
+    
+    // Node bits come from -Did.node (0-1023) so several processes can share one ID space
+    public static IdGenerator shared() {
+        IdGenerator instance = shared;
+        if (instance == null) {
+            synchronized (IdGenerator.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new IdGenerator(Long.getLong("id.node", 0L));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    public long nextLong() {
+        long nowState = System.currentTimeMillis() << SEQUENCE_BITS;
+        while (true) {
+            long last = lastState.get();
+            // Either a fresh millisecond or the next sequence; a full sequence or a clock step back
+            // borrows from the following millisecond, so IDs stay strictly increasing
+            long next = Math.max(nowState, last + 1);
+            if (lastState.compareAndSet(last, next)) {
+                long millis = (next >>> SEQUENCE_BITS) - EPOCH;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+    
+    // Fixed-width base32, so string order matches numeric order and IDs can be used as pagination cursors
+    public String nextId() {
+        return encode(nextLong());
+    }
+    
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        long value = id;
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+    
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.VertxModule;
+import org.example.model.Order;
+import org.example.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public final class JsonSupport {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JsonSupport.class);
+    
+    // One mapper for the whole process: ObjectMapper is thread-safe once configured and caches serializers
+    private static final ObjectMapper MAPPER = createMapper(true);
+    
+    private static volatile boolean warmedUp;
+    
+    private JsonSupport() {
+    }
+    
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+    
+    // Without the model codecs, User and Order go through reflective bean (de)serializers; kept for comparison
+    static ObjectMapper createMapper(boolean modelCodecs) {
+        ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new VertxModule())
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        if (modelCodecs) {
+            mapper.registerModule(ModelJsonCodecs.module());
+        }
+        return mapper;
+    }
+    
+    // Builds and caches (de)serializers for the API models so the first requests don't pay for introspection
+    public static synchronized void warmUp() {
+        if (warmedUp) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            User user = new User("warmup", "Warm Up", "warmup@example.com");
+            Order order = new Order("order-warmup", "customer-warmup",
+                List.of(new Order.OrderItem("prod-warmup", "Warm Up", 1, new BigDecimal("1.00"))),
+                new BigDecimal("1.00"), Order.OrderStatus.PENDING);
+            
+            MAPPER.readValue(MAPPER.writeValueAsString(user), User.class);
+            MAPPER.readValue(MAPPER.writeValueAsString(order), Order.class);
+            MAPPER.readValue(MAPPER.writeValueAsString(List.of(user)), new TypeReference<List<User>>() {});
+            MAPPER.readValue(MAPPER.writeValueAsString(List.of(order)), new TypeReference<List<Order>>() {});
+            MAPPER.writeValueAsString(new JsonObject().put("warmup", true));
+            warmedUp = true;
+            logger.info("JSON serializers warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("JSON warm-up failed", e);
+        }
+    }
+}
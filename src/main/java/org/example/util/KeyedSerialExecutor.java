@@ -0,0 +1,121 @@
+package org.example.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs tasks for the same key one after another, in submission order, while tasks for different keys run
+// in parallel on whatever pool the task submits to. A task counts as finished when the future it returns
+// completes, so a handler that replies asynchronously still holds its key until then. Keys compare with
+// equals(); each controller has its own executor, matching its own store.
+// A key's queue lives in the map only while it has a running task; the compute() lock on its bin is the
+// only synchronization. Queued tasks start on the context they were submitted from. Each key queues at most
+// keyed.max-queued-per-key tasks behind the running one; submit() refuses more, so a hot key cannot grow a
+// backlog that nothing upstream sees.
+public class KeyedSerialExecutor {
+    
+    private final int maxQueuedPerKey;
+    private final ConcurrentHashMap<Object, ArrayDeque<Runnable>> queues = new ConcurrentHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waiting = new LongAdder();
+    private volatile int maxQueueDepth;
+    
+    public KeyedSerialExecutor() {
+        this(Integer.getInteger("keyed.max-queued-per-key", 32));
+    }
+    
+    public KeyedSerialExecutor(int maxQueuedPerKey) {
+        this.maxQueuedPerKey = Math.max(0, maxQueuedPerKey);
+    }
+    
+    // RejectedExecutionException, without running or queueing the task, if the key already has
+    // maxQueuedPerKey tasks waiting
+    public <T> Future<T> submit(Object key, Supplier<Future<T>> task) {
+        Context context = Vertx.currentContext();
+        Promise<T> promise = Promise.promise();
+        Runnable start = () -> run(key, task, promise);
+        
+        boolean[] runNow = new boolean[1];
+        boolean[] full = new boolean[1];
+        queues.compute(key, (k, pending) -> {
+            if (pending == null) {
+                runNow[0] = true;
+                return new ArrayDeque<>();
+            }
+            if (pending.size() >= maxQueuedPerKey) {
+                full[0] = true;
+                return pending;
+            }
+            // Through the context's task queue, so a run of already-completed futures cannot recurse
+            pending.addLast(context == null ? start : () -> context.runOnContext(v -> start.run()));
+            waiting.increment();
+            if (pending.size() > maxQueueDepth) {
+                maxQueueDepth = pending.size();
+            }
+            return pending;
+        });
+        if (full[0]) {
+            rejected.increment();
+            throw new RejectedExecutionException(maxQueuedPerKey + " tasks already queued for key " + key);
+        }
+        submitted.increment();
+        if (runNow[0]) {
+            start.run();
+        } else {
+            queued.increment();
+        }
+        return promise.future();
+    }
+    
+    private <T> void run(Object key, Supplier<Future<T>> task, Promise<T> promise) {
+        Future<T> future;
+        try {
+            future = task.get();
+        } catch (Throwable t) {
+            future = Future.failedFuture(t);
+        }
+        future.onComplete(result -> {
+            startNext(key);
+            promise.handle(result);
+        });
+    }
+    
+    private void startNext(Object key) {
+        Runnable[] next = new Runnable[1];
+        queues.compute(key, (k, pending) -> {
+            next[0] = pending.pollFirst();
+            if (next[0] != null) {
+                waiting.decrement();
+            }
+            return next[0] == null ? null : pending;
+        });
+        if (next[0] != null) {
+            next[0].run();
+        }
+    }
+    
+    public int getActiveKeys() {
+        return queues.size();
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("activeKeys", queues.size())
+            .put("submitted", submitted.sum())
+            .put("queuedBehindSameKey", queued.sum())
+            .put("waiting", waiting.sum())
+            .put("rejected", rejected.sum())
+            .put("maxQueuedPerKey", maxQueuedPerKey)
+            .put("maxQueueDepth", maxQueueDepth);
+    }
+}
@@ -0,0 +1,457 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.example.model.Order;
+import org.example.model.Order.OrderItem;
+import org.example.model.User;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hand-written streaming codecs for the API models, registered on the shared mapper so controllers, NDJSON
+// streams and the change feed pick them up without changes. They write exactly what the bean serializers
+// wrote (same field order, ISO-8601 LocalDateTime, BigDecimal.toString) with pre-encoded field names, and
+// read with a switch on the field name instead of the bean deserializer's property buffering. Tokens off the
+// common path (numbers sent as strings, date arrays, unknown enum names) go to the mapper's standard
+// deserializers, so coercion and error reporting match the bean path.
+public final class ModelJsonCodecs {
+    
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final SerializableString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString TOTAL_AMOUNT = new SerializedString("totalAmount");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializableString PRODUCT_ID = new SerializedString("productId");
+    private static final SerializableString PRODUCT_NAME = new SerializedString("productName");
+    private static final SerializableString QUANTITY = new SerializedString("quantity");
+    private static final SerializableString UNIT_PRICE = new SerializedString("unitPrice");
+    private static final SerializableString TOTAL_PRICE = new SerializedString("totalPrice");
+    
+    private static final Map<String, Order.OrderStatus> STATUSES = new HashMap<>();
+    
+    static {
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            STATUSES.put(status.name(), status);
+        }
+    }
+    
+    private ModelJsonCodecs() {
+    }
+    
+    public static SimpleModule module() {
+        return new SimpleModule("model-json-codecs")
+            .addSerializer(User.class, new UserSerializer())
+            .addDeserializer(User.class, new UserDeserializer())
+            .addSerializer(Order.class, new OrderSerializer())
+            .addDeserializer(Order.class, new OrderDeserializer())
+            .addSerializer(OrderItem.class, new OrderItemSerializer())
+            .addDeserializer(OrderItem.class, new OrderItemDeserializer());
+    }
+    
+    static final class UserSerializer extends StdSerializer<User> {
+        
+        UserSerializer() {
+            super(User.class);
+        }
+        
+        @Override
+        public void serialize(User user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(user);
+            generator.writeFieldName(ID);
+            generator.writeString(user.getId());
+            generator.writeFieldName(NAME);
+            generator.writeString(user.getName());
+            generator.writeFieldName(EMAIL);
+            generator.writeString(user.getEmail());
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(user.getVersion());
+            generator.writeEndObject();
+        }
+    }
+    
+    static final class UserDeserializer extends StdDeserializer<User> {
+        
+        UserDeserializer() {
+            super(User.class);
+        }
+        
+        @Override
+        public User deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expectObject(parser, context, User.class);
+            String id = null;
+            String name = null;
+            String email = null;
+            Long version = null;
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = readString(parser, context);
+                    case "name" -> name = readString(parser, context);
+                    case "email" -> email = readString(parser, context);
+                    case "version" -> version = readLong(parser, context);
+                    default -> parser.skipChildren();
+                }
+            }
+            User user = new User(id, name, email);
+            if (version != null) {
+                user.setVersion(version);
+            }
+            return user;
+        }
+    }
+    
+    static final class OrderSerializer extends StdSerializer<Order> {
+        
+        OrderSerializer() {
+            super(Order.class);
+        }
+        
+        @Override
+        public void serialize(Order order, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(order);
+            generator.writeFieldName(ID);
+            generator.writeString(order.getId());
+            generator.writeFieldName(CUSTOMER_ID);
+            generator.writeString(order.getCustomerId());
+            generator.writeFieldName(ITEMS);
+            List<OrderItem> items = order.getItems();
+            if (items == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartArray(items, items.size());
+                for (OrderItem item : items) {
+                    if (item == null) {
+                        generator.writeNull();
+                    } else {
+                        writeItem(item, generator);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeFieldName(TOTAL_AMOUNT);
+            generator.writeNumber(order.getTotalAmount());
+            generator.writeFieldName(STATUS);
+            generator.writeString(order.getStatus() != null ? order.getStatus().name() : null);
+            generator.writeFieldName(CREATED_AT);
+            writeDateTime(order.getCreatedAt(), generator);
+            generator.writeFieldName(UPDATED_AT);
+            writeDateTime(order.getUpdatedAt(), generator);
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(order.getVersion());
+            generator.writeEndObject();
+        }
+    }
+    
+    static final class OrderDeserializer extends StdDeserializer<Order> {
+        
+        OrderDeserializer() {
+            super(Order.class);
+        }
+        
+        @Override
+        public Order deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expectObject(parser, context, Order.class);
+            String id = null;
+            String customerId = null;
+            List<OrderItem> items = null;
+            BigDecimal totalAmount = null;
+            Order.OrderStatus status = null;
+            LocalDateTime createdAt = null;
+            LocalDateTime updatedAt = null;
+            boolean hasCreatedAt = false;
+            boolean hasUpdatedAt = false;
+            Long version = null;
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = readString(parser, context);
+                    case "customerId" -> customerId = readString(parser, context);
+                    case "items" -> items = readItems(parser, context);
+                    case "totalAmount" -> totalAmount = readDecimal(parser, context);
+                    case "status" -> status = readStatus(parser, context);
+                    case "createdAt" -> {
+                        createdAt = readDateTime(parser, context);
+                        hasCreatedAt = true;
+                    }
+                    case "updatedAt" -> {
+                        updatedAt = readDateTime(parser, context);
+                        hasUpdatedAt = true;
+                    }
+                    case "version" -> version = readLong(parser, context);
+                    default -> parser.skipChildren();
+                }
+            }
+            // Same sequence as the bean path: the creator stamps both times, then present fields override them
+            Order order = new Order(id, customerId, items, totalAmount, status);
+            if (hasCreatedAt) {
+                order.setCreatedAt(createdAt);
+            }
+            if (hasUpdatedAt) {
+                order.setUpdatedAt(updatedAt);
+            }
+            if (version != null) {
+                order.setVersion(version);
+            }
+            return order;
+        }
+    }
+    
+    static final class OrderItemSerializer extends StdSerializer<OrderItem> {
+        
+        OrderItemSerializer() {
+            super(OrderItem.class);
+        }
+        
+        @Override
+        public void serialize(OrderItem item, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            writeItem(item, generator);
+        }
+    }
+    
+    static final class OrderItemDeserializer extends StdDeserializer<OrderItem> {
+        
+        OrderItemDeserializer() {
+            super(OrderItem.class);
+        }
+        
+        @Override
+        public OrderItem deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return readItem(parser, context);
+        }
+    }
+    
+    private static void writeItem(OrderItem item, JsonGenerator generator) throws IOException {
+        generator.writeStartObject(item);
+        generator.writeFieldName(PRODUCT_ID);
+        generator.writeString(item.getProductId());
+        generator.writeFieldName(PRODUCT_NAME);
+        generator.writeString(item.getProductName());
+        generator.writeFieldName(QUANTITY);
+        generator.writeNumber(item.getQuantity());
+        generator.writeFieldName(UNIT_PRICE);
+        generator.writeNumber(item.getUnitPrice());
+        generator.writeFieldName(TOTAL_PRICE);
+        generator.writeNumber(item.getTotalPrice());
+        generator.writeEndObject();
+    }
+    
+    private static List<OrderItem> readItems(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return context.reportInputMismatch(List.class, "Expected an array of order items but found %s",
+                                               parser.currentToken());
+        }
+        List<OrderItem> items = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            items.add(parser.currentToken() == JsonToken.VALUE_NULL ? null : readItem(parser, context));
+        }
+        return items;
+    }
+    
+    // totalPrice is derived from quantity and unitPrice, as in OrderBinaryCodec, rather than taken from the client
+    private static OrderItem readItem(JsonParser parser, DeserializationContext context) throws IOException {
+        expectObject(parser, context, OrderItem.class);
+        String productId = null;
+        String productName = null;
+        int quantity = 0;
+        BigDecimal unitPrice = null;
+        for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+            parser.nextToken();
+            switch (field) {
+                case "productId" -> productId = readString(parser, context);
+                case "productName" -> productName = readString(parser, context);
+                case "quantity" -> quantity = readInt(parser, context);
+                case "unitPrice" -> unitPrice = readDecimal(parser, context);
+                default -> parser.skipChildren();
+            }
+        }
+        if (unitPrice == null) {
+            return context.reportInputMismatch(OrderItem.class, "Order item %s has no unitPrice", productId);
+        }
+        return new OrderItem(productId, productName, quantity, unitPrice);
+    }
+    
+    private static void expectObject(JsonParser parser, DeserializationContext context, Class<?> type) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            context.reportInputMismatch(type, "Expected a JSON object for %s but found %s",
+                                        type.getSimpleName(), parser.currentToken());
+        }
+    }
+    
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NULL -> null;
+            default -> context.readValue(parser, String.class);
+        };
+    }
+    
+    private static Long readLong(JsonParser parser, DeserializationContext context) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getLongValue();
+            case VALUE_NULL -> 0L;
+            default -> context.readValue(parser, Long.class);
+        };
+    }
+    
+    private static int readInt(JsonParser parser, DeserializationContext context) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getIntValue();
+            case VALUE_NULL -> 0;
+            default -> {
+                Integer value = context.readValue(parser, Integer.class);
+                yield value != null ? value : 0;
+            }
+        };
+    }
+    
+    private static BigDecimal readDecimal(JsonParser parser, DeserializationContext context) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+            case VALUE_NULL -> null;
+            default -> context.readValue(parser, BigDecimal.class);
+        };
+    }
+    
+    private static Order.OrderStatus readStatus(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        Order.OrderStatus status = parser.currentToken() == JsonToken.VALUE_STRING ? STATUSES.get(parser.getText()) : null;
+        return status != null ? status : context.readValue(parser, Order.OrderStatus.class);
+    }
+    
+    // ISO_LOCAL_DATE_TIME output (seconds always, fraction without trailing zeros) written into a char buffer;
+    // years outside 0..9999 take the formatter
+    private static void writeDateTime(LocalDateTime value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(DATE_TIME.format(value));
+            return;
+        }
+        char[] chars = new char[29];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, value.getMonthValue(), 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, value.getDayOfMonth(), 2);
+        chars[10] = 'T';
+        writeDigits(chars, 11, value.getHour(), 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, value.getMinute(), 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, value.getSecond(), 2);
+        int length = 19;
+        int nano = value.getNano();
+        if (nano > 0) {
+            chars[19] = '.';
+            writeDigits(chars, 20, nano, 9);
+            length = 29;
+            while (chars[length - 1] == '0') {
+                length--;
+            }
+        }
+        generator.writeString(chars, 0, length);
+    }
+    
+    private static void writeDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+    
+    private static LocalDateTime readDateTime(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            String text = parser.getText();
+            LocalDateTime parsed = parseDateTime(text);
+            if (parsed != null) {
+                return parsed;
+            }
+            try {
+                return LocalDateTime.parse(text, DATE_TIME);
+            } catch (DateTimeParseException e) {
+                // Falls through to the JavaTimeModule deserializer, which also accepts offsets and reports the error
+            }
+        }
+        return context.readValue(parser, LocalDateTime.class);
+    }
+    
+    // yyyy-MM-ddTHH:mm:ss[.fraction], the layout writeDateTime produces; null for anything else
+    private static LocalDateTime parseDateTime(String text) {
+        int length = text.length();
+        if (length < 19 || length == 20 || length > 29 || text.charAt(4) != '-' || text.charAt(7) != '-'
+            || text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':'
+            || (length > 19 && text.charAt(19) != '.')) {
+            return null;
+        }
+        int year = readDigits(text, 0, 4);
+        int month = readDigits(text, 5, 2);
+        int day = readDigits(text, 8, 2);
+        int hour = readDigits(text, 11, 2);
+        int minute = readDigits(text, 14, 2);
+        int second = readDigits(text, 17, 2);
+        int nano = 0;
+        if (length > 19) {
+            nano = readDigits(text, 20, length - 20);
+            for (int i = length - 20; i < 9 && nano >= 0; i++) {
+                nano *= 10;
+            }
+        }
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            // Out-of-range field: the formatter path reports it
+            return null;
+        }
+    }
+    
+    // -1 if any character is not a digit
+    private static int readDigits(String text, int offset, int width) {
+        int value = 0;
+        for (int i = offset; i < offset + width; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -1,30 +1,67 @@
 package org.example.util;
 
-import io.vertx.ext.web.Router;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
+import org.example.route.DispatchTable;
+import org.example.route.RouteRegistrar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 public class MonitoringEndpoints {
     
     private static final Logger logger = LoggerFactory.getLogger(MonitoringEndpoints.class);
+    
+    private static final long MAX_CPU_INTERVAL_MILLIS = 60_000;
+    
     private final String verticleId;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final WorkerPoolAutoTuner autoTuner;
+    private final DispatchTable dispatchTable;
+    // Encoded /thread-stats body for the snapshot it was built from; only touched on this verticle's event loop
+    private RuntimeStatsSampler.Snapshot threadStatsSnapshot;
+    private Buffer threadStatsBody;
     
-    public MonitoringEndpoints(String verticleId) {
+    // dispatchTable is null unless fast route dispatch is enabled
+    public MonitoringEndpoints(String verticleId, ConcurrencyLimiter concurrencyLimiter, WorkerPoolAutoTuner autoTuner,
+                               DispatchTable dispatchTable) {
         this.verticleId = verticleId;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.autoTuner = autoTuner;
+        this.dispatchTable = dispatchTable;
     }
     
-    public void setupRoutes(Router router) {
-        router.get("/health").handler(this::healthCheck);
-        router.get("/thread-info").handler(this::threadInfo);
-        router.get("/verticle-info").handler(this::verticleInfo);
-        router.get("/thread-stats").handler(this::threadStats);
+    public void setupRoutes(RouteRegistrar routes) {
+        routes.get("/health", this::healthCheck);
+        routes.get("/thread-info", this::threadInfo);
+        routes.get("/verticle-info", this::verticleInfo);
+        routes.get("/thread-stats", this::threadStats);
+        routes.get("/thread-stats/history", this::threadStatsHistory);
+        routes.get("/concurrency-limit", this::concurrencyLimit);
+        routes.get("/thread-config", this::threadConfig);
+        routes.get("/debug/slow-requests", this::slowRequests);
+        routes.get("/thread-cpu", this::threadCpu);
+        routes.get("/debug/jfr", this::jfrStatus);
+        // Opt-in: anyone who can reach the port could otherwise record and download profiles
+        if (FlightRecorderControl.shared().isEnabled()) {
+            routes.post("/debug/jfr/start", this::jfrStart);
+            routes.post("/debug/jfr/dump", this::jfrDump);
+            routes.post("/debug/jfr/stop", this::jfrStop);
+        }
     }
     
+    // 503 while draining so load balancers take this instance out of rotation before it stops
     private void healthCheck(RoutingContext context) {
+        boolean draining = DrainCoordinator.shared().isDraining();
         context.response()
+               .setStatusCode(draining ? 503 : 200)
                .putHeader("Content-Type", "application/json")
-               .end("{\"status\":\"UP\",\"timestamp\":\"" + System.currentTimeMillis() + "\"}");
+               .end("{\"status\":\"" + (draining ? "DRAINING" : "UP") + "\",\"timestamp\":\""
+                    + System.currentTimeMillis() + "\"}");
     }
     
     private void threadInfo(RoutingContext context) {
@@ -42,62 +79,197 @@ public class MonitoringEndpoints {
     private void verticleInfo(RoutingContext context) {
         String threadName = Thread.currentThread().getName();
         String response = String.format(
-            "{\"verticleId\":\"%s\",\"eventLoopThread\":\"%s\",\"timestamp\":%d}",
+            "{\"verticleId\":\"%s\",\"eventLoopThread\":\"%s\",\"timestamp\":%d,\"dispatch\":%s}",
             verticleId,
             threadName,
-            System.currentTimeMillis()
+            System.currentTimeMillis(),
+            dispatchTable != null ? dispatchTable.toJson().encode() : "null"
         );
         context.response()
                .putHeader("Content-Type", "application/json")
                .end(response);
     }
     
-    private void threadStats(RoutingContext context) {
-        // Get current runtime information
-        Runtime runtime = Runtime.getRuntime();
-        ThreadGroup rootThreadGroup = Thread.currentThread().getThreadGroup();
-        while (rootThreadGroup.getParent() != null) {
-            rootThreadGroup = rootThreadGroup.getParent();
+    private void concurrencyLimit(RoutingContext context) {
+        JsonObject response = concurrencyLimiter.toJson()
+            .put("compute", ComputeExecutor.shared().getLimiter().toJson())
+            .put("verticleId", verticleId)
+            .put("eventLoopThread", Thread.currentThread().getName())
+            .put("timestamp", System.currentTimeMillis());
+        context.response()
+               .putHeader("Content-Type", "application/json")
+               .end(response.encode());
+    }
+    
+    private void threadConfig(RoutingContext context) {
+        JsonObject response = new JsonObject()
+            .put("configuration", ThreadConfiguration.current().toJson())
+            .put("autoTuner", autoTuner != null ? autoTuner.toJson() : null)
+            .put("verticleId", verticleId)
+            .put("timestamp", System.currentTimeMillis());
+        context.response()
+               .putHeader("Content-Type", "application/json")
+               .end(response.encode());
+    }
+    
+    // Slowest sampled requests per route with their phase timelines; ?reset=true starts a new window after reading
+    private void slowRequests(RoutingContext context) {
+        RequestTracer tracer = RequestTracer.shared();
+        JsonObject response = tracer.toJson();
+        if ("true".equals(context.queryParams().get("reset"))) {
+            tracer.reset();
         }
-        
-        int activeThreads = rootThreadGroup.activeCount();
-        Thread[] threads = new Thread[activeThreads * 2]; // Buffer for safety
-        int threadCount = rootThreadGroup.enumerate(threads, true);
-        
-        // Count different types of threads
-        int eventLoopThreadCount = 0;
-        int workerThreadCount = 0;
-        int otherThreadCount = 0;
-        
-        for (int i = 0; i < threadCount; i++) {
-            if (threads[i] != null) {
-                String threadNameStr = threads[i].getName();
-                if (threadNameStr.startsWith("vert.x-eventloop-thread-")) {
-                    eventLoopThreadCount++;
-                } else if (threadNameStr.contains("worker")) {
-                    workerThreadCount++;
-                } else {
-                    otherThreadCount++;
-                }
-            }
+        context.response()
+               .putHeader("Content-Type", "application/json")
+               .end(response.encode());
+    }
+    
+    // CPU per thread pool over ?intervalMillis (default 1000; 0 for totals since each thread started), with the
+    // ?top busiest threads of each pool. Both snapshots are taken on the internal blocking pool.
+    private void threadCpu(RoutingContext context) {
+        long intervalMillis;
+        int top;
+        try {
+            intervalMillis = Long.parseLong(queryParam(context, "intervalMillis", "1000"));
+            top = Integer.parseInt(queryParam(context, "top", "5"));
+        } catch (NumberFormatException e) {
+            sendJson(context, 400, error("intervalMillis and top must be numbers"));
+            return;
+        }
+        if (intervalMillis < 0 || intervalMillis > MAX_CPU_INTERVAL_MILLIS || top < 0) {
+            sendJson(context, 400, error("intervalMillis must be within 0.." + MAX_CPU_INTERVAL_MILLIS
+                                         + " and top must not be negative"));
+            return;
+        }
+        if (!ThreadCpuAccounting.isSupported()) {
+            sendJson(context, 501, error("Thread CPU time is not supported by this JVM"));
+            return;
         }
         
-        String response = String.format(
-            "{\"systemThreads\":{\"total\":%d,\"eventLoopThreads\":%d,\"workerThreads\":%d,\"otherThreads\":%d},\"runtime\":{\"availableProcessors\":%d,\"maxMemory\":%d,\"totalMemory\":%d,\"freeMemory\":%d},\"currentVerticle\":{\"verticleId\":\"%s\",\"eventLoopThread\":\"%s\"},\"timestamp\":%d}",
-            threadCount,
-            eventLoopThreadCount,
-            workerThreadCount,
-            otherThreadCount,
-            runtime.availableProcessors(),
-            runtime.maxMemory(),
-            runtime.totalMemory(),
-            runtime.freeMemory(),
-            verticleId,
-            Thread.currentThread().getName(),
-            System.currentTimeMillis()
-        );
+        // The first snapshot is held until the interval is over; null asks for totals since thread start
+        Future<ThreadCpuAccounting.Snapshot> before = intervalMillis == 0
+            ? Future.succeededFuture()
+            : context.vertx().<ThreadCpuAccounting.Snapshot>executeBlocking(
+                  promise -> promise.complete(ThreadCpuAccounting.snapshot()), false)
+              .compose(first -> Future.future(promise -> context.vertx().setTimer(intervalMillis,
+                                                                                   id -> promise.complete(first))));
+        before.compose(first -> context.vertx().<JsonObject>executeBlocking(promise -> promise.complete(
+                  ThreadCpuAccounting.toJson(first, ThreadCpuAccounting.snapshot(), top)), false))
+              .onSuccess(json -> sendJson(context, 200, json
+                  .put("verticleId", verticleId)
+                  .put("timestamp", System.currentTimeMillis())))
+              .onFailure(e -> {
+                  logger.error("Thread CPU sampling failed", e);
+                  sendJson(context, 500, error("Thread CPU sampling failed"));
+              });
+    }
+    
+    private void jfrStatus(RoutingContext context) {
+        sendJson(context, 200, FlightRecorderControl.shared().toJson());
+    }
+    
+    // ?profile=default|profile, ?maxAgeSeconds and ?maxSizeMb bound the rolling window kept on disk
+    private void jfrStart(RoutingContext context) {
+        context.vertx().<JsonObject>executeBlocking(promise -> {
+                   String profile = queryParam(context, "profile", "profile");
+                   Duration maxAge = Duration.ofSeconds(Long.parseLong(queryParam(
+                       context, "maxAgeSeconds", String.valueOf(FlightRecorderControl.DEFAULT_MAX_AGE.toSeconds()))));
+                   String maxSizeMb = context.queryParams().get("maxSizeMb");
+                   long maxSize = maxSizeMb != null ? Long.parseLong(maxSizeMb) * 1024 * 1024
+                                                    : FlightRecorderControl.DEFAULT_MAX_SIZE_BYTES;
+                   promise.complete(FlightRecorderControl.shared().start(profile, maxAge, maxSize));
+               }, false)
+               .onSuccess(json -> sendJson(context, 200, json))
+               .onFailure(e -> jfrFailure(context, e));
+    }
+    
+    // Both reply with the .jfr file as the body, so `curl -X POST ... -o recording.jfr` fetches it remotely
+    private void jfrDump(RoutingContext context) {
+        context.vertx().<Path>executeBlocking(promise -> {
+                   try {
+                       promise.complete(FlightRecorderControl.shared().dump());
+                   } catch (Exception e) {
+                       promise.fail(e);
+                   }
+               }, false)
+               .onSuccess(file -> sendRecording(context, file))
+               .onFailure(e -> jfrFailure(context, e));
+    }
+    
+    private void jfrStop(RoutingContext context) {
+        context.vertx().<Path>executeBlocking(promise -> {
+                   try {
+                       promise.complete(FlightRecorderControl.shared().stop());
+                   } catch (Exception e) {
+                       promise.fail(e);
+                   }
+               }, false)
+               .onSuccess(file -> sendRecording(context, file))
+               .onFailure(e -> jfrFailure(context, e));
+    }
+    
+    private void sendRecording(RoutingContext context, Path file) {
+        context.response()
+               .putHeader("Content-Type", "application/octet-stream")
+               .putHeader("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"")
+               .sendFile(file.toString());
+    }
+    
+    private void jfrFailure(RoutingContext context, Throwable e) {
+        if (e instanceof IllegalStateException) {
+            sendJson(context, 409, error(e.getMessage()));
+        } else if (e instanceof IllegalArgumentException) {
+            sendJson(context, 400, error(e.getMessage()));
+        } else {
+            logger.error("Flight recorder operation failed", e);
+            sendJson(context, 500, error("Flight recorder operation failed: " + e.getMessage()));
+        }
+    }
+    
+    private static String queryParam(RoutingContext context, String name, String defaultValue) {
+        String value = context.queryParams().get(name);
+        return value != null ? value : defaultValue;
+    }
+    
+    private static JsonObject error(String message) {
+        return new JsonObject().put("error", true).put("message", message);
+    }
+    
+    private static void sendJson(RoutingContext context, int statusCode, JsonObject json) {
         context.response()
+               .setStatusCode(statusCode)
                .putHeader("Content-Type", "application/json")
-               .end(response);
+               .end(json.encode());
+    }
+    
+    // Serves the background sampler's latest snapshot; the per-verticle fields are spliced in once per sample
+    private void threadStats(RoutingContext context) {
+        RuntimeStatsSampler.Snapshot snapshot = RuntimeStatsSampler.shared().latest();
+        if (snapshot == null) {
+            sendJson(context, 503, error("Runtime statistics are not sampled yet"));
+            return;
+        }
+        if (snapshot != threadStatsSnapshot) {
+            String json = snapshot.json();
+            threadStatsBody = Buffer.buffer(json.substring(0, json.length() - 1)
+                + ",\"currentVerticle\":{\"verticleId\":\"" + verticleId
+                + "\",\"eventLoopThread\":\"" + Thread.currentThread().getName() + "\"}}");
+            threadStatsSnapshot = snapshot;
+        }
+        context.response()
+               .putHeader("Content-Type", "application/json")
+               .end(threadStatsBody);
+    }
+    
+    // Compact samples over the sampler's sliding window, oldest first
+    private void threadStatsHistory(RoutingContext context) {
+        RuntimeStatsSampler.Snapshot snapshot = RuntimeStatsSampler.shared().latest();
+        if (snapshot == null) {
+            sendJson(context, 503, error("Runtime statistics are not sampled yet"));
+            return;
+        }
+        context.response()
+               .putHeader("Content-Type", "application/json")
+               .end(snapshot.historyJson());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Receives one NDJSON line per write (e.g. from a RecordParser) and applies parsed records in batches.
+// While one batch is being applied the next one fills up; once that is full too the stream reports
+// writeQueueFull, so the pipe pauses the request and memory stays at two batches.
+public class NdjsonImportStream<T> implements WriteStream<Buffer> {
+    
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final int batchSize;
+    // Returns an error message for an invalid record, or null
+    private final Function<T, String> validator;
+    // Completes with the messages of records the applier rejected (e.g. a duplicate key), if any
+    private final Function<List<T>, Future<List<String>>> batchApplier;
+    
+    private List<T> batch;
+    private boolean applying;
+    private Promise<Void> endPromise;
+    private Handler<Void> drainHandler;
+    
+    private long lines;
+    private long imported;
+    private long failed;
+    private final JsonArray errors = new JsonArray();
+    
+    public NdjsonImportStream(ObjectMapper mapper, Class<T> type, int batchSize,
+                              Function<T, String> validator, Function<List<T>, Future<List<String>>> batchApplier) {
+        this.mapper = mapper;
+        this.type = type;
+        this.batchSize = batchSize;
+        this.validator = validator;
+        this.batchApplier = batchApplier;
+        this.batch = new ArrayList<>(batchSize);
+    }
+    
+    @Override
+    public Future<Void> write(Buffer line) {
+        accept(line);
+        return Future.succeededFuture();
+    }
+    
+    @Override
+    public void write(Buffer line, Handler<AsyncResult<Void>> handler) {
+        accept(line);
+        if (handler != null) {
+            handler.handle(Future.succeededFuture());
+        }
+    }
+    
+    private void accept(Buffer line) {
+        lines++;
+        String text = line.toString(StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        
+        T record;
+        try {
+            record = mapper.readValue(text, type);
+        } catch (JsonProcessingException e) {
+            reject(lines, "Invalid JSON: " + e.getOriginalMessage());
+            return;
+        }
+        String error = validator.apply(record);
+        if (error != null) {
+            reject(lines, error);
+            return;
+        }
+        
+        batch.add(record);
+        if (batch.size() >= batchSize && !applying) {
+            applyBatch();
+        }
+    }
+    
+    private void applyBatch() {
+        List<T> records = batch;
+        batch = new ArrayList<>(batchSize);
+        applying = true;
+        batchApplier.apply(records).onComplete(result -> {
+            applying = false;
+            if (result.succeeded()) {
+                List<String> rejected = result.result();
+                imported += records.size() - rejected.size();
+                failed += rejected.size();
+                for (String message : rejected) {
+                    addError(-1, message);
+                }
+            } else {
+                failed += records.size();
+                // Reported in the summary; the rest of the import still goes ahead
+                addError(-1, "Batch of " + records.size() + " records failed: " + result.cause().getMessage());
+            }
+            
+            if (batch.size() >= batchSize || (endPromise != null && !batch.isEmpty())) {
+                applyBatch();
+            } else if (endPromise != null) {
+                endPromise.tryComplete();
+                return;
+            }
+            
+            Handler<Void> handler = drainHandler;
+            if (handler != null && !writeQueueFull()) {
+                drainHandler = null;
+                handler.handle(null);
+            }
+        });
+    }
+    
+    private void reject(long line, String message) {
+        failed++;
+        addError(line, message);
+    }
+    
+    private void addError(long line, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new JsonObject().put("line", line < 0 ? null : line).put("message", message));
+        }
+    }
+    
+    @Override
+    public Future<Void> end() {
+        if (endPromise == null) {
+            endPromise = Promise.promise();
+            if (!applying) {
+                if (batch.isEmpty()) {
+                    endPromise.complete();
+                } else {
+                    applyBatch();
+                }
+            }
+        }
+        return endPromise.future();
+    }
+    
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+        Future<Void> future = end();
+        if (handler != null) {
+            future.onComplete(handler);
+        }
+    }
+    
+    @Override
+    public boolean writeQueueFull() {
+        return applying && batch.size() >= batchSize;
+    }
+    
+    @Override
+    public NdjsonImportStream<T> setWriteQueueMaxSize(int maxSize) {
+        return this;
+    }
+    
+    @Override
+    public NdjsonImportStream<T> drainHandler(Handler<Void> handler) {
+        this.drainHandler = handler;
+        return this;
+    }
+    
+    @Override
+    public NdjsonImportStream<T> exceptionHandler(Handler<Throwable> handler) {
+        return this;
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("lines", lines)
+            .put("imported", imported)
+            .put("failed", failed)
+            .put("errors", errors);
+    }
+}
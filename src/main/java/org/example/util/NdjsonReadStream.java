@@ -0,0 +1,121 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.Iterator;
+
+// Serializes entities lazily into newline-delimited JSON chunks. Meant to be piped into an HTTP
+// response: the pipe pauses this stream while the client is slow, so at most one chunk is in memory.
+public class NdjsonReadStream<T> implements ReadStream<Buffer> {
+    
+    private static final int RECORDS_PER_CHUNK = 256;
+    
+    private final Context context;
+    private final ObjectMapper mapper;
+    private final Iterator<T> source;
+    
+    private Handler<Buffer> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private long demand = Long.MAX_VALUE;
+    private boolean scheduled;
+    private boolean ended;
+    
+    public NdjsonReadStream(Context context, ObjectMapper mapper, Iterator<T> source) {
+        this.context = context;
+        this.mapper = mapper;
+        this.source = source;
+    }
+    
+    @Override
+    public NdjsonReadStream<T> handler(Handler<Buffer> handler) {
+        this.handler = handler;
+        schedule();
+        return this;
+    }
+    
+    @Override
+    public NdjsonReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+    
+    @Override
+    public NdjsonReadStream<T> endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+    
+    @Override
+    public NdjsonReadStream<T> pause() {
+        demand = 0;
+        return this;
+    }
+    
+    @Override
+    public NdjsonReadStream<T> resume() {
+        return fetch(Long.MAX_VALUE);
+    }
+    
+    @Override
+    public NdjsonReadStream<T> fetch(long amount) {
+        demand = Long.MAX_VALUE - demand <= amount ? Long.MAX_VALUE : demand + amount;
+        schedule();
+        return this;
+    }
+    
+    // One chunk per event loop task, so a large export never holds the loop for long
+    private void schedule() {
+        if (scheduled || ended || handler == null || demand == 0) {
+            return;
+        }
+        scheduled = true;
+        context.runOnContext(v -> {
+            scheduled = false;
+            emitChunk();
+        });
+    }
+    
+    private void emitChunk() {
+        if (ended || handler == null || demand == 0) {
+            return;
+        }
+        Buffer chunk;
+        try {
+            chunk = nextChunk();
+        } catch (Exception e) {
+            ended = true;
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(e);
+            }
+            return;
+        }
+        
+        if (chunk.length() > 0) {
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            handler.handle(chunk);
+        }
+        if (!source.hasNext()) {
+            ended = true;
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+            return;
+        }
+        schedule();
+    }
+    
+    private Buffer nextChunk() throws Exception {
+        Buffer chunk = Buffer.buffer(RECORDS_PER_CHUNK * 128);
+        for (int i = 0; i < RECORDS_PER_CHUNK && source.hasNext(); i++) {
+            chunk.appendBytes(mapper.writeValueAsBytes(source.next())).appendByte((byte) '\n');
+        }
+        return chunk;
+    }
+}
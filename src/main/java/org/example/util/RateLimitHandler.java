@@ -0,0 +1,70 @@
+package org.example.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+
+public class RateLimitHandler implements Handler<RoutingContext> {
+    
+    private final RateLimiter rateLimiter;
+    private final String name;
+    private final double permitsPerSecond;
+    private final int burst;
+    
+    public RateLimitHandler(RateLimiter rateLimiter, String name, double permitsPerSecond, int burst) {
+        this.rateLimiter = rateLimiter;
+        this.name = name;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+    
+    // Limits are configurable per policy name, e.g. -Drate-limit.heavy.per-second=5 -Drate-limit.heavy.burst=10
+    public static RateLimitHandler fromSystemProperties(String name, double defaultPerSecond, int defaultBurst) {
+        double perSecond = Double.parseDouble(
+            System.getProperty("rate-limit." + name + ".per-second", String.valueOf(defaultPerSecond)));
+        int burst = Integer.getInteger("rate-limit." + name + ".burst", defaultBurst);
+        return new RateLimitHandler(RateLimiter.shared(), name, perSecond, burst);
+    }
+    
+    @Override
+    public void handle(RoutingContext context) {
+        if (permitsPerSecond <= 0) {
+            context.next();
+            return;
+        }
+        
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(bucketKey(context), permitsPerSecond, burst);
+        HttpServerResponse response = context.response();
+        response.putHeader("X-RateLimit-Limit", String.valueOf(decision.getLimit()))
+                .putHeader("X-RateLimit-Remaining", String.valueOf(decision.getRemaining()))
+                .putHeader("X-RateLimit-Reset", String.valueOf(toSecondsCeil(decision.getResetNanos())));
+        
+        if (decision.isAllowed()) {
+            context.next();
+            return;
+        }
+        
+        response.setStatusCode(429)
+                .putHeader("Retry-After", String.valueOf(toSecondsCeil(decision.getRetryAfterNanos())))
+                .putHeader("Content-Type", "application/json")
+                .end("{\"error\":true,\"message\":\"Too many requests\",\"statusCode\":429}");
+    }
+    
+    // Keyed on the peer address: X-API-Key is not validated anywhere, so trusting it would let a client mint a fresh
+    // bucket per request. Route-level handlers see the matched pattern (e.g. /api/users/:id); a handler mounted on
+    // a prefix such as /api/* always sees that prefix, so it is one budget per client across all routes under it.
+    private String bucketKey(RoutingContext context) {
+        String client = context.request().remoteAddress() != null
+            ? context.request().remoteAddress().host()
+            : "unknown";
+        
+        Route route = context.currentRoute();
+        String routePath = route != null && route.getPath() != null ? route.getPath() : "*";
+        return name + '|' + client + '|' + context.request().method().name() + ' ' + routePath;
+    }
+    
+    private static long toSecondsCeil(long nanos) {
+        return Math.max(0L, (nanos + 999_999_999L) / 1_000_000_000L);
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+    
+    private static final String MAX_KEYS_PROPERTY = "rate-limit.max-keys";
+    
+    private static volatile RateLimiter shared;
+    
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    public RateLimiter(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+    
+    // Buckets are shared by all verticle instances so a client cannot multiply its quota by hitting every event loop
+    public static RateLimiter shared() {
+        RateLimiter instance = shared;
+        if (instance == null) {
+            synchronized (RateLimiter.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new RateLimiter(Integer.getInteger(MAX_KEYS_PROPERTY, 100_000));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    public Decision tryAcquire(String key, double permitsPerSecond, int burst) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evictIdle(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(permitsPerSecond, burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+    
+    public int size() {
+        return buckets.size();
+    }
+    
+    // Buckets that have refilled completely carry no state worth keeping; drop those first, then anything else
+    private void evictIdle(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+            
+            Iterator<Map.Entry<String, Bucket>> it = buckets.entrySet().iterator();
+            int target = maxKeys - maxKeys / 10;
+            while (buckets.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            logger.debug("Rate limiter evicted {} buckets", before - buckets.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+    
+    // Token bucket expressed as a theoretical arrival time (GCRA) so each acquire is a single CAS
+    static final class Bucket {
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final int burst;
+        private final AtomicLong theoreticalArrival;
+        
+        Bucket(double permitsPerSecond, int burst, long now) {
+            this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+            this.burstToleranceNanos = emissionIntervalNanos * (burst - 1L);
+            this.burst = burst;
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+        
+        Decision tryAcquire(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long base = Math.max(tat, now);
+                long next = base + emissionIntervalNanos;
+                long wait = next - now - burstToleranceNanos - emissionIntervalNanos;
+                if (wait > 0) {
+                    return new Decision(false, burst, 0, wait, tat - now);
+                }
+                if (theoreticalArrival.compareAndSet(tat, next)) {
+                    int remaining = (int) ((burstToleranceNanos - (next - now)) / emissionIntervalNanos) + 1;
+                    return new Decision(true, burst, Math.max(0, remaining), 0, next - now);
+                }
+            }
+        }
+        
+        boolean isFull(long now) {
+            return theoreticalArrival.get() <= now;
+        }
+    }
+    
+    public static final class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final long retryAfterNanos;
+        private final long resetNanos;
+        
+        Decision(boolean allowed, int limit, int remaining, long retryAfterNanos, long resetNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.retryAfterNanos = retryAfterNanos;
+            this.resetNanos = resetNanos;
+        }
+        
+        public boolean isAllowed() { return allowed; }
+        public int getLimit() { return limit; }
+        public int getRemaining() { return remaining; }
+        public long getRetryAfterNanos() { return retryAfterNanos; }
+        public long getResetNanos() { return resetNanos; }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestDeadline {
+    
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+    // Route timeout that turns the server-side deadline off, e.g. for long exports; the client header still applies
+    public static final long NO_TIMEOUT = 0L;
+    private static final String ROUTE_TIMEOUT_KEY = "routeTimeoutMillis";
+    private static final String CONTEXT_KEY = "requestDeadline";
+    // Applies to handlers dispatched to a worker or the compute pool that have no route timeout; 0 disables it
+    private static final long DEFAULT_TIMEOUT_MILLIS = Long.getLong("request.timeout.default-ms", 10_000L);
+    
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int CANCELLING = 3;
+    private static final int CANCELLED = 4;
+    
+    private final long deadlineNanos;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final AtomicBoolean responseClaimed = new AtomicBoolean();
+    private volatile Thread runner;
+    private volatile boolean expiredInQueue;
+    private long timerId = -1;
+    
+    RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    // Route-level timeout, chained before the handler: router.get(path).handler(RequestDeadline.routeTimeout(2000)).
+    // It replaces the default, so it may be longer; NO_TIMEOUT leaves only the client's header.
+    public static Handler<RoutingContext> routeTimeout(long millis) {
+        return context -> {
+            context.put(ROUTE_TIMEOUT_KEY, millis);
+            context.next();
+        };
+    }
+    
+    public static RequestDeadline forRequest(RoutingContext context) {
+        long timeoutMillis = effectiveTimeoutMillis(context.get(ROUTE_TIMEOUT_KEY), context.request().getHeader(TIMEOUT_HEADER));
+        long deadlineNanos = timeoutMillis == NO_TIMEOUT
+            ? Long.MAX_VALUE
+            : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        RequestDeadline deadline = new RequestDeadline(deadlineNanos);
+        context.put(CONTEXT_KEY, deadline);
+        return deadline;
+    }
+    
+    // The route timeout, else the default; the client's X-Request-Timeout can only tighten it. NO_TIMEOUT if none.
+    static long effectiveTimeoutMillis(Long routeTimeout, String header) {
+        long timeoutMillis = routeTimeout != null ? routeTimeout : DEFAULT_TIMEOUT_MILLIS;
+        if (header != null) {
+            try {
+                // A client asking for 0 ms still gets the 1 ms minimum, never "no deadline"
+                long requested = Math.max(1L, Long.parseLong(header.trim()));
+                timeoutMillis = timeoutMillis == NO_TIMEOUT ? requested : Math.min(timeoutMillis, requested);
+            } catch (NumberFormatException e) {
+                // Ignore malformed client timeouts and keep the server-side deadline
+            }
+        }
+        return timeoutMillis;
+    }
+    
+    // Whoever gets here first writes the response, so a 504 and the handler's own reply never both reach end().
+    // True when the request has no deadline.
+    public static boolean claimResponse(RoutingContext context) {
+        RequestDeadline deadline = context.get(CONTEXT_KEY);
+        return deadline == null || deadline.claimResponse();
+    }
+    
+    public boolean claimResponse() {
+        return responseClaimed.compareAndSet(false, true);
+    }
+    
+    // Arms the timeout on the event loop; onTimeout runs at most once, only if the handler has not claimed the
+    // response, and with the response already claimed for it
+    public void arm(Vertx vertx, RoutingContext context, Runnable onTimeout) {
+        if (deadlineNanos != Long.MAX_VALUE) {
+            long delayMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remainingNanos()));
+            timerId = vertx.setTimer(delayMillis, id -> {
+                if (claimResponse()) {
+                    cancel(true);
+                    onTimeout.run();
+                }
+            });
+        }
+        // Added alongside any other end handlers; fails only when the connection closes before the response ends
+        context.addEndHandler(result -> {
+            if (result.failed()) {
+                cancel();
+            }
+        });
+    }
+    
+    public void disarm(Vertx vertx) {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+    
+    // Called on the worker thread before running the task; false means the task must be skipped
+    public boolean begin() {
+        if (remainingNanos() <= 0) {
+            cancel(true);
+            return false;
+        }
+        runner = Thread.currentThread();
+        return state.compareAndSet(PENDING, RUNNING);
+    }
+    
+    // Called on the worker thread when the task returns, so a late interrupt never leaks into the pooled thread
+    public void end() {
+        if (state.compareAndSet(RUNNING, DONE)) {
+            runner = null;
+            return;
+        }
+        while (state.get() == CANCELLING) {
+            Thread.onSpinWait();
+        }
+        Thread.interrupted();
+        runner = null;
+    }
+    
+    // Cancels a queued task outright or interrupts a running one; returns true if this call did the cancelling
+    public boolean cancel() {
+        return cancel(false);
+    }
+    
+    private boolean cancel(boolean expired) {
+        if (state.compareAndSet(PENDING, CANCELLED)) {
+            expiredInQueue = expired;
+            return true;
+        }
+        if (state.compareAndSet(RUNNING, CANCELLING)) {
+            Thread thread = runner;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            state.set(CANCELLED);
+            return true;
+        }
+        return false;
+    }
+    
+    public boolean isCancelled() {
+        int current = state.get();
+        return current == CANCELLING || current == CANCELLED;
+    }
+    
+    // The deadline passed before a worker picked the task up: the queue was too slow, not the task
+    public boolean isExpiredInQueue() {
+        return expiredInQueue;
+    }
+    
+    public long remainingNanos() {
+        return deadlineNanos == Long.MAX_VALUE ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
+    }
+}
@@ -0,0 +1,293 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+import org.example.route.DispatchTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sampled per-request phase timelines for requests dispatched to a worker or the compute pool:
+//   RECEIVED     the controller hands the request to the pool (event loop)
+//   STARTED      the task starts running; the gap is time queued for a thread
+//   SERIALIZING  sendJsonResponse starts encoding the result; the gap is the handler's own work
+//   SERIALIZED   the JSON is ready
+//   WRITTEN      the response has been written back, or the connection dropped (event loop)
+// Stamps go into pooled records, and the slowest N completed requests per route are kept for
+// /debug/slow-requests. With tracing.sample-rate=0 (the default) begin() returns null after one field read
+// and no record is touched.
+public class RequestTracer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RequestTracer.class);
+    
+    private static final String SAMPLE_RATE_PROPERTY = "tracing.sample-rate";
+    private static final String SLOWEST_PROPERTY = "tracing.slowest-per-route";
+    private static final String POOL_PROPERTY = "tracing.pool-size";
+    
+    public static final String CONTEXT_KEY = "request.trace";
+    
+    // Beyond this many distinct routes, the rest share one entry
+    private static final int MAX_ROUTES = 256;
+    private static final String OTHER_ROUTES = "(other)";
+    
+    public enum Phase {
+        RECEIVED,
+        STARTED,
+        SERIALIZING,
+        SERIALIZED,
+        WRITTEN
+    }
+    
+    private static final Phase[] PHASES = Phase.values();
+    
+    private static volatile RequestTracer shared;
+    
+    private final double sampleRate;
+    private final int slowestPerRoute;
+    private final ArrayBlockingQueue<Trace> pool;
+    private final ConcurrentHashMap<String, SlowestRequests> routes = new ConcurrentHashMap<>();
+    private final LongAdder sampled = new LongAdder();
+    private volatile long sinceMillis = System.currentTimeMillis();
+    
+    public RequestTracer(double sampleRate, int slowestPerRoute, int poolSize) {
+        this.sampleRate = sampleRate;
+        this.slowestPerRoute = slowestPerRoute;
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+    
+    public static RequestTracer shared() {
+        RequestTracer instance = shared;
+        if (instance == null) {
+            synchronized (RequestTracer.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = fromSystemProperties();
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static RequestTracer fromSystemProperties() {
+        double sampleRate = Double.parseDouble(System.getProperty(SAMPLE_RATE_PROPERTY, "0"));
+        int slowest = Integer.getInteger(SLOWEST_PROPERTY, 10);
+        int poolSize = Integer.getInteger(POOL_PROPERTY, 256);
+        if (sampleRate > 0) {
+            logger.info("Request tracing: sampleRate={}, slowestPerRoute={}, pool={}", sampleRate, slowest, poolSize);
+        }
+        return new RequestTracer(sampleRate, slowest, poolSize);
+    }
+    
+    public boolean isEnabled() {
+        return sampleRate > 0;
+    }
+    
+    // On the event loop when a request is handed to a pool; null unless this request is sampled
+    public Trace begin(RoutingContext context) {
+        if (sampleRate <= 0 || (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return null;
+        }
+        sampled.increment();
+        Trace trace = pool.poll();
+        if (trace == null) {
+            trace = new Trace();
+        }
+        trace.start(context.request().method().name(), context.normalizedPath(), routeOf(context));
+        context.put(CONTEXT_KEY, trace);
+        Trace started = trace;
+        context.addEndHandler(result -> {
+            started.stamp(Phase.WRITTEN);
+            started.status = context.response().getStatusCode();
+            release(started);
+        });
+        return trace;
+    }
+    
+    // The trace of the current request, if it is sampled; skips the context lookup entirely when tracing is off
+    public Trace current(RoutingContext context) {
+        return sampleRate > 0 ? context.get(CONTEXT_KEY) : null;
+    }
+    
+    // Each trace has two owners, the response end and the pool task; whichever finishes last files it
+    public void release(Trace trace) {
+        if (trace.owners.decrementAndGet() != 0) {
+            return;
+        }
+        Trace evicted = trace;
+        if (trace.stamps[Phase.WRITTEN.ordinal()] != 0) {
+            String key = routes.size() < MAX_ROUTES || routes.containsKey(trace.route) ? trace.route : OTHER_ROUTES;
+            evicted = routes.computeIfAbsent(key, k -> new SlowestRequests(slowestPerRoute)).offer(trace);
+        }
+        if (evicted != null) {
+            pool.offer(evicted);
+        }
+    }
+    
+    // Route pattern rather than the raw path, so /api/users/1 and /api/users/2 share an entry
+    private static String routeOf(RoutingContext context) {
+        String method = context.request().method().name();
+        String pattern = context.get(DispatchTable.ROUTE_PATTERN_KEY);
+        if (pattern == null) {
+            Route route = context.currentRoute();
+            pattern = route != null && route.getPath() != null ? route.getPath() : context.normalizedPath();
+        }
+        return method + " " + pattern;
+    }
+    
+    public JsonObject toJson() {
+        Map<String, SlowestRequests> sorted = new TreeMap<>(routes);
+        JsonObject byRoute = new JsonObject();
+        for (Map.Entry<String, SlowestRequests> entry : sorted.entrySet()) {
+            byRoute.put(entry.getKey(), entry.getValue().toJson());
+        }
+        return new JsonObject()
+            .put("sampleRate", sampleRate)
+            .put("slowestPerRoute", slowestPerRoute)
+            .put("sampled", sampled.sum())
+            .put("since", sinceMillis)
+            .put("routes", byRoute);
+    }
+    
+    public void reset() {
+        sinceMillis = System.currentTimeMillis();
+        for (SlowestRequests slowest : routes.values()) {
+            for (Trace trace : slowest.clear()) {
+                pool.offer(trace);
+            }
+        }
+    }
+    
+    public static final class Trace {
+        
+        final long[] stamps = new long[PHASES.length];
+        final AtomicInteger owners = new AtomicInteger();
+        long startedAtMillis;
+        String method;
+        String path;
+        String route;
+        String thread;
+        int status;
+        
+        void start(String method, String path, String route) {
+            Arrays.fill(stamps, 0);
+            stamps[Phase.RECEIVED.ordinal()] = System.nanoTime();
+            owners.set(2);
+            startedAtMillis = System.currentTimeMillis();
+            this.method = method;
+            this.path = path;
+            this.route = route;
+            thread = null;
+            status = 0;
+        }
+        
+        public void stamp(Phase phase) {
+            stamps[phase.ordinal()] = System.nanoTime();
+        }
+        
+        // Called by the pool thread as the task starts
+        public void started() {
+            thread = Thread.currentThread().getName();
+            stamp(Phase.STARTED);
+        }
+        
+        long totalNanos() {
+            return stamps[Phase.WRITTEN.ordinal()] - stamps[Phase.RECEIVED.ordinal()];
+        }
+        
+        JsonObject toJson() {
+            long received = stamps[Phase.RECEIVED.ordinal()];
+            JsonObject timeline = new JsonObject();
+            for (Phase phase : PHASES) {
+                if (stamps[phase.ordinal()] != 0) {
+                    timeline.put(phase.name(), micros(stamps[phase.ordinal()] - received));
+                }
+            }
+            return new JsonObject()
+                .put("method", method)
+                .put("path", path)
+                .put("status", status)
+                .put("startedAt", startedAtMillis)
+                .put("thread", thread)
+                .put("totalMicros", micros(totalNanos()))
+                .put("phasesMicros", new JsonObject()
+                    .put("queueWait", span(Phase.RECEIVED, Phase.STARTED))
+                    .put("handler", span(Phase.STARTED, stamps[Phase.SERIALIZING.ordinal()] != 0
+                                                          ? Phase.SERIALIZING : Phase.WRITTEN))
+                    .put("serialization", span(Phase.SERIALIZING, Phase.SERIALIZED))
+                    .put("write", span(Phase.SERIALIZED, Phase.WRITTEN)))
+                .put("timelineMicros", timeline);
+        }
+        
+        // Null when either end was never reached, e.g. no JSON body or the task was skipped
+        private Long span(Phase from, Phase to) {
+            long start = stamps[from.ordinal()];
+            long end = stamps[to.ordinal()];
+            return start == 0 || end == 0 ? null : micros(end - start);
+        }
+        
+        private static long micros(long nanos) {
+            return nanos / 1_000;
+        }
+    }
+    
+    // The slowest traces seen for one route, unordered; sorted only when read
+    private static final class SlowestRequests {
+        
+        private final Trace[] slots;
+        private int size;
+        
+        SlowestRequests(int capacity) {
+            this.slots = new Trace[Math.max(1, capacity)];
+        }
+        
+        // Returns the trace that no longer needs keeping: the fastest one if full, or null
+        synchronized Trace offer(Trace trace) {
+            if (size < slots.length) {
+                slots[size++] = trace;
+                return null;
+            }
+            int fastest = 0;
+            for (int i = 1; i < size; i++) {
+                if (slots[i].totalNanos() < slots[fastest].totalNanos()) {
+                    fastest = i;
+                }
+            }
+            if (slots[fastest].totalNanos() >= trace.totalNanos()) {
+                return trace;
+            }
+            Trace evicted = slots[fastest];
+            slots[fastest] = trace;
+            return evicted;
+        }
+        
+        synchronized List<Trace> clear() {
+            List<Trace> cleared = new ArrayList<>(Arrays.asList(slots).subList(0, size));
+            Arrays.fill(slots, null);
+            size = 0;
+            return cleared;
+        }
+        
+        synchronized JsonArray toJson() {
+            Trace[] traces = Arrays.copyOf(slots, size);
+            Arrays.sort(traces, (a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+            JsonArray array = new JsonArray();
+            for (Trace trace : traces) {
+                array.add(trace.toJson());
+            }
+            return array;
+        }
+    }
+}
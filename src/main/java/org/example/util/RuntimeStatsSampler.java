@@ -0,0 +1,202 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Thread, memory, GC and pool statistics computed on one background thread every
+// monitoring.stats-interval-ms (default 5000) instead of on the event loop per scrape. Each sample is an
+// immutable Snapshot carrying its JSON already encoded, so /thread-stats costs a volatile read however many
+// agents poll it. The last monitoring.stats-history samples (default 120) are kept as a sliding window, also
+// encoded once per sample, for /thread-stats/history.
+public class RuntimeStatsSampler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RuntimeStatsSampler.class);
+    
+    private static final String INTERVAL_PROPERTY = "monitoring.stats-interval-ms";
+    private static final String HISTORY_PROPERTY = "monitoring.stats-history";
+    
+    private static volatile RuntimeStatsSampler shared;
+    
+    private final long intervalMillis;
+    private final int historySize;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler;
+    // Touched only by the sampler thread
+    private final ArrayDeque<JsonObject> history = new ArrayDeque<>();
+    private final Map<String, long[]> previousGc = new HashMap<>();
+    private volatile Snapshot latest;
+    
+    // The window is encoded along with the sample so both are published together
+    public record Snapshot(long sampledAtMillis, String json, String historyJson) {
+    }
+    
+    public RuntimeStatsSampler(long intervalMillis, int historySize) {
+        this.intervalMillis = intervalMillis;
+        this.historySize = Math.max(1, historySize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "runtime-stats-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Fixed delay: a stalled sample shifts the schedule instead of being followed by a burst of catch-up samples
+        scheduler.scheduleWithFixedDelay(this::sampleSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public static RuntimeStatsSampler shared() {
+        RuntimeStatsSampler instance = shared;
+        if (instance == null) {
+            synchronized (RuntimeStatsSampler.class) {
+                instance = shared;
+                if (instance == null) {
+                    long interval = Long.getLong(INTERVAL_PROPERTY, 5000);
+                    int history = Integer.getInteger(HISTORY_PROPERTY, 120);
+                    logger.info("Runtime stats sampler: interval={} ms, history={} samples", interval, history);
+                    instance = new RuntimeStatsSampler(interval, history);
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    // Null until the first sample has been taken, just after construction
+    public Snapshot latest() {
+        return latest;
+    }
+    
+    public void close() {
+        scheduler.shutdownNow();
+    }
+    
+    // A failed sample must not cancel the schedule
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (Throwable t) {
+            logger.warn("Runtime stats sample failed", t);
+        }
+    }
+    
+    private void sample() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        
+        Map<ThreadCpuAccounting.Category, Integer> byCategory = new EnumMap<>(ThreadCpuAccounting.Category.class);
+        for (ThreadCpuAccounting.Category category : ThreadCpuAccounting.Category.values()) {
+            byCategory.put(category, 0);
+        }
+        int threadCount = 0;
+        // Depth 0: names only, no stack walk
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            if (info != null) {
+                byCategory.merge(ThreadCpuAccounting.Category.of(info.getThreadName()), 1, Integer::sum);
+                threadCount++;
+            }
+        }
+        JsonObject systemThreads = new JsonObject()
+            .put("total", threadCount)
+            .put("eventLoopThreads", byCategory.get(ThreadCpuAccounting.Category.EVENT_LOOP))
+            .put("workerThreads", byCategory.get(ThreadCpuAccounting.Category.WORKER))
+            .put("internalBlockingThreads", byCategory.get(ThreadCpuAccounting.Category.INTERNAL_BLOCKING))
+            .put("computeThreads", byCategory.get(ThreadCpuAccounting.Category.COMPUTE))
+            .put("otherThreads", byCategory.get(ThreadCpuAccounting.Category.OTHER))
+            .put("daemonThreads", threads.getDaemonThreadCount())
+            .put("peakThreads", threads.getPeakThreadCount());
+        
+        Runtime runtime = Runtime.getRuntime();
+        JsonObject runtimeJson = new JsonObject()
+            .put("availableProcessors", runtime.availableProcessors())
+            .put("maxMemory", runtime.maxMemory())
+            .put("totalMemory", runtime.totalMemory())
+            .put("freeMemory", runtime.freeMemory());
+        
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        JsonObject memoryJson = new JsonObject()
+            .put("heapUsed", heap.getUsed())
+            .put("heapCommitted", heap.getCommitted())
+            .put("nonHeapUsed", nonHeap.getUsed())
+            .put("nonHeapCommitted", nonHeap.getCommitted());
+        
+        // Cumulative counts plus what happened since the previous sample
+        JsonObject collectors = new JsonObject();
+        long gcCountDelta = 0;
+        long gcTimeDelta = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long count = Math.max(0, gc.getCollectionCount());
+            long time = Math.max(0, gc.getCollectionTime());
+            long[] previous = previousGc.put(gc.getName(), new long[] {count, time});
+            long countDelta = previous != null ? count - previous[0] : count;
+            long timeDelta = previous != null ? time - previous[1] : time;
+            gcCountDelta += countDelta;
+            gcTimeDelta += timeDelta;
+            collectors.put(gc.getName(), new JsonObject()
+                .put("count", count)
+                .put("timeMillis", time)
+                .put("countDelta", countDelta)
+                .put("timeMillisDelta", timeDelta));
+        }
+        
+        ForkJoinPool compute = ComputeExecutor.shared().getPool();
+        JsonObject pools = new JsonObject()
+            .put("compute", new JsonObject()
+                .put("parallelism", compute.getParallelism())
+                .put("poolSize", compute.getPoolSize())
+                .put("active", compute.getActiveThreadCount())
+                .put("running", compute.getRunningThreadCount())
+                .put("queuedSubmissions", compute.getQueuedSubmissionCount())
+                .put("queuedTasks", compute.getQueuedTaskCount())
+                .put("steals", compute.getStealCount()))
+            .put("inFlightRequests", DrainCoordinator.shared().getInFlight())
+            .put("accessLogPending", AccessLog.shared().getPendingCount());
+        
+        JsonObject json = new JsonObject()
+            .put("systemThreads", systemThreads)
+            .put("runtime", runtimeJson)
+            .put("memory", memoryJson)
+            .put("gc", collectors)
+            .put("pools", pools)
+            .put("intervalMillis", intervalMillis)
+            .put("samplingMicros", (System.nanoTime() - start) / 1_000)
+            .put("timestamp", now);
+        
+        history.addLast(new JsonObject()
+            .put("timestamp", now)
+            .put("threads", threadCount)
+            .put("heapUsed", heap.getUsed())
+            .put("gcCount", gcCountDelta)
+            .put("gcTimeMillis", gcTimeDelta)
+            .put("computeActive", compute.getActiveThreadCount())
+            .put("computeQueued", compute.getQueuedSubmissionCount() + compute.getQueuedTaskCount())
+            .put("inFlightRequests", pools.getLong("inFlightRequests")));
+        while (history.size() > historySize) {
+            history.removeFirst();
+        }
+        
+        String historyJson = new JsonObject()
+            .put("intervalMillis", intervalMillis)
+            .put("windowMillis", intervalMillis * historySize)
+            .put("samples", new JsonArray(new ArrayList<>(history)))
+            .encode();
+        latest = new Snapshot(now, json.encode(), historyJson);
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+public class ThreadConfiguration {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ThreadConfiguration.class);
+    
+    // Files below are relative to the cgroup root: v2 has them at the top, v1 under the cpu and memory controllers
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    private static final String CGROUP_V2_CPU_MAX = "cpu.max";
+    private static final String CGROUP_V2_MEMORY_MAX = "memory.max";
+    private static final String CGROUP_V1_CPU_QUOTA = "cpu/cpu.cfs_quota_us";
+    private static final String CGROUP_V1_CPU_PERIOD = "cpu/cpu.cfs_period_us";
+    private static final String CGROUP_V1_MEMORY_LIMIT = "memory/memory.limit_in_bytes";
+    
+    // Budget per platform thread (stack plus bookkeeping) used to cap pools under a memory limit
+    private static final long BYTES_PER_THREAD = 1024L * 1024;
+    private static final double THREAD_MEMORY_SHARE = 0.25;
+    
+    private static volatile ThreadConfiguration current;
+    
+    private final Function<String, String> env;
+    private final int hostCpus;
+    private final double cpuQuota;
+    private final long memoryLimitBytes;
+    private final int effectiveCpus;
+    private final int eventLoopThreads;
+    private final int verticleInstances;
+    private final int workersPerVerticle;
+    private final int internalBlockingPoolSize;
+    private final int computeParallelism;
+    private final boolean computePoolEnabled;
+    private final boolean autoTuneEnabled;
+    private final int maxWorkersPerVerticle;
+    
+    private ThreadConfiguration(int hostCpus, double cpuQuota, long memoryLimitBytes, Function<String, String> env) {
+        this.env = env;
+        this.hostCpus = hostCpus;
+        this.cpuQuota = cpuQuota;
+        this.memoryLimitBytes = memoryLimitBytes;
+        
+        int quotaCpus = cpuQuota > 0 ? (int) Math.ceil(cpuQuota) : hostCpus;
+        this.effectiveCpus = Math.max(1, Math.min(hostCpus, quotaCpus));
+        
+        this.eventLoopThreads = setting("threads.event-loops", "EVENT_LOOP_THREADS", effectiveCpus * 2);
+        this.verticleInstances = setting("threads.verticle-instances", "VERTICLE_INSTANCES", eventLoopThreads);
+        this.internalBlockingPoolSize = setting("threads.internal-blocking", "INTERNAL_BLOCKING_POOL_SIZE",
+            Math.max(20, effectiveCpus * 2));
+        this.computeParallelism = setting("compute.parallelism", "COMPUTE_PARALLELISM", effectiveCpus);
+        // Off runs CPU-bound handlers on the worker pool too, the single-pool baseline for load tests
+        this.computePoolEnabled = Boolean.parseBoolean(
+            stringSetting("compute.enabled", "COMPUTE_POOL_ENABLED", "true"));
+        this.autoTuneEnabled = Boolean.parseBoolean(stringSetting("threads.auto-tune", "THREADS_AUTO_TUNE", "false"));
+        
+        int workers = setting("threads.workers-per-verticle", "WORKERS_PER_VERTICLE", 15);
+        int maxWorkers = setting("threads.max-workers-per-verticle", "MAX_WORKERS_PER_VERTICLE", workers * 2);
+        if (memoryLimitBytes > 0) {
+            // Keep the total worker thread count within a share of the container memory limit
+            long threadBudget = (long) (memoryLimitBytes * THREAD_MEMORY_SHARE) / BYTES_PER_THREAD;
+            int perVerticleBudget = (int) Math.max(1, threadBudget / Math.max(1, verticleInstances));
+            workers = Math.min(workers, perVerticleBudget);
+            maxWorkers = Math.min(maxWorkers, perVerticleBudget);
+        }
+        this.workersPerVerticle = workers;
+        this.maxWorkersPerVerticle = Math.max(workers, maxWorkers);
+    }
+    
+    public static ThreadConfiguration current() {
+        ThreadConfiguration instance = current;
+        if (instance == null) {
+            synchronized (ThreadConfiguration.class) {
+                instance = current;
+                if (instance == null) {
+                    instance = detect();
+                    current = instance;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static ThreadConfiguration detect() {
+        return detect(CGROUP_ROOT, Runtime.getRuntime().availableProcessors(), System::getenv);
+    }
+    
+    // Tests pass a fixture directory as the cgroup root and their own environment
+    static ThreadConfiguration detect(Path cgroupRoot, int hostCpus, Function<String, String> env) {
+        return new ThreadConfiguration(hostCpus, readCpuQuota(cgroupRoot), readMemoryLimit(cgroupRoot), env);
+    }
+    
+    // Returns the CPU quota in cores, or -1 when unlimited or not running under cgroups
+    static double readCpuQuota(Path cgroupRoot) {
+        Path cpuMax = cgroupRoot.resolve(CGROUP_V2_CPU_MAX);
+        Path cpuQuota = cgroupRoot.resolve(CGROUP_V1_CPU_QUOTA);
+        Path cpuPeriod = cgroupRoot.resolve(CGROUP_V1_CPU_PERIOD);
+        try {
+            if (Files.isReadable(cpuMax)) {
+                String[] parts = Files.readString(cpuMax).trim().split("\\s+");
+                if (parts.length == 2 && !"max".equals(parts[0])) {
+                    return Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]);
+                }
+                return -1;
+            }
+            if (Files.isReadable(cpuQuota) && Files.isReadable(cpuPeriod)) {
+                long quota = Long.parseLong(Files.readString(cpuQuota).trim());
+                long period = Long.parseLong(Files.readString(cpuPeriod).trim());
+                if (quota > 0 && period > 0) {
+                    return (double) quota / period;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Could not read cgroup CPU quota", e);
+        }
+        return -1;
+    }
+    
+    // Returns the memory limit in bytes, or -1 when unlimited or not running under cgroups
+    static long readMemoryLimit(Path cgroupRoot) {
+        Path memoryMax = cgroupRoot.resolve(CGROUP_V2_MEMORY_MAX);
+        Path memoryLimit = cgroupRoot.resolve(CGROUP_V1_MEMORY_LIMIT);
+        try {
+            if (Files.isReadable(memoryMax)) {
+                String value = Files.readString(memoryMax).trim();
+                return "max".equals(value) ? -1 : Long.parseLong(value);
+            }
+            if (Files.isReadable(memoryLimit)) {
+                long value = Long.parseLong(Files.readString(memoryLimit).trim());
+                // cgroup v1 reports "unlimited" as a huge page-aligned number
+                return value >= Long.MAX_VALUE / 2 ? -1 : value;
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Could not read cgroup memory limit", e);
+        }
+        return -1;
+    }
+    
+    // System properties win over environment variables, which win over the detected default
+    private int setting(String property, String env, int defaultValue) {
+        String value = stringSetting(property, env, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid value '{}' for {}", value, property);
+            return defaultValue;
+        }
+    }
+    
+    private String stringSetting(String property, String envName, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = env.apply(envName);
+        }
+        return value != null ? value : defaultValue;
+    }
+    
+    public void logSummary() {
+        logger.info("=== Thread Configuration Analysis ===");
+        logger.info("Host CPU cores: {}", hostCpus);
+        logger.info("cgroup CPU quota: {}", cpuQuota > 0 ? cpuQuota : "unlimited");
+        logger.info("cgroup memory limit: {}", memoryLimitBytes > 0 ? memoryLimitBytes / (1024 * 1024) + "MB" : "unlimited");
+        logger.info("Effective CPU cores: {}", effectiveCpus);
+        logger.info("Event loop threads: {}", eventLoopThreads);
+        logger.info("Verticle instances: {}", verticleInstances);
+        logger.info("Worker pool size: {} ({} workers per verticle, max {})",
+                   getWorkerPoolSize(), workersPerVerticle, maxWorkersPerVerticle);
+        logger.info("Internal blocking pool: {}", internalBlockingPoolSize);
+        logger.info("Compute parallelism: {} ({})", computeParallelism,
+                   computePoolEnabled ? "enabled" : "disabled, CPU-bound work uses the worker pool");
+        logger.info("Worker auto-tuning: {}", autoTuneEnabled ? "enabled" : "disabled");
+        logger.info("=========================================");
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("hostCpus", hostCpus)
+            .put("cpuQuota", cpuQuota > 0 ? cpuQuota : null)
+            .put("memoryLimitBytes", memoryLimitBytes > 0 ? memoryLimitBytes : null)
+            .put("effectiveCpus", effectiveCpus)
+            .put("eventLoopThreads", eventLoopThreads)
+            .put("verticleInstances", verticleInstances)
+            .put("workersPerVerticle", workersPerVerticle)
+            .put("maxWorkersPerVerticle", maxWorkersPerVerticle)
+            .put("workerPoolSize", getWorkerPoolSize())
+            .put("internalBlockingPoolSize", internalBlockingPoolSize)
+            .put("computeParallelism", computeParallelism)
+            .put("computePoolEnabled", computePoolEnabled)
+            .put("autoTuneEnabled", autoTuneEnabled);
+    }
+    
+    public int getEffectiveCpus() { return effectiveCpus; }
+    public int getEventLoopThreads() { return eventLoopThreads; }
+    public int getVerticleInstances() { return verticleInstances; }
+    public int getWorkersPerVerticle() { return workersPerVerticle; }
+    public int getMaxWorkersPerVerticle() { return maxWorkersPerVerticle; }
+    public int getInternalBlockingPoolSize() { return internalBlockingPoolSize; }
+    public int getComputeParallelism() { return computeParallelism; }
+    public boolean isComputePoolEnabled() { return computePoolEnabled; }
+    public boolean isAutoTuneEnabled() { return autoTuneEnabled; }
+    
+    // Threads actually created per verticle; the auto-tuner needs headroom above the starting concurrency
+    public int getWorkerThreadsPerVerticle() {
+        return autoTuneEnabled ? maxWorkersPerVerticle : workersPerVerticle;
+    }
+    
+    public int getWorkerPoolSize() {
+        return verticleInstances * getWorkerThreadsPerVerticle();
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-thread CPU time from ThreadMXBean, grouped by the pool a thread belongs to. A single snapshot gives CPU
+// time since each thread started; the difference between two snapshots gives where the CPU went during the
+// interval, and utilization (CPU time / wall time) in cores. Threads that started or ended in between are
+// counted from zero or left out. Walks every live thread, so callers take snapshots off the event loop.
+public final class ThreadCpuAccounting {
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    
+    public enum Category {
+        EVENT_LOOP("eventLoop"),
+        WORKER("worker"),
+        INTERNAL_BLOCKING("internalBlocking"),
+        COMPUTE("compute"),
+        OTHER("other");
+        
+        private final String jsonName;
+        
+        Category(String jsonName) {
+            this.jsonName = jsonName;
+        }
+        
+        public String jsonName() {
+            return jsonName;
+        }
+        
+        public static Category of(String threadName) {
+            if (threadName.startsWith("vert.x-eventloop-thread-") || threadName.startsWith("vert.x-acceptor-thread-")) {
+                return EVENT_LOOP;
+            } else if (threadName.startsWith("vert.x-internal-blocking-")) {
+                return INTERNAL_BLOCKING;
+            } else if (threadName.startsWith(ComputeExecutor.THREAD_PREFIX)) {
+                return COMPUTE;
+            } else if (threadName.contains("worker")) {
+                // vert.x-worker-thread-N and the per-verticle worker-pool-verticle-* executors
+                return WORKER;
+            }
+            return OTHER;
+        }
+    }
+    
+    private ThreadCpuAccounting() {
+    }
+    
+    public record ThreadCpu(long id, String name, Category category, long cpuNanos, long userNanos) {
+    }
+    
+    public record Snapshot(long takenAtNanos, Map<Long, ThreadCpu> threads) {
+    }
+    
+    public static boolean isSupported() {
+        return THREADS.isThreadCpuTimeSupported();
+    }
+    
+    public static Snapshot snapshot() {
+        if (!THREADS.isThreadCpuTimeEnabled()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+        long takenAt = System.nanoTime();
+        Map<Long, ThreadCpu> threads = new HashMap<>();
+        // Depth 0: names only, no stack walk
+        for (ThreadInfo info : THREADS.getThreadInfo(THREADS.getAllThreadIds(), 0)) {
+            if (info == null) {
+                continue;
+            }
+            long id = info.getThreadId();
+            long cpu = THREADS.getThreadCpuTime(id);
+            long user = THREADS.getThreadUserTime(id);
+            // -1 once the thread has ended between listing it and reading its times
+            if (cpu >= 0) {
+                threads.put(id, new ThreadCpu(id, info.getThreadName(), Category.of(info.getThreadName()),
+                                              cpu, Math.max(0, user)));
+            }
+        }
+        return new Snapshot(takenAt, threads);
+    }
+    
+    // CPU used between the two snapshots; pass null as before for totals since thread start
+    public static JsonObject toJson(Snapshot before, Snapshot after, int topPerCategory) {
+        Map<Category, List<ThreadCpu>> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, new ArrayList<>());
+        }
+        for (ThreadCpu thread : after.threads().values()) {
+            ThreadCpu previous = before != null ? before.threads().get(thread.id()) : null;
+            // User time advances in scheduler ticks, so its difference is clamped rather than trusted below a tick
+            ThreadCpu used = previous == null ? thread : new ThreadCpu(
+                thread.id(), thread.name(), thread.category(),
+                Math.max(0, thread.cpuNanos() - previous.cpuNanos()),
+                Math.max(0, thread.userNanos() - previous.userNanos()));
+            byCategory.get(thread.category()).add(used);
+        }
+        
+        long wallNanos = before != null ? after.takenAtNanos() - before.takenAtNanos() : 0;
+        long totalCpu = 0;
+        JsonObject groups = new JsonObject();
+        for (Map.Entry<Category, List<ThreadCpu>> entry : byCategory.entrySet()) {
+            List<ThreadCpu> threads = entry.getValue();
+            threads.sort(Comparator.comparingLong(ThreadCpu::cpuNanos).reversed());
+            long cpu = 0;
+            long user = 0;
+            for (ThreadCpu thread : threads) {
+                cpu += thread.cpuNanos();
+                user += thread.userNanos();
+            }
+            totalCpu += cpu;
+            JsonArray top = new JsonArray();
+            for (ThreadCpu thread : threads.subList(0, Math.min(topPerCategory, threads.size()))) {
+                top.add(new JsonObject()
+                    .put("name", thread.name())
+                    .put("cpuMillis", millis(thread.cpuNanos()))
+                    .put("userMillis", millis(thread.userNanos())));
+            }
+            JsonObject group = new JsonObject()
+                .put("threads", threads.size())
+                .put("cpuMillis", millis(cpu))
+                .put("userMillis", millis(user))
+                .put("systemMillis", millis(Math.max(0, cpu - user)));
+            if (wallNanos > 0) {
+                group.put("cores", cores(cpu, wallNanos));
+            }
+            groups.put(entry.getKey().jsonName(), group.put("top", top));
+        }
+        
+        JsonObject json = new JsonObject()
+            .put("intervalMillis", millis(wallNanos))
+            .put("availableProcessors", Runtime.getRuntime().availableProcessors())
+            .put("totalCpuMillis", millis(totalCpu));
+        if (wallNanos > 0) {
+            json.put("totalCores", cores(totalCpu, wallNanos));
+        }
+        return json.put("groups", groups);
+    }
+    
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+    
+    private static double cores(long cpuNanos, long wallNanos) {
+        return Math.round(cpuNanos * 100.0 / wallNanos) / 100.0;
+    }
+}
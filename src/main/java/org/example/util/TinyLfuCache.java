@@ -0,0 +1,510 @@
+package org.example.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Bounded in-process cache with W-TinyLFU admission: new entries land in a small LRU window (1% of the
+// capacity) and, when they fall out of it, only displace an entry of the main segmented LRU if a 4-bit
+// count-min sketch has seen them more often. A burst of one-off keys therefore cannot flush the hot set, and a
+// key that keeps coming back earns its place. Entries also expire a fixed time after they were written.
+// Reads are a ConcurrentHashMap lookup plus an append to a lossy striped buffer; the policy structures are
+// only touched under a lock that readers merely try for when a buffer fills up, so hits never block. Writes
+// and evictions take the lock. get(key, loader) runs at most one load per key at a time: concurrent misses
+// share the first caller's Future. Failed loads and null results are not cached.
+public class TinyLfuCache<K, V> {
+    
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+    private static final int REMOVED = 4;
+    
+    private static final long NEVER = Long.MAX_VALUE;
+    
+    private static final int READ_STRIPES = 4;
+    private static final int READ_SLOTS = 32;
+    
+    private final long maximumSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Future<V>> loading = new ConcurrentHashMap<>();
+    
+    // Guarded by evictionLock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final WriteQueue<K, V> writeOrder = new WriteQueue<>();
+    private final long maxWindow;
+    private final long maxProtected;
+    
+    // Lossy: a full stripe drops the access, which only costs the sketch a sample
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_STRIPES * READ_SLOTS);
+    private final AtomicLongArray readTails = new AtomicLongArray(READ_STRIPES);
+    private final AtomicLongArray readHeads = new AtomicLongArray(READ_STRIPES);
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    // ttlMillis <= 0 disables expiry
+    public TinyLfuCache(long maximumSize, long ttlMillis) {
+        this(maximumSize, ttlMillis, System::nanoTime);
+    }
+    
+    TinyLfuCache(long maximumSize, long ttlMillis, LongSupplier nanoTime) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        this.nanoTime = nanoTime;
+        this.sketch = new FrequencySketch(maximumSize);
+        this.maxWindow = Math.max(1, maximumSize / 100);
+        this.maxProtected = (maximumSize - maxWindow) * 8 / 10;
+    }
+    
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (ttlNanos > 0 && node.isExpired(nanoTime.getAsLong())) {
+            misses.increment();
+            tryMaintenance();
+            return null;
+        }
+        hits.increment();
+        afterRead(node);
+        return node.value;
+    }
+    
+    public Future<V> get(K key, Function<K, Future<V>> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return Future.succeededFuture(cached);
+        }
+        Promise<V> promise = Promise.promise();
+        Future<V> inFlight = loading.putIfAbsent(key, promise.future());
+        if (inFlight != null) {
+            coalescedLoads.increment();
+            return inFlight;
+        }
+        // A load that completed between the lookup and the claim has already stored its value
+        Node<K, V> node = data.get(key);
+        if (node != null && !node.isExpired(nanoTime.getAsLong())) {
+            loading.remove(key, promise.future());
+            promise.complete(node.value);
+            return promise.future();
+        }
+        
+        loads.increment();
+        Future<V> load;
+        try {
+            load = loader.apply(key);
+        } catch (Throwable t) {
+            load = Future.failedFuture(t);
+        }
+        load.onComplete(result -> {
+            if (result.succeeded() && result.result() != null) {
+                put(key, result.result());
+            } else if (result.failed()) {
+                loadFailures.increment();
+            }
+            // Stored before the claim is released, so a concurrent miss sees one or the other
+            loading.remove(key, promise.future());
+            promise.handle(result);
+        });
+        return promise.future();
+    }
+    
+    public void put(K key, V value) {
+        Node<K, V> node = new Node<>(key, value, ttlNanos > 0 ? nanoTime.getAsLong() + ttlNanos : NEVER);
+        Node<K, V> previous = data.put(key, node);
+        evictionLock.lock();
+        try {
+            if (previous != null) {
+                unlink(previous);
+            }
+            // Replaced again before we got the lock
+            if (node.queue != REMOVED) {
+                sketch.increment(key);
+                node.queue = WINDOW;
+                window.addLast(node);
+                if (ttlNanos > 0) {
+                    writeOrder.addLast(node);
+                }
+            }
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    public void invalidate(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node != null) {
+            evictionLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+    
+    public long size() {
+        return data.size();
+    }
+    
+    public JsonObject toJson() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new JsonObject()
+            .put("size", data.size())
+            .put("maximumSize", maximumSize)
+            .put("ttlMillis", TimeUnit.NANOSECONDS.toMillis(ttlNanos))
+            .put("hits", hitCount)
+            .put("misses", missCount)
+            .put("hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests)
+            .put("loads", loads.sum())
+            .put("loadFailures", loadFailures.sum())
+            .put("coalescedLoads", coalescedLoads.sum())
+            .put("evictions", evictions.sum())
+            .put("expirations", expirations.sum());
+    }
+    
+    private void afterRead(Node<K, V> node) {
+        int stripe = (int) (Thread.currentThread().threadId() & (READ_STRIPES - 1));
+        long head = readHeads.get(stripe);
+        long tail = readTails.get(stripe);
+        if (tail - head >= READ_SLOTS || !readTails.compareAndSet(stripe, tail, tail + 1)) {
+            return;
+        }
+        readBuffer.lazySet(stripe * READ_SLOTS + (int) (tail & (READ_SLOTS - 1)), node);
+        if (tail + 1 - head >= READ_SLOTS / 2) {
+            tryMaintenance();
+        }
+    }
+    
+    private void tryMaintenance() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+    
+    private void maintenance() {
+        drainReadBuffer();
+        expire();
+        evict();
+    }
+    
+    private void drainReadBuffer() {
+        for (int stripe = 0; stripe < READ_STRIPES; stripe++) {
+            long head = readHeads.get(stripe);
+            long tail = readTails.get(stripe);
+            for (; head < tail; head++) {
+                int index = stripe * READ_SLOTS + (int) (head & (READ_SLOTS - 1));
+                Node<K, V> node = readBuffer.get(index);
+                if (node == null) {
+                    // Claimed but not yet published; picked up by the next drain
+                    break;
+                }
+                readBuffer.lazySet(index, null);
+                onAccess(node);
+            }
+            readHeads.set(stripe, head);
+        }
+    }
+    
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                sketch.increment(node.key);
+                window.moveToBack(node);
+            }
+            case PROBATION -> {
+                sketch.increment(node.key);
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                // Demoted entries get another chance in probation rather than being evicted outright
+                while (protectedQueue.size > maxProtected) {
+                    Node<K, V> demoted = protectedQueue.pollFirst();
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            case PROTECTED -> {
+                sketch.increment(node.key);
+                protectedQueue.moveToBack(node);
+            }
+            default -> {
+                // Removed since it was read, or not linked yet
+            }
+        }
+    }
+    
+    // Every entry lives for the same ttl, so write order is expiry order
+    private void expire() {
+        if (ttlNanos == 0) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        Node<K, V> node;
+        while ((node = writeOrder.first) != null && node.isExpired(now)) {
+            data.remove(node.key, node);
+            unlink(node);
+            expirations.increment();
+        }
+    }
+    
+    private void evict() {
+        // This round's arrivals from the window: the tail of probation from the first of them on. Entries
+        // demoted from protected are appended there too, but only while draining reads, never in here.
+        Node<K, V> candidate = null;
+        while (window.size > maxWindow) {
+            Node<K, V> arrival = window.pollFirst();
+            arrival.queue = PROBATION;
+            probation.addLast(arrival);
+            if (candidate == null) {
+                candidate = arrival;
+            }
+        }
+        while (window.size + probation.size + protectedQueue.size > maximumSize) {
+            // Each arrival, oldest first, against the probation entry that would go first
+            Node<K, V> victim = probation.first;
+            Node<K, V> evicted;
+            if (victim == null) {
+                evicted = protectedQueue.first != null ? protectedQueue.first : window.first;
+            } else if (candidate == null || victim == candidate) {
+                evicted = victim;
+            } else {
+                evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+            if (evicted == candidate) {
+                candidate = candidate.next;
+            }
+            data.remove(evicted.key, evicted);
+            unlink(evicted);
+            evictions.increment();
+        }
+    }
+    
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.remove(node);
+            case PROBATION -> probation.remove(node);
+            case PROTECTED -> protectedQueue.remove(node);
+            default -> {
+            }
+        }
+        if (node.queue != REMOVED && node.queue != 0 && ttlNanos > 0) {
+            writeOrder.remove(node);
+        }
+        node.queue = REMOVED;
+    }
+    
+    private static final class Node<K, V> {
+        
+        final K key;
+        final V value;
+        final long expiresAtNanos;
+        // Guarded by evictionLock; 0 until linked
+        int queue;
+        Node<K, V> previous;
+        Node<K, V> next;
+        Node<K, V> previousWrite;
+        Node<K, V> nextWrite;
+        
+        Node(K key, V value, long expiresAtNanos) {
+            this.key = key;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+        
+        boolean isExpired(long now) {
+            // Compared as a difference: nanoTime may be negative or wrap
+            return expiresAtNanos != NEVER && now - expiresAtNanos >= 0;
+        }
+    }
+    
+    // Intrusive LRU list: first is the least recently used
+    private static final class AccessQueue<K, V> {
+        
+        Node<K, V> first;
+        Node<K, V> last;
+        long size;
+        
+        void addLast(Node<K, V> node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+        
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+        
+        Node<K, V> pollFirst() {
+            Node<K, V> node = first;
+            remove(node);
+            return node;
+        }
+        
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+    
+    private static final class WriteQueue<K, V> {
+        
+        Node<K, V> first;
+        Node<K, V> last;
+        
+        void addLast(Node<K, V> node) {
+            node.previousWrite = last;
+            node.nextWrite = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.nextWrite = node;
+            }
+            last = node;
+        }
+        
+        void remove(Node<K, V> node) {
+            if (node.previousWrite == null) {
+                first = node.nextWrite;
+            } else {
+                node.previousWrite.nextWrite = node.nextWrite;
+            }
+            if (node.nextWrite == null) {
+                last = node.previousWrite;
+            } else {
+                node.nextWrite.previousWrite = node.previousWrite;
+            }
+            node.previousWrite = null;
+            node.nextWrite = null;
+        }
+    }
+    
+    // Count-min sketch of 4-bit counters, sixteen to a long, four hashed rows per key. Once it has counted ten
+    // times the cache's capacity every counter is halved, so popularity ages out instead of saturating.
+    static final class FrequencySketch {
+        
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+        
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+        
+        FrequencySketch(long maximumSize) {
+            int capacity = Integer.highestOneBit((int) Math.min(Math.max(maximumSize, 16), 1 << 30) - 1) << 1;
+            this.table = new long[capacity];
+            this.tableMask = capacity - 1;
+            this.sampleSize = 10 * capacity;
+        }
+        
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+        
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+        
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+        
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+        
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & tableMask;
+        }
+        
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs at most `concurrency` tasks at a time on a worker executor sized for the maximum, queueing the rest, so the
+// auto-tuner can resize the effective pool at runtime (Vert.x worker executors have a fixed thread count)
+public class TunableWorkerPool {
+    
+    private final WorkerExecutor workerExecutor;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile int concurrency;
+    
+    // Time from submission until a worker starts the task, consumed by the auto-tuner
+    private final LongAdder queueWaitSum = new LongAdder();
+    private final LongAdder queueWaitSamples = new LongAdder();
+    
+    public TunableWorkerPool(WorkerExecutor workerExecutor, int concurrency) {
+        this.workerExecutor = workerExecutor;
+        this.concurrency = Math.max(1, concurrency);
+    }
+    
+    public <T> Future<T> executeBlocking(Handler<Promise<T>> handler) {
+        Promise<T> promise = Promise.promise();
+        long submittedNanos = System.nanoTime();
+        waiting.add(() -> workerExecutor.<T>executeBlocking(task -> {
+            recordQueueWait(System.nanoTime() - submittedNanos);
+            handler.handle(task);
+        }, false).onComplete(result -> {
+            running.decrementAndGet();
+            drain();
+            promise.handle(result);
+        }));
+        drain();
+        return promise.future();
+    }
+    
+    // Growing starts queued tasks straight away; shrinking lets running tasks finish
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        drain();
+    }
+    
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = running.get();
+            if (current >= concurrency) {
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable task = waiting.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                continue;
+            }
+            task.run();
+        }
+    }
+    
+    void recordQueueWait(long queueWaitNanos) {
+        queueWaitSum.add(queueWaitNanos);
+        queueWaitSamples.increment();
+    }
+    
+    // Average queue wait since the previous call, or -1 if nothing started
+    public long drainAverageQueueWaitNanos() {
+        long samples = queueWaitSamples.sumThenReset();
+        long sum = queueWaitSum.sumThenReset();
+        return samples == 0 ? -1 : sum / samples;
+    }
+    
+    public int getConcurrency() {
+        return concurrency;
+    }
+    
+    public int getRunning() {
+        return running.get();
+    }
+    
+    public int getQueued() {
+        return waiting.size();
+    }
+    
+    public JsonObject toJson() {
+        return new JsonObject()
+            .put("concurrency", concurrency)
+            .put("running", getRunning())
+            .put("queued", getQueued());
+    }
+}
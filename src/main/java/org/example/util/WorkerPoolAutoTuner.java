@@ -0,0 +1,136 @@
+package org.example.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.DoubleSupplier;
+
+public class WorkerPoolAutoTuner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WorkerPoolAutoTuner.class);
+    
+    private static final long INTERVAL_MILLIS = Long.getLong("threads.auto-tune.interval-ms", 5000L);
+    private static final long QUEUE_WAIT_THRESHOLD_NANOS = Long.getLong("threads.auto-tune.queue-wait-ms", 20L) * 1_000_000L;
+    private static final double HIGH_CPU = 0.85;
+    private static final double LOW_CPU = 0.60;
+    private static final int MAX_DECISIONS = 50;
+    // In-flight requests allowed per running worker: the excess queues in the pool, which is what makes queue wait
+    // observable and lets the tuner grow
+    private static final int QUEUE_HEADROOM = 2;
+    
+    private final String verticleId;
+    private final TunableWorkerPool workerPool;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final DoubleSupplier cpuLoad;
+    private final Deque<JsonObject> decisions = new ArrayDeque<>();
+    
+    private volatile int workerConcurrency;
+    private long timerId = -1;
+    
+    public WorkerPoolAutoTuner(String verticleId, TunableWorkerPool workerPool, ConcurrencyLimiter concurrencyLimiter,
+                               int initialWorkers, int maxWorkers) {
+        this(verticleId, workerPool, concurrencyLimiter, initialWorkers, maxWorkers,
+             processCpuLoad(ManagementFactory.getOperatingSystemMXBean()));
+    }
+    
+    WorkerPoolAutoTuner(String verticleId, TunableWorkerPool workerPool, ConcurrencyLimiter concurrencyLimiter,
+                        int initialWorkers, int maxWorkers, DoubleSupplier cpuLoad) {
+        this.verticleId = verticleId;
+        this.workerPool = workerPool;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.minWorkers = Math.max(1, Math.min(initialWorkers, maxWorkers) / 4);
+        this.maxWorkers = maxWorkers;
+        this.cpuLoad = cpuLoad;
+        apply(Math.min(initialWorkers, maxWorkers));
+    }
+    
+    public void start(Vertx vertx) {
+        timerId = vertx.setPeriodic(INTERVAL_MILLIS, id -> tick());
+        logger.info("Worker pool auto-tuner started for verticle {} (concurrency {}, range {}-{})",
+                   verticleId, workerConcurrency, minWorkers, maxWorkers);
+    }
+    
+    public void stop(Vertx vertx) {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+    
+    void tick() {
+        long queueWait = workerPool.drainAverageQueueWaitNanos();
+        double cpu = cpuLoad.getAsDouble();
+        int current = workerConcurrency;
+        int next = current;
+        String reason;
+        
+        if (cpu >= HIGH_CPU && current > minWorkers) {
+            // CPU is saturated: more runnable threads only add context switching
+            next = Math.max(minWorkers, current - Math.max(1, current / 5));
+            reason = "cpu-saturated";
+        } else if (queueWait >= QUEUE_WAIT_THRESHOLD_NANOS && cpu >= 0 && cpu < LOW_CPU && current < maxWorkers) {
+            // Tasks are queueing while the CPU is idle: workers are blocked on I/O, allow more of them
+            next = Math.min(maxWorkers, current + Math.max(1, current / 4));
+            reason = "queueing-with-idle-cpu";
+        } else {
+            return;
+        }
+        
+        apply(next);
+        logger.info("Auto-tuner for verticle {}: worker concurrency {} -> {} ({}, cpu={}, queueWait={}ms)",
+                   verticleId, current, next, reason, String.format("%.2f", cpu), queueWait / 1_000_000);
+        
+        JsonObject decision = new JsonObject()
+            .put("timestamp", System.currentTimeMillis())
+            .put("from", current)
+            .put("to", next)
+            .put("reason", reason)
+            .put("processCpuLoad", cpu)
+            .put("avgQueueWaitMillis", queueWait < 0 ? null : queueWait / 1_000_000.0);
+        synchronized (decisions) {
+            decisions.addFirst(decision);
+            if (decisions.size() > MAX_DECISIONS) {
+                decisions.removeLast();
+            }
+        }
+    }
+    
+    private void apply(int workers) {
+        workerConcurrency = workers;
+        workerPool.setConcurrency(workers);
+        concurrencyLimiter.setMaxLimit(workers * QUEUE_HEADROOM);
+    }
+    
+    // Process CPU load normalised to the container's CPU allotment, or -1 when the JVM cannot report it
+    private static DoubleSupplier processCpuLoad(OperatingSystemMXBean osBean) {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean)::getProcessCpuLoad;
+        }
+        return () -> {
+            double loadAverage = osBean.getSystemLoadAverage();
+            return loadAverage < 0 ? -1 : Math.min(1.0, loadAverage / osBean.getAvailableProcessors());
+        };
+    }
+    
+    public JsonObject toJson() {
+        JsonArray recent = new JsonArray();
+        synchronized (decisions) {
+            decisions.forEach(recent::add);
+        }
+        return new JsonObject()
+            .put("verticleId", verticleId)
+            .put("workerConcurrency", workerConcurrency)
+            .put("minWorkers", minWorkers)
+            .put("maxWorkers", maxWorkers)
+            .put("pool", workerPool.toJson())
+            .put("decisions", recent);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.controller;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.example.util.ComputeExecutor;
+import org.example.util.ConcurrencyLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputeDispatchTest {
+    
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ConcurrencyLimiter workerLimiter = new ConcurrencyLimiter("worker-test", 1, 1, 1);
+    private Vertx vertx;
+    private WorkerExecutor workers;
+    private SplitController controller;
+    private int port;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        workers = vertx.createSharedWorkerExecutor("compute-dispatch-test", 2);
+        controller = new SplitController(vertx, workers);
+        controller.setConcurrencyLimiter(workerLimiter);
+        Router router = Router.router(vertx);
+        router.get("/blocking").handler(controller::blocking);
+        router.get("/compute").handler(controller::compute);
+        port = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .actualPort();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        controller.release.countDown();
+        workers.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void computeRoutesDoNotTakeWorkerPermits() throws Exception {
+        CompletableFuture<HttpResponse<String>> blocked = get("/blocking");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (workerLimiter.getInFlight() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, workerLimiter.getInFlight());
+        assertEquals(503, get("/blocking").get(5, TimeUnit.SECONDS).statusCode());
+        
+        long computeAccepted = ComputeExecutor.shared().getLimiter().toJson().getLong("accepted");
+        HttpResponse<String> computed = get("/compute").get(5, TimeUnit.SECONDS);
+        assertEquals(200, computed.statusCode());
+        assertTrue(computed.body().contains(ComputeExecutor.THREAD_PREFIX), computed.body());
+        assertEquals(computeAccepted + 1, ComputeExecutor.shared().getLimiter().toJson().getLong("accepted"));
+        
+        controller.release.countDown();
+        assertEquals(200, blocked.get(5, TimeUnit.SECONDS).statusCode());
+    }
+    
+    private CompletableFuture<HttpResponse<String>> get(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private static final class SplitController extends AbstractHttpController {
+        
+        final CountDownLatch release = new CountDownLatch(1);
+        
+        SplitController(Vertx vertx, WorkerExecutor workerExecutor) {
+            super(vertx, workerExecutor);
+        }
+        
+        void blocking(RoutingContext context) {
+            handleAsyncWithWorker(context, promise -> {
+                try {
+                    release.await();
+                    sendJsonResponse(context, Map.of("thread", Thread.currentThread().getName()));
+                    promise.complete();
+                } catch (InterruptedException e) {
+                    promise.fail(e);
+                }
+            });
+        }
+        
+        void compute(RoutingContext context) {
+            handleAsyncWithCompute(context, promise -> {
+                sendJsonResponse(context, Map.of("thread", Thread.currentThread().getName()));
+                promise.complete();
+            });
+        }
+    }
+}
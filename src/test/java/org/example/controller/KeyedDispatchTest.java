@@ -0,0 +1,121 @@
+package org.example.controller;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.example.util.RequestDeadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyedDispatchTest {
+    
+    // The default keyed.max-queued-per-key
+    private static final int MAX_QUEUED = 32;
+    private static final int FLOOD = MAX_QUEUED + 10;
+    
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private Vertx vertx;
+    private WorkerExecutor workers;
+    private ItemController controller;
+    private int port;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        workers = vertx.createSharedWorkerExecutor("keyed-dispatch-test", 4);
+        controller = new ItemController(vertx, workers);
+        Router router = Router.router(vertx);
+        router.put("/items/:id").handler(controller::update);
+        port = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .actualPort();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        controller.release.countDown();
+        workers.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void floodingOneKeyShedsTheOverflowAndTimesOutTheQueue() throws Exception {
+        CompletableFuture<HttpResponse<String>> running = put("hot", 10_000);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (controller.started.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, controller.started.get());
+        
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < FLOOD; i++) {
+            responses.add(put("hot", 300));
+        }
+        Map<Integer, Long> statuses = responses.stream()
+            .map(CompletableFuture::join)
+            .collect(Collectors.groupingBy(HttpResponse::statusCode, Collectors.counting()));
+        
+        // MAX_QUEUED waited behind the running request until their deadline; the rest were refused on arrival
+        assertEquals(Map.of(503, (long) FLOOD - MAX_QUEUED, 504, (long) MAX_QUEUED), statuses);
+        assertEquals(1, controller.started.get(), "a request that timed out in the queue was started");
+        
+        // The expired requests leave the key without running once the first one is done
+        controller.release.countDown();
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, put("hot", 5_000).get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(2, controller.started.get());
+        assertEquals(0, controller.keyedExecutor.getActiveKeys());
+        assertEquals((long) FLOOD - MAX_QUEUED, controller.keyedExecutor.toJson().getLong("rejected"));
+    }
+    
+    private CompletableFuture<HttpResponse<String>> put(String id, long timeoutMillis) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/items/" + id))
+            .header(RequestDeadline.TIMEOUT_HEADER, String.valueOf(timeoutMillis))
+            .PUT(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    // Every update blocks until the test releases it
+    private static final class ItemController extends AbstractHttpController {
+        
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        
+        ItemController(Vertx vertx, WorkerExecutor workerExecutor) {
+            super(vertx, workerExecutor);
+        }
+        
+        void update(RoutingContext context) {
+            handleAsyncWithWorkerForKey(context, context.pathParam("id"), promise -> {
+                started.incrementAndGet();
+                try {
+                    release.await();
+                    sendJsonResponse(context, Map.of("id", context.pathParam("id")));
+                    promise.complete();
+                } catch (InterruptedException e) {
+                    promise.fail(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package org.example.feed;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import org.example.model.Order;
+import org.example.util.DrainCoordinator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderChangeFeedTest {
+    
+    private static final String END_OF_STREAM = "<end of stream>";
+    
+    private Vertx vertx;
+    private Context context;
+    private OrderChangeFeed feed;
+    private HttpServer server;
+    private final DrainCoordinator drainCoordinator = new DrainCoordinator(50, 1_000);
+    // Names of subscribers whose connection the server has closed
+    private final Set<String> closed = ConcurrentHashMap.newKeySet();
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void coalescesRapidUpdatesToOneOrderIntoItsLatestVersion() throws Exception {
+        start(16, 64, 200);
+        EventStream all = subscribe("all", null, null);
+        EventStream customer2 = subscribe("customer-2", "customer-2", null);
+        
+        // Delivered in one event-loop turn, so they all land between two flushes
+        onContext(() -> {
+            feed.publish(ChangeEvent.Type.CREATED, order("order-1", "customer-1", 1));
+            feed.publish(ChangeEvent.Type.CREATED, order("order-2", "customer-2", 1));
+            for (int version = 2; version <= 5; version++) {
+                feed.publish(ChangeEvent.Type.STATUS, order("order-1", "customer-1", version));
+            }
+        });
+        
+        // Re-queued on every update, so order-1 now comes after order-2
+        assertEquals("order-2", data(all.next()).getString("orderId"));
+        JsonObject latest = data(all.next());
+        assertEquals("order-1", latest.getString("orderId"));
+        assertEquals("status", latest.getString("type"));
+        assertEquals(5L, latest.getLong("version"));
+        assertNull(all.poll(300));
+        
+        assertEquals("order-2", data(customer2.next()).getString("orderId"));
+        assertNull(customer2.poll(300));
+    }
+    
+    @Test
+    void replaysEventsAfterLastEventId() throws Exception {
+        start(16, 64, 20);
+        EventStream first = subscribe("first", null, null);
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            feed.publish(ChangeEvent.Type.CREATED, order("order-" + i, "customer-1", 1));
+            ids.add(id(first.next()));
+        }
+        
+        EventStream resumed = subscribe("resumed", null, ids.get(0));
+        String second = resumed.next();
+        assertEquals(ids.get(1), id(second));
+        assertEquals("order-2", data(second).getString("orderId"));
+        assertEquals(ids.get(2), id(resumed.next()));
+        assertNull(resumed.poll(300));
+        
+        // Nothing newer than the latest event: the stream just continues live
+        EventStream upToDate = subscribe("up-to-date", null, ids.get(2));
+        assertNull(upToDate.poll(300));
+        feed.publish(ChangeEvent.Type.DELETED, order("order-1", "customer-1", 2));
+        String deleted = upToDate.next();
+        assertTrue(deleted.contains("event: deleted"), deleted);
+    }
+    
+    @Test
+    void sendsResetWhenTheMissedEventsFellOutOfHistory() throws Exception {
+        start(4, 64, 20);
+        EventStream live = subscribe("live", null, null);
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            feed.publish(ChangeEvent.Type.CREATED, order("order-" + i, "customer-1", 1));
+            ids.add(id(live.next()));
+        }
+        
+        EventStream tooOld = subscribe("too-old", null, ids.get(0));
+        String reset = tooOld.next();
+        assertTrue(reset.startsWith("event: reset"), reset);
+        assertNull(tooOld.poll(300));
+        
+        // Still in the last four events, so it resumes normally
+        EventStream recent = subscribe("recent", null, ids.get(3));
+        assertEquals(ids.get(4), id(recent.next()));
+        assertEquals(ids.get(5), id(recent.next()));
+    }
+    
+    @Test
+    void closesASubscriberWhoseSocketStaysBackedUp() throws Exception {
+        start(16, 16, 10);
+        EventStream fast = subscribe("fast", null, null);
+        // Never read, so its socket and then the server's write queue fill up
+        Socket slow = subscribeWithoutReading("slow");
+        
+        // Batches smaller than the pending limit, which a reading subscriber flushes every interval
+        String padding = "x".repeat(8_000);
+        int published = 0;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (subscriberCount() > 1 && System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < 5; i++) {
+                Order order = order("order-" + (published % 1_000), "customer-1", 1);
+                order.setItems(List.of(new Order.OrderItem("prod-1", padding, 1, BigDecimal.ONE),
+                                       new Order.OrderItem("prod-2", padding, 1, BigDecimal.ONE)));
+                feed.publish(ChangeEvent.Type.UPDATED, order);
+                published++;
+            }
+            Thread.sleep(25);
+        }
+        assertEquals(1, subscriberCount(), "slow subscriber still subscribed after " + published + " events");
+        
+        // The slow client gets what was already queued and then the end of the stream
+        slow.setSoTimeout(10_000);
+        InputStream in = slow.getInputStream();
+        byte[] buffer = new byte[64 * 1024];
+        while (in.read(buffer) >= 0) {
+            // Drain until the server closes the connection
+        }
+        slow.close();
+        
+        // The fast subscriber keeps its stream and gets what comes next
+        feed.publish(ChangeEvent.Type.DELETED, order("order-last", "customer-1", 1));
+        String frame;
+        do {
+            frame = fast.next();
+        } while (!frame.contains("\"orderId\":\"order-last\""));
+        assertFalse(closed.contains("fast"));
+    }
+    
+    @Test
+    void holdsADrainListenerOnlyWhileStreamsAreOpen() throws Exception {
+        start(16, 64, 20);
+        assertEquals(0, closeListeners());
+        Socket first = subscribeWithoutReading("first");
+        Socket second = subscribeWithoutReading("second");
+        assertEquals(1, closeListeners(), "one listener for the feed, not one per stream");
+        
+        first.close();
+        second.close();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (subscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, subscriberCount());
+        assertEquals(0, closeListeners());
+        
+        // A stream opened afterwards is still ended by the drain
+        EventStream stream = subscribe("late", null, null);
+        assertEquals(1, closeListeners());
+        drainCoordinator.drain();
+        assertEquals(END_OF_STREAM, stream.poll(5_000));
+        assertEquals(0, subscriberCount());
+        assertEquals(0, closeListeners());
+    }
+    
+    private int closeListeners() {
+        return drainCoordinator.toJson().getInteger("closeListeners");
+    }
+    
+    private int subscriberCount() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        onContext(() -> count.set(feed.subscriberCount()));
+        return count.get();
+    }
+    
+    private void start(int historySize, int maxPending, long flushIntervalMillis) throws Exception {
+        CompletableFuture<HttpServer> started = new CompletableFuture<>();
+        // The feed and the server share one event loop, as they do inside a verticle
+        context.runOnContext(v -> {
+            feed = new OrderChangeFeed(vertx, historySize, maxPending, flushIntervalMillis, drainCoordinator);
+            Router router = Router.router(vertx);
+            router.get("/stream").handler(routingContext -> {
+                String name = routingContext.queryParams().get("name");
+                routingContext.request().connection().closeHandler(closedConnection -> closed.add(name));
+                feed.subscribe(routingContext.response(),
+                               routingContext.queryParams().get("customerId"),
+                               routingContext.request().getHeader("Last-Event-ID"));
+            });
+            vertx.createHttpServer().requestHandler(router).listen(0)
+                 .onSuccess(started::complete)
+                 .onFailure(started::completeExceptionally);
+        });
+        server = started.get(5, TimeUnit.SECONDS);
+    }
+    
+    private void onContext(Runnable action) throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            action.run();
+            done.complete(null);
+        });
+        done.get(5, TimeUnit.SECONDS);
+    }
+    
+    private HttpResponse<InputStream> open(String name, String customerId, String lastEventId) throws Exception {
+        String query = "?name=" + name + (customerId != null ? "&customerId=" + customerId : "");
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.actualPort() + "/stream" + query));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        // A client per subscriber, so every stream has its own connection
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertEquals("text/event-stream", response.headers().firstValue("Content-Type").orElse(null));
+        return response;
+    }
+    
+    private EventStream subscribe(String name, String customerId, String lastEventId) throws Exception {
+        EventStream stream = new EventStream(open(name, customerId, lastEventId).body());
+        // The retry hint comes first; after it the subscription is in place
+        assertEquals("retry: 2000", stream.next());
+        return stream;
+    }
+    
+    // A raw socket with a small receive buffer: once the retry hint is read nothing else is, so the server's
+    // writes back up quickly (the JDK client would keep buffering the body on its own)
+    private Socket subscribeWithoutReading(String name) throws Exception {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", server.actualPort()));
+        socket.getOutputStream().write(("GET /stream?name=" + name + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII));
+        BufferedReader lines = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 1);
+        String line;
+        while ((line = lines.readLine()) != null && !line.equals("retry: 2000")) {
+            // Status line, headers and the chunk size
+        }
+        return socket;
+    }
+    
+    private static Order order(String id, String customerId, long version) {
+        Order order = new Order(id, customerId,
+            List.of(new Order.OrderItem("prod-1", "Laptop", 1, BigDecimal.TEN)), BigDecimal.TEN, Order.OrderStatus.PENDING);
+        order.setVersion(version);
+        return order;
+    }
+    
+    private static String id(String frame) {
+        assertTrue(frame.startsWith("id: "), frame);
+        return frame.substring(4, frame.indexOf('\n'));
+    }
+    
+    private static JsonObject data(String frame) {
+        int start = frame.indexOf("data: ");
+        assertTrue(start >= 0, frame);
+        return new JsonObject(frame.substring(start + 6));
+    }
+    
+    // SSE frames read on a background thread, without the trailing blank line; comments are skipped
+    private static final class EventStream {
+        
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        
+        EventStream(InputStream body) {
+            Thread reader = new Thread(() -> {
+                try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    StringBuilder frame = new StringBuilder();
+                    String line;
+                    while ((line = lines.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            frame.append(frame.length() == 0 ? "" : "\n").append(line);
+                        } else if (frame.length() > 0) {
+                            if (frame.charAt(0) != ':') {
+                                frames.add(frame.toString());
+                            }
+                            frame.setLength(0);
+                        }
+                    }
+                } catch (Exception e) {
+                    // The connection went away; treated like the end of the stream
+                }
+                frames.add(END_OF_STREAM);
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+        
+        String next() throws InterruptedException {
+            String frame = poll(5_000);
+            assertNotNull(frame, "no frame within 5 s");
+            assertFalse(frame.equals(END_OF_STREAM), "stream ended");
+            return frame;
+        }
+        
+        String poll(long timeoutMillis) throws InterruptedException {
+            return frames.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.route;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// Request round trip as the route count grows, router walk vs dispatch table. The target is registered last,
+// the worst case for the router's in-order walk. Run with: mvn -Pbenchmark -DskipTests verify
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DispatchTableBenchmark {
+    
+    @Param({"10", "100", "500"})
+    public int routeCount;
+    
+    @Param({"router", "table"})
+    public String dispatch;
+    
+    private Vertx vertx;
+    private HttpClient client;
+    private HttpRequest request;
+    
+    @Setup
+    public void start() throws Exception {
+        vertx = Vertx.vertx();
+        Router router = Router.router(vertx);
+        DispatchTable table = dispatch.equals("table") ? new DispatchTable() : null;
+        if (table != null) {
+            router.route().handler(table);
+        }
+        RouteRegistrar routes = new RouteRegistrar(router, table);
+        for (int i = 0; i < routeCount - 2; i++) {
+            routes.get("/api/resource" + i + "/:id/status", context -> context.response().end("padding"));
+        }
+        routes.get("/api/orders/stats", context -> context.response().end("stats"));
+        routes.get("/api/orders/:id/status", context -> context.response().end(context.pathParam("id")));
+        
+        int port = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .actualPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders/o-1/status")).build();
+    }
+    
+    @TearDown
+    public void stop() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Benchmark
+    public String dispatchToLastRoute() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
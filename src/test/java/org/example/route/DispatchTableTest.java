@@ -0,0 +1,124 @@
+package org.example.route;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DispatchTableTest {
+    
+    private Vertx vertx;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void resolvesEveryRequestLikeTheRouter() throws Exception {
+        List<String> requests = List.of(
+            "GET /health", "GET /health/", "GET /api/orders/stats", "GET /api/orders/order-1",
+            "GET /api/orders/order%2D1", "GET /api/orders/order-1/", "GET /api/orders/order-1/status",
+            "PUT /api/orders/order-1/status", "DELETE /api/orders/order-1/status",
+            "GET /api/orders/order-1/calculate-total", "GET /api/items/special", "GET /api/items/42",
+            "GET /api/x/lit/lit", "GET /api/x/lit/other", "GET /api/x/one/lit", "GET /api/unknown", "GET /");
+        
+        DispatchTable table = new DispatchTable();
+        String withTable = responses(startServer(table, this::sampleRoutes), requests);
+        String routerOnly = responses(startServer(null, this::sampleRoutes), requests);
+        
+        assertEquals(routerOnly, withTable);
+        assertTrue(table.toJson().getLong("hits") >= 8, table.toJson().encode());
+        // The chain, the shadowed literal and the overlapped /api/x/lit/:b stay with the router
+        assertEquals(3, table.getRouterOnlyRoutes());
+    }
+    
+    @Test
+    void servesTableRoutesAndLeavesTheRestToTheRouter() throws Exception {
+        DispatchTable table = new DispatchTable();
+        int port = startServer(table, this::sampleRoutes);
+        
+        assertEquals("GET /health -> 200 health {}\n", responses(port, List.of("GET /health")));
+        assertEquals(1, table.toJson().getLong("hits"));
+        
+        assertEquals("PUT /api/orders/o-7/status -> 200 put-status {\"id\":\"o-7\"}\n",
+            responses(port, List.of("PUT /api/orders/o-7/status")));
+        assertEquals(2, table.toJson().getLong("hits"));
+        
+        // A handler chain is router-only, and an unknown path falls through to the router's 404
+        assertEquals("GET /api/orders/o-7/calculate-total -> 200 total {\"id\":\"o-7\"}\n"
+                + "GET /api/unknown -> 404 <html><body><h1>Resource not found</h1></body></html>\n",
+            responses(port, List.of("GET /api/orders/o-7/calculate-total", "GET /api/unknown")));
+        assertEquals(2, table.toJson().getLong("hits"));
+        assertEquals(2, table.toJson().getLong("misses"));
+    }
+    
+    private void sampleRoutes(RouteRegistrar routes) {
+        routes.get("/health", reply("health"));
+        routes.get("/api/orders/stats", reply("stats"));
+        routes.get("/api/orders/:id", reply("order"));
+        routes.get("/api/orders/:id/status", reply("get-status"));
+        routes.put("/api/orders/:id/status", reply("put-status"));
+        routes.get("/api/orders/:id/calculate-total", RoutingContext::next, reply("total"));
+        // Registered after /:id, so the router never reaches it
+        routes.get("/api/items/:id", reply("item"));
+        routes.get("/api/items/special", reply("special"));
+        // Overlap where the earlier route is less specific at the first differing segment
+        routes.get("/api/x/:a/lit", reply("x-a"));
+        routes.get("/api/x/lit/:b", reply("x-b"));
+    }
+    
+    private static Handler<RoutingContext> reply(String name) {
+        return context -> context.response().end(name + " " + new JsonObject(new TreeMap<String, Object>(context.pathParams())).encode());
+    }
+    
+    private String responses(int port, List<String> requests) throws Exception {
+        StringBuilder result = new StringBuilder();
+        for (String request : requests) {
+            String[] parts = request.split(" ");
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + parts[1]))
+                           .method(parts[0], HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+            result.append(request).append(" -> ").append(response.statusCode()).append(' ')
+                  .append(response.body()).append('\n');
+        }
+        return result.toString();
+    }
+    
+    private int startServer(DispatchTable table, Consumer<RouteRegistrar> setup) throws Exception {
+        Router router = Router.router(vertx);
+        if (table != null) {
+            router.route().handler(table);
+        }
+        setup.accept(new RouteRegistrar(router, table));
+        HttpServer server = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        return server.actualPort();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.route;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.BodyHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteRegistrarTest {
+    
+    private Vertx vertx;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void streamingRoutesAreMatchedBeforeTheBodyIsBuffered() throws Exception {
+        for (DispatchTable table : new DispatchTable[] {null, new DispatchTable()}) {
+            int port = startServer(table);
+            String mode = table == null ? "router only" : "dispatch table";
+            
+            assertEquals("buffered 5", post(port, "/api/items", "hello"), mode);
+            assertEquals("buffered 5 for 42", post(port, "/api/items/42", "hello"), mode);
+            // /api/items/:id would match too, but the streaming route is registered ahead of it
+            assertEquals("streamed 12", post(port, "/api/items/import", "{}\n{}\n{}\n{}\n"), mode);
+        }
+    }
+    
+    private int startServer(DispatchTable table) throws Exception {
+        Router router = Router.router(vertx);
+        RouteRegistrar routes = new RouteRegistrar(router, table, BodyHandler.create());
+        routes.post("/api/items", context ->
+            context.response().end("buffered " + context.body().length()));
+        routes.post("/api/items/:id", context ->
+            context.response().end("buffered " + context.body().length() + " for " + context.pathParam("id")));
+        routes.streaming().post("/api/items/import", context -> {
+            if (context.body().available()) {
+                context.response().setStatusCode(500).end("body was buffered");
+                return;
+            }
+            context.request().body().onSuccess(body -> context.response().end("streamed " + body.length()));
+        });
+        routes.complete();
+        
+        return vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .actualPort();
+    }
+    
+    private String post(int port, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
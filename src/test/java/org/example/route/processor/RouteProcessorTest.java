@@ -0,0 +1,164 @@
+package org.example.route.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteProcessorTest {
+    
+    private static final String HEADER = """
+        package sample;
+        
+        import io.vertx.core.Handler;
+        import io.vertx.core.Vertx;
+        import io.vertx.core.WorkerExecutor;
+        import io.vertx.ext.web.RoutingContext;
+        import org.example.route.*;
+        
+        @HttpController
+        public class ItemController {
+            
+            public ItemController(Vertx vertx, WorkerExecutor workerExecutor) {
+            }
+            
+            Handler<RoutingContext> rateLimit(String policy, double permitsPerSecond, int burst) {
+                return RoutingContext::next;
+            }
+            
+            Handler<RoutingContext> deadline(long timeoutMillis) {
+                return RoutingContext::next;
+            }
+        """;
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void generatesRouteTableWithParameterExtraction() throws IOException {
+        Result result = compile(HEADER + """
+                @Get("/api/items")
+                void list(RoutingContext context) {
+                }
+                
+                @Get("/api/items/search")
+                void search(RoutingContext context, @QueryParam("q") String query) {
+                }
+                
+                @Post("/api/items/import")
+                @StreamingBody
+                void importItems(RoutingContext context) {
+                }
+                
+                @Put("/api/items/:id")
+                @RateLimited(policy = "writes", permitsPerSecond = 2, burst = 4)
+                @Deadline(1500)
+                void update(RoutingContext context, @PathParam("id") String id) {
+                }
+            }
+            """);
+        
+        assertTrue(result.succeeded(), result.errors());
+        String table = result.generated("sample/ItemControllerRoutes.java");
+        assertTrue(table.contains("routes.get(\"/api/items\",\n            controller::list);"), table);
+        assertTrue(table.contains("controller.search(context, context.queryParams().get(\"q\"))"), table);
+        assertTrue(table.contains("routes.put(\"/api/items/:id\",\n"
+            + "            controller.rateLimit(\"writes\", 2.0, 4),\n"
+            + "            controller.deadline(1500L),\n"
+            + "            context -> controller.update(context, context.pathParam(\"id\")));"), table);
+        assertTrue(table.contains("routes.streaming().post(\"/api/items/import\",\n            controller::importItems);"), table);
+        assertTrue(table.contains("return 4;"), table);
+        // Literal routes declared before the parameterized one keep their precedence
+        assertTrue(table.indexOf("/api/items/search") < table.indexOf("/api/items/:id"), table);
+        assertTrue(result.generated("org/example/route/GeneratedRoutes.java")
+                         .contains("new sample.ItemControllerRoutes()"));
+    }
+    
+    @Test
+    void rejectsRouteShadowedByEarlierParameterizedRoute() throws IOException {
+        Result result = compile(HEADER + """
+                @Get("/api/items/:id")
+                void get(RoutingContext context, @PathParam("id") String id) {
+                }
+                
+                @Get("/api/items/search")
+                void search(RoutingContext context) {
+                }
+            }
+            """);
+        
+        assertFalse(result.succeeded());
+        assertTrue(result.errors().contains("GET /api/items/search can never match"), result.errors());
+    }
+    
+    @Test
+    void rejectsInvalidHandlers() throws IOException {
+        Result result = compile(HEADER + """
+                @Get("/api/items/:id")
+                void get(RoutingContext context, @PathParam("itemId") String id) {
+                }
+                
+                @Post("/api/items")
+                private void create(RoutingContext context) {
+                }
+                
+                @Delete("/api/items/:id")
+                void delete(@PathParam("id") String id) {
+                }
+            }
+            """);
+        
+        assertFalse(result.succeeded());
+        assertTrue(result.errors().contains("has no :itemId segment"), result.errors());
+        assertTrue(result.errors().contains("must be non-private instance methods"), result.errors());
+        assertTrue(result.errors().contains("take the RoutingContext"), result.errors());
+    }
+    
+    private Result compile(String source) throws IOException {
+        Path sourceFile = dir.resolve("src/sample/ItemController.java");
+        Path generated = dir.resolve("generated");
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(sourceFile.getParent());
+        Files.createDirectories(generated);
+        Files.createDirectories(classes);
+        Files.writeString(sourceFile, source);
+        
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                List.of("-classpath", System.getProperty("java.class.path"),
+                        "-d", classes.toString(), "-s", generated.toString()),
+                null, files.getJavaFileObjects(sourceFile));
+            task.setProcessors(List.of(new RouteProcessor()));
+            boolean succeeded = task.call();
+            String errors = diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(Locale.ROOT))
+                .collect(Collectors.joining("\n"));
+            return new Result(succeeded, errors, generated);
+        }
+    }
+    
+    private record Result(boolean succeeded, String errors, Path generatedDir) {
+        
+        String generated(String path) throws IOException {
+            return Files.readString(generatedDir.resolve(path));
+        }
+    }
+}
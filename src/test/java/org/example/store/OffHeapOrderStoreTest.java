@@ -0,0 +1,135 @@
+package org.example.store;
+
+import org.example.model.Order;
+import org.example.model.Order.OrderItem;
+import org.example.model.Order.OrderStatus;
+import org.example.store.VersionedStore.UpdateResult;
+import org.example.util.JsonSupport;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapOrderStoreTest {
+    
+    private static final int FOOTPRINT_ORDERS = 200_000;
+    
+    @Test
+    void roundTripPreservesEveryField() throws Exception {
+        OffHeapOrderStore store = new OffHeapOrderStore(64 * 1024, 16);
+        Order order = order("order-ü-1", 3);
+        order.setTotalAmount(new BigDecimal("123456789012345678901234567890.12345"));
+        order.setCreatedAt(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789));
+        order.setUpdatedAt(null);
+        UpdateResult<Order> inserted = store.insert(order.getId(), order);
+        assertEquals(UpdateResult.Status.UPDATED, inserted.getStatus());
+        assertEquals(1, inserted.getCurrent().getVersion());
+        
+        Order nullable = new Order();
+        nullable.setId("order-empty");
+        UpdateResult<Order> insertedNullable = store.insert(nullable.getId(), nullable);
+        assertEquals(UpdateResult.Status.UPDATED, insertedNullable.getStatus());
+        UpdateResult<Order> duplicate = store.insert(order.getId(), order("order-ü-1", 1));
+        assertEquals(UpdateResult.Status.CONFLICT, duplicate.getStatus());
+        assertEquals(json(inserted.getCurrent()), json(duplicate.getCurrent()));
+        
+        assertEquals(json(inserted.getCurrent()), json(store.get(order.getId())));
+        assertEquals(json(insertedNullable.getCurrent()), json(store.get("order-empty")));
+        assertNull(store.get("missing"));
+    }
+    
+    @Test
+    void versionedUpdatesSurviveResizeAndCompaction() {
+        // Tiny segments so updates and removals trigger compaction several times
+        OffHeapOrderStore store = new OffHeapOrderStore(16 * 1024, 16);
+        int orders = 2_000;
+        for (int i = 0; i < orders; i++) {
+            store.insert("order-" + i, order("order-" + i, 1 + i % 4));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < orders; i++) {
+                UpdateResult<Order> result = store.update("order-" + i, 1 + round, current -> {
+                    Order next = new Order(current);
+                    next.setStatus(OrderStatus.values()[(current.getStatus().ordinal() + 1) % OrderStatus.values().length]);
+                    return next;
+                });
+                assertEquals(UpdateResult.Status.UPDATED, result.getStatus());
+            }
+        }
+        assertEquals(UpdateResult.Status.CONFLICT,
+                     store.update("order-0", 1, current -> new Order(current)).getStatus());
+        for (int i = 0; i < orders; i += 2) {
+            assertEquals(UpdateResult.Status.UPDATED, store.remove("order-" + i, 6).getStatus());
+        }
+        
+        assertEquals(orders / 2, store.size());
+        assertTrue(store.toJson().getLong("compactions") > 0);
+        for (int i = 1; i < orders; i += 2) {
+            Order order = store.get("order-" + i);
+            assertEquals(6, order.getVersion());
+            assertEquals(1 + i % 4, order.getItems().size());
+            assertEquals(OrderStatus.values()[5 % OrderStatus.values().length], order.getStatus());
+        }
+        
+        int iterated = 0;
+        for (Iterator<Order> it = store.iterator(); it.hasNext(); it.next()) {
+            iterated++;
+        }
+        assertEquals(orders / 2, iterated);
+    }
+    
+    @Test
+    void keepsOrdersOffTheHeap() {
+        List<EntityStore<Order>> holder = new ArrayList<>();
+        long baseline = usedHeapAfterGc();
+        
+        holder.add(fill(new VersionedStore<>(Order::new)));
+        long heapStoreBytes = usedHeapAfterGc() - baseline;
+        holder.clear();
+        
+        baseline = usedHeapAfterGc();
+        OffHeapOrderStore offHeap = fill(new OffHeapOrderStore());
+        holder.add(offHeap);
+        long offHeapStoreBytes = usedHeapAfterGc() - baseline;
+        
+        assertTrue(offHeapStoreBytes * 4 < heapStoreBytes,
+                   "off-heap store should use a fraction of the heap: " + offHeapStoreBytes + " vs " + heapStoreBytes);
+        assertEquals(FOOTPRINT_ORDERS, holder.get(0).size());
+    }
+    
+    private static <S extends EntityStore<Order>> S fill(S store) {
+        for (int i = 0; i < FOOTPRINT_ORDERS; i++) {
+            String id = "order-" + i;
+            store.insert(id, order(id, 1 + i % 3));
+        }
+        return store;
+    }
+    
+    private static Order order(String id, int itemCount) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItem("prod-" + i, "Product " + i, i + 1, new BigDecimal("19.99")));
+        }
+        BigDecimal total = items.stream().map(OrderItem::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new Order(id, "customer-" + (id.hashCode() & 1023), List.copyOf(items), total, OrderStatus.PENDING);
+    }
+    
+    private static String json(Order order) throws Exception {
+        return JsonSupport.mapper().writeValueAsString(order);
+    }
+    
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.store;
+
+import org.example.model.Order;
+import org.example.model.Order.OrderItem;
+import org.example.model.Order.OrderStatus;
+import org.example.store.VersionedStore.UpdateResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderAggregatesTest {
+    
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+    private static final int ORDER_IDS = 2_000;
+    private static final int CUSTOMERS = 50;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    
+    @Test
+    void matchesFullRecomputationAfterConcurrentWrites() throws Exception {
+        assertConsistentAfterConcurrentWrites(new VersionedStore<>(Order::new));
+    }
+    
+    @Test
+    void matchesFullRecomputationWithOffHeapStore() throws Exception {
+        assertConsistentAfterConcurrentWrites(new OffHeapOrderStore(1024 * 1024, 1024));
+    }
+    
+    @Test
+    void dropsCustomersWhoseOrdersAreAllRemoved() {
+        OrderAggregates aggregates = new OrderAggregates();
+        for (int i = 0; i < 1_000; i++) {
+            Order order = order("order-" + i, ThreadLocalRandom.current());
+            order.setCustomerId("one-off-" + i);
+            aggregates.apply(null, order);
+            aggregates.apply(order, null);
+        }
+        Order kept = order("order-kept", ThreadLocalRandom.current());
+        aggregates.apply(null, kept);
+        
+        assertEquals(1, aggregates.toJson().getInteger("customers"));
+        assertEquals(1, aggregates.orders(kept.getCustomerId()));
+        assertEquals(0, aggregates.orders("one-off-0"));
+    }
+    
+    private static void assertConsistentAfterConcurrentWrites(EntityStore<Order> store) throws Exception {
+        OrderAggregates aggregates = new OrderAggregates();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> mutate(store, aggregates)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        long orders = 0;
+        long revenue = 0;
+        long[] statusOrders = new long[STATUSES.length];
+        long[] statusRevenue = new long[STATUSES.length];
+        Map<String, long[]> customers = new HashMap<>();
+        for (Order order : store.values()) {
+            long amount = order.getTotalAmount().movePointRight(2).longValueExact();
+            orders++;
+            revenue += amount;
+            statusOrders[order.getStatus().ordinal()]++;
+            statusRevenue[order.getStatus().ordinal()] += amount;
+            long[] customer = customers.computeIfAbsent(order.getCustomerId(), key -> new long[2]);
+            customer[0]++;
+            customer[1] += amount;
+        }
+        
+        assertEquals(orders, aggregates.orders());
+        assertEquals(revenue, aggregates.revenueMinorUnits());
+        for (OrderStatus status : STATUSES) {
+            assertEquals(statusOrders[status.ordinal()], aggregates.orders(status), status.name());
+            assertEquals(statusRevenue[status.ordinal()], aggregates.revenueMinorUnits(status), status.name());
+        }
+        for (int c = 0; c < CUSTOMERS; c++) {
+            long[] customer = customers.getOrDefault("customer-" + c, new long[2]);
+            assertEquals(customer[0], aggregates.orders("customer-" + c));
+            assertEquals(customer[1], aggregates.revenueMinorUnits("customer-" + c));
+        }
+        assertEquals(customers.size(), aggregates.toJson().getInteger("customers"));
+    }
+    
+    // Random upserts, status transitions, re-pricing and deletions racing on a small set of ids
+    private static void mutate(EntityStore<Order> store, OrderAggregates aggregates) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            String id = "order-" + random.nextInt(ORDER_IDS);
+            switch (random.nextInt(4)) {
+                case 0:
+                    aggregates.apply(store.upsert(id, order(id, random)));
+                    break;
+                case 1:
+                    OrderStatus status = STATUSES[random.nextInt(STATUSES.length)];
+                    aggregates.apply(store.update(id, EntityStore.ANY_VERSION, current -> {
+                        Order next = new Order(current);
+                        next.setStatus(status);
+                        return next;
+                    }));
+                    break;
+                case 2:
+                    Order replacement = order(id, random);
+                    aggregates.apply(store.update(id, EntityStore.ANY_VERSION, current -> replacement));
+                    break;
+                default:
+                    aggregates.apply(store.remove(id, EntityStore.ANY_VERSION));
+            }
+        }
+    }
+    
+    private static Order order(String id, ThreadLocalRandom random) {
+        BigDecimal unitPrice = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+        int quantity = 1 + random.nextInt(3);
+        List<OrderItem> items = List.of(new OrderItem("prod-1", "Product", quantity, unitPrice));
+        return new Order(id, "customer-" + random.nextInt(CUSTOMERS), items,
+                         unitPrice.multiply(BigDecimal.valueOf(quantity)), STATUSES[random.nextInt(STATUSES.length)]);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Order;
+import org.example.model.Order.OrderItem;
+import org.example.model.Product;
+import org.example.util.JsonSupport;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCatalogTest {
+    
+    private static final int ORDERS = 100_000;
+    private static final int PRODUCTS = 2_000;
+    
+    @Test
+    void sharesOneEntryPerProduct() {
+        ProductCatalog catalog = new ProductCatalog(3);
+        Product laptop = catalog.canonical(new Product("prod-1", "Laptop"));
+        assertSame(laptop, catalog.canonical(new Product(new String("prod-1"), new String("Laptop"))));
+        
+        // A renamed product is a separate entry; the old name keeps resolving to the original
+        Product renamed = catalog.canonical(new Product("prod-1", "Laptop Pro"));
+        assertNotSame(laptop, renamed);
+        assertSame(renamed, catalog.canonical(new Product("prod-1", "Laptop Pro")));
+        assertSame(laptop, catalog.canonical(new Product("prod-1", "Laptop")));
+        
+        catalog.canonical(new Product("prod-2", "Mouse"));
+        assertEquals(3, catalog.size());
+        // Full: new products are returned as given and not retained
+        Product overflow = new Product("prod-3", "Keyboard");
+        assertSame(overflow, catalog.canonical(overflow));
+        assertEquals(3, catalog.size());
+    }
+    
+    @Test
+    void deduplicatesItemStringsAcrossOrders() throws Exception {
+        List<String> bodies = orderBodies();
+        ObjectMapper mapper = JsonSupport.mapper();
+        List<Order> holder = new ArrayList<>(ORDERS);
+        
+        long baseline = usedHeapAfterGc();
+        for (String body : bodies) {
+            holder.add(mapper.readValue(body, Order.class));
+        }
+        long parsedBytes = usedHeapAfterGc() - baseline;
+        holder.clear();
+        
+        ProductCatalog catalog = new ProductCatalog(PRODUCTS * 2);
+        baseline = usedHeapAfterGc();
+        for (String body : bodies) {
+            Order order = mapper.readValue(body, Order.class);
+            order.setItems(catalog.canonicalize(order.getItems()));
+            holder.add(order);
+        }
+        long canonicalBytes = usedHeapAfterGc() - baseline;
+        // Both measurements must see the request bodies as live, or the second one gets their space for free
+        Reference.reachabilityFence(bodies);
+        
+        assertEquals(PRODUCTS, catalog.size());
+        assertTrue(canonicalBytes < parsedBytes * 0.85,
+                   "shared products should save memory: " + canonicalBytes + " vs " + parsedBytes);
+    }
+    
+    // Realistic request bodies: a few items per order, product names of typical length
+    private static List<String> orderBodies() throws Exception {
+        ObjectMapper mapper = JsonSupport.mapper();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> bodies = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0, n = 1 + random.nextInt(5); j < n; j++) {
+                int product = random.nextInt(PRODUCTS);
+                items.add(new OrderItem("prod-" + product, "Catalog product number " + product + " (standard edition)",
+                                        1 + random.nextInt(3), new BigDecimal("19.99")));
+            }
+            bodies.add(mapper.writeValueAsString(new Order(null, "customer-" + i, items, null, null)));
+        }
+        return bodies;
+    }
+    
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.store;
+
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSearchIndexTest {
+    
+    private static final int USERS = 300_000;
+    
+    @Test
+    void findsSubstringsAndPrefixesAndFollowsWrites() {
+        VersionedStore<User> store = new VersionedStore<>(User::new);
+        UserSearchIndex index = new UserSearchIndex(store::get);
+        put(store, index, new User("1", "John Doe", "john@example.com"));
+        put(store, index, new User("2", "Jane Smith", "jane.smith@corp.io"));
+        put(store, index, new User("3", "Bob Johnson", "bob@example.com"));
+        
+        assertEquals(List.of("1", "3"), index.search("john", 10));
+        assertEquals(List.of("1", "3"), index.search("EXAMPLE.C", 10));
+        assertEquals(List.of("2"), index.search("th@co", 10));
+        assertEquals(List.of("2"), index.search("sm", 10));
+        assertEquals(List.of("1"), index.search("john", 1));
+        assertEquals(List.of(), index.search("doe\njohn", 10));
+        assertEquals(List.of(), index.search("xyz", 10));
+        
+        put(store, index, new User("1", "Johnny Walker", "walker@whisky.com"));
+        assertEquals(List.of("1", "3"), index.search("john", 10));
+        assertEquals(List.of(), index.search("doe", 10));
+        assertEquals(List.of("1"), index.search("wa", 10));
+        
+        store.remove("3", EntityStore.ANY_VERSION);
+        index.refresh("3");
+        assertEquals(List.of("1"), index.search("john", 10));
+        assertEquals(2, index.size());
+    }
+    
+    @Test
+    void uniqueIndexRejectsDuplicatesIgnoringCase() {
+        UniqueIndex emails = new UniqueIndex(email -> email.trim().toLowerCase(Locale.ROOT));
+        assertNull(emails.claim("john@example.com", "1"));
+        assertEquals("1", emails.claim(" John@Example.com", "2"));
+        assertEquals("1", emails.claim("john@example.com", "1"));
+        
+        emails.release("john@example.com", "2");
+        assertEquals("1", emails.ownerOf("JOHN@example.com"));
+        emails.release("john@example.com", "1");
+        assertNull(emails.claim("john@example.com", "2"));
+    }
+    
+    @Test
+    void matchesAFullScanAtScale() {
+        VersionedStore<User> store = new VersionedStore<>(User::new);
+        UserSearchIndex index = new UserSearchIndex(store::get);
+        List<String> texts = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User(Integer.toString(i), "User " + Integer.toString(i, 36) + " Number" + i, "user" + i + "@example.com");
+            put(store, index, user);
+            texts.add((user.getName() + '\n' + user.getEmail()).toLowerCase(Locale.ROOT));
+        }
+        
+        // Substring queries return the oldest matches, exactly as a scan over every user would
+        for (String query : new String[] {"user4999", "number12345", "example", "3@exa", "R2999", "zzz"}) {
+            String needle = query.toLowerCase(Locale.ROOT);
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < USERS && expected.size() < 20; i++) {
+                if (texts.get(i).contains(needle)) {
+                    expected.add(Integer.toString(i));
+                }
+            }
+            assertEquals(expected, index.search(query, 20), query);
+        }
+        assertEquals(List.of("29999"), index.search("user29999@", 20));
+        
+        // Prefix queries return distinct users that each have a word starting with the prefix
+        for (String query : new String[] {"us", "n", "7z"}) {
+            List<String> ids = index.search(query, 20);
+            assertEquals(20, ids.size(), query);
+            assertEquals(20, new HashSet<>(ids).size(), query);
+            for (String id : ids) {
+                boolean matches = false;
+                for (String word : texts.get(Integer.parseInt(id)).split("[^\\p{L}\\p{N}]+")) {
+                    matches |= word.startsWith(query);
+                }
+                assertTrue(matches, query + " -> " + texts.get(Integer.parseInt(id)));
+            }
+        }
+    }
+    
+    private static void put(VersionedStore<User> store, UserSearchIndex index, User user) {
+        store.upsert(user.getId(), user);
+        index.refresh(user.getId());
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.store;
+
+import org.example.model.Order;
+import org.example.model.User;
+import org.example.store.VersionedStore.UpdateResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionedStoreTest {
+    
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 10_000;
+    
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        VersionedStore<User> store = new VersionedStore<>(User::new);
+        store.insert("1", new User("1", "0", "hot@example.com"));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        store.update("1", VersionedStore.ANY_VERSION, current -> {
+                            User next = new User(current);
+                            next.setName(String.valueOf(Integer.parseInt(current.getName()) + 1));
+                            return next;
+                        });
+                    }
+                    return null;
+                });
+            }
+            executor.invokeAll(tasks).forEach(future -> {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        User user = store.get("1");
+        assertEquals(String.valueOf(THREADS * UPDATES_PER_THREAD), user.getName());
+        assertEquals(1 + THREADS * UPDATES_PER_THREAD, user.getVersion());
+    }
+    
+    @Test
+    void staleVersionIsRejected() {
+        VersionedStore<User> store = new VersionedStore<>(User::new);
+        store.insert("1", new User("1", "Jane", "jane@example.com"));
+        User original = store.get("1");
+        
+        UpdateResult<User> first = store.update("1", 1, current -> new User(current));
+        assertEquals(UpdateResult.Status.UPDATED, first.getStatus());
+        assertEquals(2, first.getCurrent().getVersion());
+        assertNotSame(original, first.getCurrent());
+        assertEquals(1, original.getVersion());
+        
+        UpdateResult<User> stale = store.update("1", 1, current -> new User(current));
+        assertEquals(UpdateResult.Status.CONFLICT, stale.getStatus());
+        assertEquals(2, stale.getCurrent().getVersion());
+        
+        assertEquals(UpdateResult.Status.CONFLICT, store.remove("1", 1).getStatus());
+        assertEquals(UpdateResult.Status.UPDATED, store.remove("1", 2).getStatus());
+        assertNull(store.get("1"));
+        assertEquals(UpdateResult.Status.NOT_FOUND, store.update("1", VersionedStore.ANY_VERSION, User::new).getStatus());
+    }
+    
+    @Test
+    void mutatingReturnedSnapshotsLeavesTheStoreUnchanged() {
+        assertSnapshotsAreIsolated(new VersionedStore<>(Order::new));
+        assertSnapshotsAreIsolated(new OffHeapOrderStore(64 * 1024, 16));
+    }
+    
+    private static void assertSnapshotsAreIsolated(EntityStore<Order> store) {
+        Order input = new Order("order-1", "customer-1",
+            List.of(new Order.OrderItem("prod-1", "Laptop", 1, BigDecimal.TEN)), BigDecimal.TEN, Order.OrderStatus.PENDING);
+        UpdateResult<Order> inserted = store.insert("order-1", input);
+        assertEquals(0, input.getVersion(), "the store wrote into the caller's object");
+        input.getItems().get(0).setQuantity(5);
+        input.setStatus(Order.OrderStatus.CANCELLED);
+        
+        for (Order snapshot : List.of(inserted.getCurrent(), store.get("order-1"), store.values().get(0),
+                                      store.iterator().next())) {
+            snapshot.setCustomerId("customer-2");
+            snapshot.setVersion(42);
+            snapshot.getItems().get(0).setQuantity(7);
+        }
+        UpdateResult<Order> updated = store.update("order-1", 1, current -> {
+            current.getItems().get(0).setQuantity(2);
+            return current;
+        });
+        updated.getPrevious().getItems().get(0).setQuantity(9);
+        updated.getCurrent().setStatus(Order.OrderStatus.DELIVERED);
+        
+        Order stored = store.get("order-1");
+        assertEquals("customer-1", stored.getCustomerId());
+        assertEquals(Order.OrderStatus.PENDING, stored.getStatus());
+        assertEquals(2, stored.getVersion());
+        assertEquals(2, stored.getItems().get(0).getQuantity());
+        assertEquals(1, store.remove("order-1", 2).getPrevious().getItems().size());
+    }
+    
+    @Test
+    void orderSnapshotsDoNotShareItemLists() {
+        List<Order.OrderItem> items = new ArrayList<>(List.of(new Order.OrderItem("prod-1", "Laptop", 1, BigDecimal.TEN)));
+        Order original = new Order("order-1", "customer-1", items, BigDecimal.TEN, Order.OrderStatus.PENDING);
+        Order copy = new Order(original);
+        
+        items.add(new Order.OrderItem("prod-2", "Mouse", 1, BigDecimal.ONE));
+        assertEquals(1, copy.getItems().size());
+        assertThrows(UnsupportedOperationException.class, () -> copy.getItems().clear());
+    }
+}
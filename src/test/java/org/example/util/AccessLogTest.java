@@ -0,0 +1,118 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+    
+    @Test
+    void fullBufferDropsRecordsUntilTheFlusherDrainsIt(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLog log = new AccessLog(true, file, 4, Long.MAX_VALUE, 2, 0.0, false);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(log.record("GET", "/api/users/" + i, 200, 1_000_000, 10));
+        }
+        assertFalse(log.record("GET", "/dropped", 200, 1_000_000, 10));
+        assertEquals(1, log.getDroppedCount());
+        assertEquals(4, log.getPendingCount());
+        
+        log.start();
+        awaitDrained(log);
+        assertTrue(log.record("POST", "/api/\"quoted\"", 201, 2_000_000, 20));
+        log.close();
+        
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(5, lines.size(), lines.toString());
+        assertEquals("{\"ts\":", lines.get(0).substring(0, 6));
+        assertTrue(lines.get(0).contains("\"path\":\"/api/users/0\",\"status\":200,\"durationUs\":1000,\"bytes\":10"), lines.get(0));
+        assertTrue(lines.get(4).contains("\"path\":\"/api/\\\"quoted\\\"\""), lines.get(4));
+        assertFalse(String.join("\n", lines).contains("/dropped"));
+    }
+    
+    @Test
+    void rollsOverBySizeKeepingMaxFiles(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLog log = new AccessLog(true, file, 1024, 300, 2, 0.0, false);
+        // Each batch that takes the file past 300 bytes rolls it
+        for (int i = 0; i < 40; i++) {
+            assertTrue(log.record("GET", "/r/" + i, 200, 0, 0));
+            if (i % 5 == 4) {
+                if (i == 4) {
+                    log.start();
+                }
+                awaitDrained(log);
+            }
+        }
+        log.close();
+        
+        assertTrue(Files.exists(directory.resolve("access.log.1")));
+        assertTrue(Files.exists(directory.resolve("access.log.2")));
+        assertFalse(Files.exists(directory.resolve("access.log.3")));
+        List<String> kept = new ArrayList<>();
+        for (String name : List.of("access.log.2", "access.log.1", "access.log")) {
+            Path path = directory.resolve(name);
+            if (Files.exists(path)) {
+                assertTrue(Files.size(path) < 300 + 5 * 80, name + " has " + Files.size(path) + " bytes");
+                kept.addAll(Files.readAllLines(path));
+            }
+        }
+        // The newest records survive, oldest first across the rolled files
+        assertTrue(kept.get(kept.size() - 1).contains("\"/r/39\""), kept.toString());
+        assertTrue(kept.size() < 40, "older generations should have been deleted");
+    }
+    
+    @Test
+    void rollsOverByEncodedBytesNotChars(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("access.log");
+        // About 190 chars but 390 UTF-8 bytes: over the limit only when counted in bytes
+        AccessLog log = new AccessLog(true, file, 16, 300, 1, 0.0, false);
+        assertTrue(log.record("GET", "/" + "\u20ac".repeat(100), 200, 0, 0));
+        log.start();
+        awaitDrained(log);
+        log.close();
+        
+        Path rolled = directory.resolve("access.log.1");
+        assertTrue(Files.exists(rolled), "a 390-byte record should roll a 300-byte file");
+        String line = Files.readString(rolled);
+        assertEquals(line.getBytes(StandardCharsets.UTF_8).length, Files.size(rolled));
+        assertTrue(Files.size(rolled) > 300 && line.length() < 300, line.length() + " chars");
+    }
+    
+    @Test
+    void samplesInfoLogging() {
+        AccessLog always = new AccessLog(false, Path.of("unused"), 2, 1, 1, 1.0);
+        AccessLog never = new AccessLog(false, Path.of("unused"), 2, 1, 1, 0.0);
+        AccessLog tenth = new AccessLog(false, Path.of("unused"), 2, 1, 1, 0.1);
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(always.shouldLogInfo());
+            assertFalse(never.shouldLogInfo());
+            if (tenth.shouldLogInfo()) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 700 && sampled < 1300, "sampled " + sampled + " of 10000");
+        
+        // Disabled: nothing is buffered
+        assertFalse(always.record("GET", "/", 200, 0, 0));
+        assertEquals(0, always.getPendingCount());
+    }
+    
+    private static void awaitDrained(AccessLog log) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (log.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, log.getPendingCount());
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.example.model.Order;
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CborCodecTest {
+    
+    private static final int ORDERS_PER_PAYLOAD = 100;
+    private static final HexFormat HEX = HexFormat.of();
+    
+    private final ObjectMapper mapper = JsonSupport.mapper();
+    
+    @Test
+    void roundTripsTheModelsThroughTheSameCodecsAsJson() throws Exception {
+        User user = new User("user-1", "Ann \"Q\" é\n", null);
+        user.setVersion(7);
+        assertEquals(mapper.writeValueAsString(user),
+                     mapper.writeValueAsString(CborCodec.decode(mapper, CborCodec.encode(mapper, user), User.class)));
+        
+        List<Order> orders = orders(ORDERS_PER_PAYLOAD);
+        Order[] decoded = CborCodec.decode(mapper, CborCodec.encode(mapper, orders), Order[].class);
+        assertEquals(mapper.writeValueAsString(orders), mapper.writeValueAsString(Arrays.asList(decoded)));
+        assertEquals(new BigDecimal("1E+2"), decoded[0].getItems().get(1).getUnitPrice());
+        
+        JsonObject json = new JsonObject()
+            .put("small", 23).put("byte", 255).put("negative", -500).put("long", Long.MIN_VALUE)
+            .put("unsigned", new BigInteger("18446744073709551615")).put("big", new BigInteger("-123456789012345678901234567890"))
+            .put("double", 0.1).put("float", 1.5).put("text", "日本").put("flag", false).putNull("nothing")
+            .put("nested", new JsonArray().add(new JsonObject()).add(new JsonArray()).add(new BigDecimal("-0.000001")));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = CborCodec.decode(mapper, CborCodec.encode(mapper, json), Map.class);
+        JsonObject back = new JsonObject(map);
+        assertEquals(json.getLong("long"), back.getLong("long"));
+        assertEquals(json.getValue("unsigned").toString(), back.getValue("unsigned").toString());
+        assertEquals(json.getValue("big").toString(), back.getValue("big").toString());
+        assertEquals(0.1, back.getDouble("double"));
+        assertEquals(1.5, back.getDouble("float"));
+        assertEquals("日本", back.getString("text"));
+        assertTrue(back.containsKey("nothing"));
+        assertEquals(new BigDecimal("-0.000001"), new BigDecimal(back.getJsonArray("nested").getValue(2).toString()));
+        assertEquals(json.put("nested", null).put("unsigned", null).put("big", null).encode(),
+                     back.put("nested", null).put("unsigned", null).put("big", null).encode());
+    }
+    
+    @Test
+    void matchesTheSpecificationEncodings() throws Exception {
+        // RFC 8949 appendix A: shortest-form integers, decimal fractions, single precision
+        assertEquals("0a", hex(10));
+        assertEquals("1864", hex(100));
+        assertEquals("1a000f4240", hex(1_000_000));
+        assertEquals("3863", hex(-100));
+        assertEquals("c48221196ab3", hex(new BigDecimal("273.15")));
+        assertEquals("fa47c35000", hex(100000.0));
+        assertEquals("fb3ff199999999999a", hex(1.1));
+        assertEquals("c249010000000000000000", hex(new BigInteger("18446744073709551616")));
+        
+        // Definite lengths, half floats, tags and chunked strings, as other encoders write them
+        assertEquals(Map.of("a", 1, "b", List.of(2, 3)), decode("a26161016162820203", Map.class));
+        // Half and single floats decode as Float in untyped values, doubles as Double
+        assertEquals(List.of(-4.1, 65504.0, 1.0, "streaming"),
+                     Arrays.stream(decode("84fbc010666666666666f97bfff93c007f657374726561646d696e67ff", Object[].class))
+                           .map(value -> value instanceof Number number ? number.doubleValue() : value)
+                           .toList());
+        assertEquals("2013-03-21T20:04:00Z", decode("c074323031332d30332d32315432303a30343a30305a", String.class));
+        assertEquals(new BigDecimal("273.15"), decode("c48221196ab3", BigDecimal.class));
+        
+        Order order = new Order();
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 6, 7, 8, 9));
+        assertEquals(order.getCreatedAt(),
+                     CborCodec.decode(mapper, CborCodec.encode(mapper, order), Order.class).getCreatedAt());
+    }
+    
+    @Test
+    void rejectsMalformedInput() {
+        // Truncated, trailing bytes, a length past the end, an unexpected break, a non-text key, runaway nesting
+        for (String input : List.of("", "1a0001", "0101", "5bffffffffffffffff00", "ff", "a1f600", "9f".repeat(300))) {
+            assertThrows(IOException.class, () -> decode(input, Object.class), input);
+        }
+    }
+    
+    @Test
+    void encodesAnOrdersPayloadSmallerThanJsonAndDeterministically() throws Exception {
+        List<Order> orders = orders(ORDERS_PER_PAYLOAD);
+        byte[] json = mapper.writeValueAsBytes(orders);
+        byte[] cbor = CborCodec.encode(mapper, orders);
+        assertTrue(cbor.length < json.length, "CBOR " + cbor.length + " bytes vs JSON " + json.length);
+        assertArrayEquals(cbor, CborCodec.encode(mapper, orders));
+    }
+    
+    private String hex(Object value) throws IOException {
+        return HEX.formatHex(CborCodec.encode(mapper, value));
+    }
+    
+    private <T> T decode(String hex, Class<T> type) throws IOException {
+        return CborCodec.decode(mapper, HEX.parseHex(hex), type);
+    }
+    
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(sampleOrder(i));
+        }
+        return orders;
+    }
+    
+    private static Order sampleOrder(int i) {
+        Order order = new Order("order-" + i, "customer-" + (i % 17),
+            List.of(new Order.OrderItem("prod-" + i, "Product " + i, 1 + i % 3, new BigDecimal("19.99")),
+                    new Order.OrderItem("prod-x", null, 2, new BigDecimal("1E+2"))),
+            new BigDecimal("219.98"), Order.OrderStatus.values()[i % Order.OrderStatus.values().length]);
+        order.setCreatedAt(LocalDateTime.of(2024, 1, 1 + i % 28, 10, i % 60, 0, (i % 3) * 120_000_000));
+        order.setUpdatedAt(order.getCreatedAt().plusSeconds(i));
+        order.setVersion(i);
+        return order;
+    }
+}
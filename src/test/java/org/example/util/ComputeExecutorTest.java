@@ -0,0 +1,67 @@
+package org.example.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputeExecutorTest {
+    
+    private final Vertx vertx = Vertx.vertx();
+    private final ComputeExecutor executor = new ComputeExecutor(2);
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void runsOnThePoolAndCompletesOnTheCallersContext() throws Exception {
+        Context context = vertx.getOrCreateContext();
+        CompletableFuture<String[]> threads = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            Future<String> result = executor.execute(vertx, promise -> promise.complete(Thread.currentThread().getName()));
+            result.onComplete(done -> threads.complete(new String[] {
+                done.result(), Thread.currentThread().getName(), String.valueOf(Vertx.currentContext() == context)}));
+        });
+        String[] names = threads.get(5, TimeUnit.SECONDS);
+        assertTrue(names[0].startsWith(ComputeExecutor.THREAD_PREFIX), names[0]);
+        assertTrue(names[1].startsWith("vert.x-eventloop-thread"), names[1]);
+        assertEquals("true", names[2]);
+    }
+    
+    @Test
+    void failsTheFutureWhenTheHandlerThrowsOrThePoolIsShutDown() throws Exception {
+        Future<Object> thrown = executor.execute(vertx, promise -> {
+            throw new IllegalStateException("boom");
+        });
+        Throwable cause = await(thrown);
+        assertEquals("boom", cause.getMessage());
+        
+        // A handler that completes before throwing keeps its result
+        Future<Integer> completed = executor.execute(vertx, promise -> {
+            promise.complete(7);
+            throw new IllegalStateException("too late");
+        });
+        assertEquals(7, completed.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        
+        executor.close();
+        assertInstanceOf(RejectedExecutionException.class, await(executor.execute(vertx, promise -> promise.complete())));
+    }
+    
+    private static Throwable await(Future<?> future) throws Exception {
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        future.onComplete(result -> failure.complete(result.cause()));
+        return failure.get(5, TimeUnit.SECONDS);
+    }
+}
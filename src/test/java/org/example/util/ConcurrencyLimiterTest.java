@@ -0,0 +1,133 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+    
+    private static final long MILLIS = 1_000_000L;
+    private static final long WINDOW = 100 * MILLIS;
+    
+    private final AtomicLong now = new AtomicLong();
+    
+    @Test
+    void shedsOnceTheLimitIsInFlight() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 1, 10, now::get);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        
+        limiter.release(MILLIS, false);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1L, limiter.toJson().getLong("rejected"));
+    }
+    
+    @Test
+    void growsWhileRttStaysNearTheMinimum() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 1000, now::get);
+        int previous = limiter.getLimit();
+        for (int window = 0; window < 10; window++) {
+            runWindow(limiter, 20, 5 * MILLIS);
+        }
+        assertTrue(limiter.getLimit() > previous, "limit " + limiter.getLimit());
+        assertEquals(5_000L, limiter.toJson().getLong("minRttMicros"));
+        
+        // Up to RTT_TOLERANCE times the minimum is not congestion
+        previous = limiter.getLimit();
+        runWindow(limiter, 20, 7 * MILLIS);
+        assertTrue(limiter.getLimit() >= previous, "limit " + limiter.getLimit());
+    }
+    
+    @Test
+    void tracksTheFastestSampleAsTheMinimumRtt() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 1000, now::get);
+        for (int i = 0; i < 19; i++) {
+            limiter.tryAcquire();
+            limiter.release((i == 7 ? 2 : 10) * MILLIS, false);
+        }
+        runWindow(limiter, 1, 10 * MILLIS);
+        assertEquals(2_000L, limiter.toJson().getLong("minRttMicros"));
+        assertEquals(9_600L, limiter.toJson().getLong("avgRttMicros"));
+        
+        // A slower window does not raise it; a faster single sample lowers it
+        runWindow(limiter, 20, 20 * MILLIS);
+        assertEquals(2_000L, limiter.toJson().getLong("minRttMicros"));
+        for (int i = 0; i < 19; i++) {
+            limiter.tryAcquire();
+            limiter.release((i == 3 ? 1 : 20) * MILLIS, false);
+        }
+        runWindow(limiter, 1, 20 * MILLIS);
+        assertEquals(1_000L, limiter.toJson().getLong("minRttMicros"));
+    }
+    
+    @Test
+    void shrinksProportionallyAsRttInflates() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 100, 1, 1000, now::get);
+        runWindow(limiter, 20, 5 * MILLIS);
+        int before = limiter.getLimit();
+        
+        // 4x the minimum RTT: the gradient is clamped at 0.5, so limit' = 0.8 l + 0.2 (0.5 l + sqrt(l))
+        runWindow(limiter, 20, 20 * MILLIS);
+        double expected = before * 0.8 + (before * 0.5 + Math.sqrt(before)) * 0.2;
+        assertEquals((int) expected, limiter.getLimit());
+        assertTrue(limiter.getLimit() < before);
+    }
+    
+    @Test
+    void backsOffMultiplicativelyOnOverloadOnly() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 100, 1, 1000, now::get);
+        runWindow(limiter, 20, 5 * MILLIS);
+        int before = limiter.getLimit();
+        
+        // One overload in the window is enough, however good the RTT samples are
+        for (int i = 0; i < 19; i++) {
+            limiter.tryAcquire();
+            limiter.release(5 * MILLIS, false);
+        }
+        limiter.tryAcquire();
+        now.addAndGet(WINDOW);
+        limiter.release(0, true);
+        assertEquals((int) (before * 0.9), limiter.getLimit());
+        
+        // Too few samples to judge: unchanged
+        before = limiter.getLimit();
+        runWindow(limiter, 5, 50 * MILLIS);
+        assertEquals(before, limiter.getLimit());
+    }
+    
+    @Test
+    void staysWithinTheBounds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 4, 12, now::get);
+        for (int window = 0; window < 50; window++) {
+            runWindow(limiter, 20, MILLIS);
+        }
+        assertEquals(12, limiter.getLimit());
+        
+        for (int window = 0; window < 50; window++) {
+            limiter.tryAcquire();
+            now.addAndGet(WINDOW);
+            limiter.release(0, true);
+        }
+        assertEquals(4, limiter.getLimit());
+        
+        limiter.setMaxLimit(2);
+        assertEquals(4, limiter.getMaxLimit());
+    }
+    
+    // Completes samples requests with the given RTT, the last one after the window has elapsed so it rolls
+    private void runWindow(ConcurrencyLimiter limiter, int samples, long rttNanos) {
+        for (int i = 0; i < samples; i++) {
+            limiter.tryAcquire();
+            if (i == samples - 1) {
+                now.addAndGet(WINDOW);
+            }
+            limiter.release(rttNanos, false);
+        }
+    }
+}
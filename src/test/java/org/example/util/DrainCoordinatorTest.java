@@ -0,0 +1,142 @@
+package org.example.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.Router;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrainCoordinatorTest {
+    
+    private static final int CLIENTS = 16;
+    private static final long REQUEST_MILLIS = 100;
+    private static final long GRACE_MILLIS = 400;
+    // How long the load balancer takes to notice the health check and stop routing to the node
+    private static final long LB_REACTION_MILLIS = 150;
+    
+    @Test
+    void restartUnderLoadFailsNoRequestsWhenDrained() throws Exception {
+        RestartResult drained = restartUnderLoad(true);
+        RestartResult abrupt = restartUnderLoad(false);
+        assertEquals(0, drained.failed, "requests failed during a drained restart, of " + drained.sent);
+        assertTrue(abrupt.failed > 0, "an abrupt close should drop in-flight requests, none of " + abrupt.sent + " did");
+    }
+    
+    @Test
+    void closesConnectionsOnlyWhileDrainingAndSaysSoOnlyOverHttp1() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        DrainCoordinator coordinator = new DrainCoordinator(1000, 1000);
+        Router router = Router.router(vertx);
+        router.route().handler(coordinator.requestHandler());
+        router.get("/ok").handler(ctx -> ctx.response().end("ok"));
+        int port = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .actualPort();
+        io.vertx.core.http.HttpClient http1 = vertx.createHttpClient();
+        io.vertx.core.http.HttpClient http2 = vertx.createHttpClient(new HttpClientOptions()
+            .setProtocolVersion(HttpVersion.HTTP_2)
+            .setHttp2ClearTextUpgrade(false));
+        try {
+            assertEquals("200 null", get(http1, port), "keep-alive while serving");
+            assertEquals("200 null", get(http2, port), "keep-alive while serving");
+            
+            Thread drain = new Thread(coordinator::drain);
+            drain.start();
+            while (!coordinator.isDraining()) {
+                Thread.sleep(5);
+            }
+            assertEquals("200 close", get(http1, port));
+            // Connection is a connection-specific header, which HTTP/2 forbids; the connection gets a GOAWAY
+            assertEquals("200 null", get(http2, port));
+            drain.join();
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    private static String get(io.vertx.core.http.HttpClient client, int port) throws Exception {
+        return client.request(HttpMethod.GET, port, "localhost", "/ok")
+            .compose(request -> request.send())
+            .compose(response -> response.body()
+                .map(body -> response.statusCode() + " " + response.getHeader("Connection")))
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    private static RestartResult restartUnderLoad(boolean drain) throws Exception {
+        Vertx vertx = Vertx.vertx();
+        DrainCoordinator coordinator = new DrainCoordinator(GRACE_MILLIS, 5000);
+        Router router = Router.router(vertx);
+        router.route().handler(coordinator.requestHandler());
+        router.get("/slow").handler(ctx -> vertx.setTimer(REQUEST_MILLIS, id -> ctx.response().end("ok")));
+        HttpServer server = vertx.createHttpServer()
+            .connectionHandler(coordinator.connectionHandler())
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        URI uri = URI.create("http://localhost:" + server.actualPort() + "/slow");
+        
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+        LongAdder sent = new LongAdder();
+        LongAdder failed = new LongAdder();
+        // Cleared once the load balancer has taken the node out of rotation
+        AtomicBoolean routable = new AtomicBoolean(true);
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Thread thread = new Thread(() -> {
+                HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+                while (routable.get()) {
+                    sent.increment();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) {
+                            failed.increment();
+                        }
+                    } catch (Exception e) {
+                        failed.increment();
+                    }
+                }
+            });
+            thread.start();
+            clients.add(thread);
+        }
+        
+        Thread.sleep(500);
+        Thread shutdown = new Thread(() -> {
+            if (drain) {
+                coordinator.drain();
+            }
+            vertx.close().toCompletionStage().toCompletableFuture().join();
+        });
+        shutdown.start();
+        Thread.sleep(LB_REACTION_MILLIS);
+        routable.set(false);
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        shutdown.join();
+        return new RestartResult(sent.sum(), failed.sum());
+    }
+    
+    private record RestartResult(long sent, long failed) {
+    }
+}
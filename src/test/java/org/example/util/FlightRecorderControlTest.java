@@ -0,0 +1,67 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightRecorderControlTest {
+    
+    @Test
+    void recordsDumpsAndStopsOneRecordingAtATime(@TempDir Path directory) throws Exception {
+        FlightRecorderControl recorder = new FlightRecorderControl(true, directory, 10);
+        assertThrows(IllegalArgumentException.class,
+                     () -> recorder.start("no-such-profile", Duration.ofMinutes(1), 16L * 1024 * 1024));
+        assertThrows(IllegalStateException.class, recorder::dump);
+        
+        JsonObject status = recorder.start("profile", Duration.ofMinutes(1), 16L * 1024 * 1024);
+        assertTrue(status.getBoolean("running"));
+        assertThrows(IllegalStateException.class,
+                     () -> recorder.start("default", Duration.ofMinutes(1), 16L * 1024 * 1024));
+        
+        Path dump = recorder.dump();
+        assertTrue(recorder.isRunning());
+        Path last = recorder.stop();
+        assertFalse(recorder.isRunning());
+        assertTrue(Files.size(dump) > 0);
+        assertTrue(Files.size(last) > 0);
+        assertEquals(last.toAbsolutePath().toString(), recorder.toJson().getString("lastFile"));
+    }
+    
+    @Test
+    void refusesToRecordUnlessEnabled(@TempDir Path directory) {
+        FlightRecorderControl recorder = new FlightRecorderControl(false, directory, 10);
+        assertThrows(IllegalStateException.class,
+                     () -> recorder.start("default", Duration.ofMinutes(1), 16L * 1024 * 1024));
+        assertFalse(recorder.toJson().getBoolean("enabled"));
+    }
+    
+    @Test
+    void keepsOnlyTheNewestFiles(@TempDir Path directory) throws Exception {
+        FlightRecorderControl recorder = new FlightRecorderControl(true, directory, 2);
+        recorder.start("default", Duration.ofMinutes(1), 16L * 1024 * 1024);
+        List<Path> written = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            written.add(recorder.dump());
+            Thread.sleep(5);
+        }
+        written.add(recorder.stop());
+        
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.copyOf(written.subList(3, 5)), files.collect(Collectors.toSet()));
+        }
+    }
+}
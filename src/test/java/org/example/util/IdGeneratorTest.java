@@ -0,0 +1,78 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+    
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 200_000;
+    
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids[i] = generator.nextLong();
+                    }
+                    return ids;
+                });
+            }
+            
+            List<Future<long[]>> results = executor.invokeAll(tasks);
+            
+            Set<Long> seen = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+            for (Future<long[]> result : results) {
+                long previous = Long.MIN_VALUE;
+                for (long id : result.get()) {
+                    assertTrue(id > previous, "IDs from one thread must be increasing");
+                    assertTrue(seen.add(id), "Duplicate id " + id);
+                    previous = id;
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void encodedIdsSortLikeNumericIds() {
+        IdGenerator generator = new IdGenerator(1);
+        long previous = generator.nextLong();
+        for (int i = 0; i < 10_000; i++) {
+            long next = generator.nextLong();
+            String a = IdGenerator.encode(previous);
+            String b = IdGenerator.encode(next);
+            assertEquals(IdGenerator.ENCODED_LENGTH, b.length());
+            assertTrue(a.compareTo(b) < 0, a + " should sort before " + b);
+            previous = next;
+        }
+    }
+    
+    @Test
+    void timestampIsRecoverable() {
+        long before = System.currentTimeMillis();
+        long id = new IdGenerator(0).nextLong();
+        long after = System.currentTimeMillis();
+        long timestamp = IdGenerator.timestampOf(id);
+        // Sequence overflow may borrow a few milliseconds ahead, but never behind
+        assertTrue(timestamp >= before && timestamp <= after + 10);
+    }
+}
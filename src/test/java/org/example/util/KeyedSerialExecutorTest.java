@@ -0,0 +1,187 @@
+package org.example.util;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedSerialExecutorTest {
+    
+    private static final int WORKERS = 8;
+    private static final int KEYS = 4;
+    private static final int TASKS_PER_KEY = 50;
+    private static final int COLD_KEYS = 50;
+    
+    @Test
+    void sameKeyRunsInOrderOneAtATimeWhileKeysRunInParallel() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        WorkerExecutor workers = vertx.createSharedWorkerExecutor("keyed-test", WORKERS);
+        try {
+            KeyedSerialExecutor executor = new KeyedSerialExecutor(TASKS_PER_KEY);
+            Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+            Map<Integer, AtomicBoolean> running = new ConcurrentHashMap<>();
+            AtomicBoolean overlap = new AtomicBoolean();
+            AtomicInteger concurrent = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            
+            List<Future<Integer>> futures = runOnContext(vertx, () -> {
+                List<Future<Integer>> submitted = new ArrayList<>();
+                for (int i = 0; i < TASKS_PER_KEY; i++) {
+                    for (int key = 0; key < KEYS; key++) {
+                        int k = key;
+                        int seq = i;
+                        submitted.add(executor.submit(k, () -> workers.executeBlocking(promise -> {
+                            if (!running.computeIfAbsent(k, x -> new AtomicBoolean()).compareAndSet(false, true)) {
+                                overlap.set(true);
+                            }
+                            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                            sleep(1);
+                            seen.computeIfAbsent(k, x -> new CopyOnWriteArrayList<>()).add(seq);
+                            concurrent.decrementAndGet();
+                            running.get(k).set(false);
+                            promise.complete(seq);
+                        }, false)));
+                    }
+                }
+                return submitted;
+            });
+            Future.all(new ArrayList<>(futures)).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            
+            assertFalse(overlap.get(), "two tasks for the same key ran at once");
+            for (int key = 0; key < KEYS; key++) {
+                List<Integer> order = seen.get(key);
+                assertEquals(TASKS_PER_KEY, order.size());
+                for (int i = 0; i < TASKS_PER_KEY; i++) {
+                    assertEquals(i, order.get(i), "key " + key + " ran out of order: " + order);
+                }
+            }
+            assertTrue(maxConcurrent.get() > 1, "different keys never ran in parallel");
+            assertEquals(0, executor.getActiveKeys());
+            assertEquals((long) KEYS * TASKS_PER_KEY, executor.toJson().getLong("submitted"));
+        } finally {
+            workers.close();
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    @Test
+    void failedTaskReleasesItsKey() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            KeyedSerialExecutor executor = new KeyedSerialExecutor();
+            List<Future<String>> futures = runOnContext(vertx, () -> List.of(
+                executor.submit("k", () -> { throw new IllegalStateException("boom"); }),
+                executor.submit("k", () -> Future.failedFuture("failed")),
+                executor.submit("k", () -> Future.succeededFuture("ok"))));
+            CompositeFuture all = Future.join(new ArrayList<>(futures));
+            all.toCompletionStage().toCompletableFuture().handle((r, t) -> null).get(5, TimeUnit.SECONDS);
+            
+            assertTrue(futures.get(0).failed());
+            assertTrue(futures.get(1).failed());
+            assertEquals("ok", futures.get(2).result());
+            assertEquals(0, executor.getActiveKeys());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    @Test
+    void refusesTasksBeyondTheQueueLimitOfAKey() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            KeyedSerialExecutor executor = new KeyedSerialExecutor(2);
+            Promise<Object> blocked = Promise.promise();
+            List<Future<Object>> accepted = runOnContext(vertx, () -> List.of(
+                executor.submit("hot", blocked::future),
+                executor.submit("hot", () -> Future.succeededFuture("second")),
+                executor.submit("hot", () -> Future.succeededFuture("third"))));
+            assertThrows(RejectedExecutionException.class,
+                         () -> executor.submit("hot", () -> Future.succeededFuture("fourth")));
+            // Other keys are not affected by the hot key's queue
+            assertEquals("cold", runOnContext(vertx, () -> executor.submit("cold", () -> Future.succeededFuture("cold")))
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+            assertEquals(2L, executor.toJson().getLong("waiting"));
+            assertEquals(1L, executor.toJson().getLong("rejected"));
+            
+            vertx.getOrCreateContext().runOnContext(v -> blocked.complete("first"));
+            Future.all(new ArrayList<>(accepted)).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            assertEquals(0L, executor.toJson().getLong("waiting"));
+            assertEquals(4L, executor.toJson().getLong("submitted"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    @Test
+    void otherKeysCompleteWhileAHotKeyIsBlocked() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        WorkerExecutor workers = vertx.createSharedWorkerExecutor("keyed-hot", WORKERS);
+        try {
+            KeyedSerialExecutor executor = new KeyedSerialExecutor();
+            Promise<Object> hotKeyBlocked = Promise.promise();
+            List<Future<Object>> hot = runOnContext(vertx, () -> List.of(
+                executor.submit("hot", hotKeyBlocked::future),
+                executor.submit("hot", () -> Future.succeededFuture("second")),
+                executor.submit("hot", () -> Future.succeededFuture("third"))));
+            List<Future<Object>> cold = runOnContext(vertx, () -> {
+                List<Future<Object>> submitted = new ArrayList<>();
+                for (int key = 0; key < COLD_KEYS; key++) {
+                    int k = key;
+                    submitted.add(executor.submit(k, () -> workers.executeBlocking(promise -> {
+                        sleep(1);
+                        promise.complete(k);
+                    }, false)));
+                }
+                return submitted;
+            });
+            
+            Future.all(new ArrayList<>(cold)).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            for (Future<Object> future : hot) {
+                assertFalse(future.isComplete(), "a hot-key task ran while the first one was blocked");
+            }
+            assertEquals(2L, executor.toJson().getLong("maxQueueDepth"));
+            assertEquals(1, executor.getActiveKeys());
+            
+            vertx.getOrCreateContext().runOnContext(v -> hotKeyBlocked.complete("first"));
+            Future.all(new ArrayList<>(hot)).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("first", "second", "third"), hot.stream().map(Future::result).toList());
+            assertEquals(0, executor.getActiveKeys());
+        } finally {
+            workers.close();
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    private static <T> T runOnContext(Vertx vertx, Supplier<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        vertx.getOrCreateContext().runOnContext(v -> result.complete(action.get()));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
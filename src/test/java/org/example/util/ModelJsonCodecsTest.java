@@ -0,0 +1,120 @@
+package org.example.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.sun.management.ThreadMXBean;
+import org.example.model.Order;
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelJsonCodecsTest {
+    
+    private static final TypeReference<List<Order>> ORDER_LIST = new TypeReference<>() {};
+    private static final int ORDERS_PER_PAYLOAD = 100;
+    private static final int WARM_UP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 2_000;
+    
+    private static volatile Object blackhole;
+    
+    private final ObjectMapper codecs = JsonSupport.createMapper(true);
+    private final ObjectMapper reflective = JsonSupport.createMapper(false);
+    
+    @Test
+    void writesAndReadsExactlyWhatTheBeanMapperDoes() throws Exception {
+        User user = new User("user-1", "Ann \"Q\" é\n", null);
+        user.setVersion(7);
+        List<Object> values = List.of(user, new User(), new Order(), orders(3), sampleOrder(1));
+        for (Object value : values) {
+            assertEquals(reflective.writeValueAsString(value), codecs.writeValueAsString(value));
+        }
+        
+        for (LocalDateTime time : List.of(LocalDateTime.of(2024, 2, 29, 0, 0), LocalDateTime.of(1, 1, 1, 23, 59, 59, 100),
+                                          LocalDateTime.of(2024, 5, 6, 7, 8, 9, 123_456_789), LocalDateTime.of(12024, 1, 1, 0, 0))) {
+            Order order = sampleOrder(2);
+            order.setCreatedAt(time);
+            String json = reflective.writeValueAsString(order);
+            assertEquals(json, codecs.writeValueAsString(order));
+            assertEquals(time, codecs.readValue(json, Order.class).getCreatedAt());
+        }
+        
+        String ordersJson = reflective.writeValueAsString(orders(ORDERS_PER_PAYLOAD));
+        assertEquals(reflective.readValue(ordersJson, ORDER_LIST).toString(), codecs.readValue(ordersJson, ORDER_LIST).toString());
+        String userJson = reflective.writeValueAsString(user);
+        assertEquals(reflective.readValue(userJson, User.class).toString(), codecs.readValue(userJson, User.class).toString());
+        
+        // Coercions and errors come from the standard deserializers, as before
+        String lenient = "{\"id\":5,\"items\":[{\"productId\":\"p\",\"quantity\":\"2\",\"unitPrice\":\"1.5\"}],"
+                         + "\"totalAmount\":\"3.0\",\"createdAt\":[2024,1,2,3,4],\"unknown\":{\"a\":[1]},\"version\":\"4\"}";
+        Order expected = reflective.readValue(lenient, Order.class);
+        Order actual = codecs.readValue(lenient, Order.class);
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(reflective.writeValueAsString(expected.getItems()), codecs.writeValueAsString(actual.getItems()));
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertThrows(InvalidFormatException.class,
+                     () -> codecs.readValue("{\"status\":\"LOST\"}", Order.class));
+        assertThrows(JsonMappingException.class,
+                     () -> codecs.readValue("{\"items\":{}}", Order.class));
+    }
+    
+    // Allocation per decode of a /api/orders-sized list, after warm-up: a count, so unlike timings it holds on a
+    // loaded machine
+    @Test
+    void decodesWithLessGarbageThanTheReflectiveMapper() throws Exception {
+        List<Order> orders = orders(ORDERS_PER_PAYLOAD);
+        String json = reflective.writeValueAsString(orders);
+        
+        long reflectiveBytes = allocatedBytesPerOperation(() -> reflective.readValue(json, ORDER_LIST));
+        long codecsBytes = allocatedBytesPerOperation(() -> codecs.readValue(json, ORDER_LIST));
+        assertTrue(codecsBytes * 2 < reflectiveBytes, "codecs " + codecsBytes + " vs reflective " + reflectiveBytes);
+    }
+    
+    private interface Operation {
+        Object run() throws Exception;
+    }
+    
+    private static long allocatedBytesPerOperation(Operation operation) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            blackhole = operation.run();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            blackhole = operation.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / MEASURED_ITERATIONS;
+    }
+    
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(sampleOrder(i));
+        }
+        return orders;
+    }
+    
+    private static Order sampleOrder(int i) {
+        Order order = new Order("order-" + i, "customer-" + (i % 17),
+            List.of(new Order.OrderItem("prod-" + i, "Product " + i, 1 + i % 3, new BigDecimal("19.99")),
+                    new Order.OrderItem("prod-x", null, 2, new BigDecimal("1E+2"))),
+            new BigDecimal("219.98"), Order.OrderStatus.values()[i % Order.OrderStatus.values().length]);
+        order.setCreatedAt(LocalDateTime.of(2024, 1, 1 + i % 28, 10, i % 60, 0, (i % 3) * 120_000_000));
+        order.setUpdatedAt(order.getCreatedAt().plusSeconds(i));
+        order.setVersion(i);
+        return order;
+    }
+}
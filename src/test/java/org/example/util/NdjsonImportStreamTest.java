@@ -0,0 +1,201 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.streams.ReadStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdjsonImportStreamTest {
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<List<Map>> applied = new ArrayList<>();
+    
+    @Test
+    void reassemblesLinesSplitAcrossChunksAndCountsTheOutcome() {
+        NdjsonImportStream<Map> importer = importer(2, batch -> {
+            applied.add(batch);
+            List<String> rejected = new ArrayList<>();
+            for (Map record : batch) {
+                if ("taken".equals(record.get("name"))) {
+                    rejected.add("Name already taken");
+                }
+            }
+            return Future.succeededFuture(rejected);
+        });
+        ChunkStream source = new ChunkStream(
+            "{\"name\":\"a\"}\n{\"na",
+            "me\":\"b\"}\n\nnot json\n{\"id\":3}\n{\"name\":\"taken\"}\n{\"name\"",
+            ":\"c\"}\n");
+        
+        Future<Void> done = pipe(source, importer, 1024);
+        
+        assertTrue(done.succeeded(), String.valueOf(done.cause()));
+        assertEquals(List.of(List.of(Map.of("name", "a"), Map.of("name", "b")),
+                             List.of(Map.of("name", "taken"), Map.of("name", "c"))), applied);
+        JsonObject summary = importer.toJson();
+        // The blank line counts as a line but is neither imported nor failed
+        assertEquals(7L, summary.getLong("lines"));
+        assertEquals(3L, summary.getLong("imported"));
+        assertEquals(3L, summary.getLong("failed"));
+        JsonArray errors = summary.getJsonArray("errors");
+        assertEquals(4, errors.getJsonObject(0).getInteger("line"));
+        assertTrue(errors.getJsonObject(0).getString("message").startsWith("Invalid JSON"));
+        assertEquals(new JsonObject().put("line", 5).put("message", "name is required"), errors.getJsonObject(1));
+        assertEquals(new JsonObject().putNull("line").put("message", "Name already taken"), errors.getJsonObject(2));
+    }
+    
+    @Test
+    void failsTheImportOnALineOverTheLimit() {
+        NdjsonImportStream<Map> importer = importer(10, batch -> {
+            applied.add(batch);
+            return Future.succeededFuture(List.of());
+        });
+        // Over the limit before its newline arrives
+        ChunkStream source = new ChunkStream("{\"name\":\"a\"}\n{\"name\":\"" + "x".repeat(32), "x\"}\n");
+        
+        Future<Void> done = pipe(source, importer, 32);
+        
+        assertTrue(done.failed());
+        // Records before the oversized line are still applied when the pipe ends the importer
+        assertEquals(List.of(List.of(Map.of("name", "a"))), applied);
+        assertEquals(1L, importer.toJson().getLong("imported"));
+    }
+    
+    @Test
+    void pausesTheSourceWhileABatchIsAppliedAndTheNextIsFull() {
+        List<Promise<List<String>>> pending = new ArrayList<>();
+        NdjsonImportStream<Map> importer = importer(2, batch -> {
+            applied.add(batch);
+            Promise<List<String>> promise = Promise.promise();
+            pending.add(promise);
+            return promise.future();
+        });
+        String[] lines = new String[9];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "{\"name\":\"" + i + "\"}\n";
+        }
+        ChunkStream source = new ChunkStream(lines);
+        
+        Future<Void> done = pipe(source, importer, 1024);
+        
+        // One batch applying and one full: nothing more is read until the first completes
+        assertEquals(4L, importer.toJson().getLong("lines"));
+        assertTrue(importer.writeQueueFull());
+        assertTrue(source.paused);
+        assertEquals(1, pending.size());
+        
+        pending.get(0).complete(List.of());
+        source.pump();
+        assertEquals(2, pending.size());
+        assertEquals(6L, importer.toJson().getLong("lines"));
+        assertTrue(source.paused);
+        
+        pending.get(1).complete(List.of());
+        source.pump();
+        pending.get(2).complete(List.of());
+        source.pump();
+        // The source has ended; the last, partial batch is applied before the import completes
+        assertEquals(9L, importer.toJson().getLong("lines"));
+        assertFalse(done.isComplete());
+        pending.get(3).complete(List.of());
+        assertEquals(5, pending.size());
+        pending.get(4).complete(List.of());
+        
+        assertTrue(done.succeeded());
+        assertEquals(9L, importer.toJson().getLong("imported"));
+        assertEquals(List.of(Map.of("name", "8")), applied.get(4));
+    }
+    
+    private NdjsonImportStream<Map> importer(int batchSize,
+                                             Function<List<Map>, Future<List<String>>> applier) {
+        return new NdjsonImportStream<>(mapper, Map.class, batchSize,
+            record -> record.get("name") == null ? "name is required" : null, applier);
+    }
+    
+    // As AbstractHttpController.importNdjson wires it
+    private static Future<Void> pipe(ChunkStream source, NdjsonImportStream<Map> importer, int maxLineBytes) {
+        Future<Void> done = RecordParser.newDelimited("\n", source).maxRecordSize(maxLineBytes).pipeTo(importer);
+        source.pump();
+        return done;
+    }
+    
+    // Emits its chunks when the test pumps it, as long as it is not paused. Emitting outside the
+    // parser's own calls mirrors a socket, which delivers data from a later event loop task.
+    private static final class ChunkStream implements ReadStream<Buffer> {
+        
+        private final Deque<Buffer> chunks = new ArrayDeque<>();
+        private Handler<Buffer> handler;
+        private Handler<Void> endHandler;
+        private boolean paused;
+        private boolean ended;
+        
+        ChunkStream(String... chunks) {
+            for (String chunk : chunks) {
+                this.chunks.add(Buffer.buffer(chunk));
+            }
+        }
+        
+        @Override
+        public ChunkStream exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+        
+        @Override
+        public ChunkStream handler(Handler<Buffer> handler) {
+            this.handler = handler;
+            return this;
+        }
+        
+        @Override
+        public ChunkStream pause() {
+            paused = true;
+            return this;
+        }
+        
+        @Override
+        public ChunkStream resume() {
+            paused = false;
+            return this;
+        }
+        
+        @Override
+        public ChunkStream fetch(long amount) {
+            return resume();
+        }
+        
+        @Override
+        public ChunkStream endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+        
+        void pump() {
+            while (!paused && handler != null && !chunks.isEmpty()) {
+                handler.handle(chunks.poll());
+            }
+            if (!paused && chunks.isEmpty() && !ended) {
+                ended = true;
+                if (endHandler != null) {
+                    endHandler.handle(null);
+                }
+            }
+        }
+    }
+}
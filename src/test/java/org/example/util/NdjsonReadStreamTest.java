@@ -0,0 +1,128 @@
+package org.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdjsonReadStreamTest {
+    
+    private static final String END = "<end>";
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Vertx vertx;
+    private Context context;
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void writesOneLinePerRecordInChunksAndEndsOnce() throws Exception {
+        List<Map<String, Integer>> records = records(600);
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        onContext(() -> new NdjsonReadStream<>(context, mapper, records.iterator())
+            .endHandler(v -> events.add(END))
+            .handler(chunk -> events.add(chunk.toString(StandardCharsets.UTF_8))));
+        
+        List<String> lines = new ArrayList<>();
+        int chunks = 0;
+        String event;
+        while (!(event = next(events)).equals(END)) {
+            chunks++;
+            assertTrue(event.endsWith("\n"), event);
+            lines.addAll(List.of(event.split("\n")));
+        }
+        assertEquals(3, chunks);
+        assertEquals(600, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(records.get(i), mapper.readValue(lines.get(i), Map.class));
+        }
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    void emitsNothingWhilePausedAndOneChunkPerFetchedUnit() throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        List<NdjsonReadStream<Map<String, Integer>>> stream = new ArrayList<>();
+        onContext(() -> {
+            NdjsonReadStream<Map<String, Integer>> ndjson = new NdjsonReadStream<>(context, mapper, records(1_000).iterator());
+            ndjson.pause()
+                  .endHandler(v -> events.add(END))
+                  .handler(chunk -> events.add(chunk.toString(StandardCharsets.UTF_8)));
+            stream.add(ndjson);
+        });
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+        
+        onContext(() -> stream.get(0).fetch(1));
+        assertTrue(next(events).startsWith("{\"id\":0}\n"));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+        
+        onContext(() -> stream.get(0).fetch(2));
+        assertTrue(next(events).startsWith("{\"id\":256}\n"));
+        assertTrue(next(events).startsWith("{\"id\":512}\n"));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+        
+        // The last chunk holds the remaining 232 records, and the stream ends after it
+        onContext(() -> stream.get(0).resume());
+        assertEquals(232, next(events).split("\n").length);
+        assertEquals(END, next(events));
+    }
+    
+    @Test
+    void reportsASerializationFailureInsteadOfEnding() throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        // Jackson cannot serialize a plain Object
+        List<Object> records = List.of(Map.of("id", 0), new Object());
+        onContext(() -> new NdjsonReadStream<>(context, mapper, records.iterator())
+            .exceptionHandler(e -> events.add("error: " + e.getClass().getSimpleName()))
+            .endHandler(v -> events.add(END))
+            .handler(chunk -> events.add(chunk.toString(StandardCharsets.UTF_8))));
+        
+        assertEquals("error: InvalidDefinitionException", next(events));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+    
+    private void onContext(Runnable action) throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            action.run();
+            done.complete(null);
+        });
+        done.get(5, TimeUnit.SECONDS);
+    }
+    
+    private static List<Map<String, Integer>> records(int count) {
+        return IntStream.range(0, count).mapToObj(i -> Map.of("id", i)).toList();
+    }
+    
+    private static String next(BlockingQueue<String> events) throws InterruptedException {
+        String event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "nothing emitted within 5 s");
+        return event;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    
+    private static final long MILLIS = 1_000_000L;
+    
+    private Vertx vertx;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void allowsTheBurstThenRejectsUntilTheNextEmission() {
+        // 10 per second: one permit every 100 ms, five at once
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            RateLimiter.Decision decision = bucket.tryAcquire(0);
+            assertTrue(decision.isAllowed(), "permit " + i);
+            assertEquals(5, decision.getLimit());
+            assertEquals(4 - i, decision.getRemaining());
+        }
+        
+        RateLimiter.Decision rejected = bucket.tryAcquire(0);
+        assertFalse(rejected.isAllowed());
+        assertEquals(0, rejected.getRemaining());
+        assertEquals(100 * MILLIS, rejected.getRetryAfterNanos());
+        assertEquals(500 * MILLIS, rejected.getResetNanos());
+        
+        // A rejection does not push the next emission back
+        rejected = bucket.tryAcquire(60 * MILLIS);
+        assertFalse(rejected.isAllowed());
+        assertEquals(40 * MILLIS, rejected.getRetryAfterNanos());
+        assertTrue(bucket.tryAcquire(100 * MILLIS).isAllowed());
+        assertFalse(bucket.tryAcquire(100 * MILLIS).isAllowed());
+    }
+    
+    @Test
+    void refillsOnePermitPerEmissionIntervalUpToTheBurst() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(0);
+        }
+        assertFalse(bucket.isFull(0));
+        
+        // 250 ms refills two permits, not two and a half
+        assertTrue(bucket.tryAcquire(250 * MILLIS).isAllowed());
+        assertTrue(bucket.tryAcquire(250 * MILLIS).isAllowed());
+        assertFalse(bucket.tryAcquire(250 * MILLIS).isAllowed());
+        
+        // Idle for much longer than the burst takes to refill: still only the burst
+        long later = 10_000 * MILLIS;
+        assertTrue(bucket.isFull(later));
+        int allowed = 0;
+        while (bucket.tryAcquire(later).isAllowed()) {
+            allowed++;
+        }
+        assertEquals(5, allowed);
+    }
+    
+    @Test
+    void rejectsWith429AndRetryAfterPerClientAddress() throws Exception {
+        RateLimiter limiter = new RateLimiter(100);
+        Router router = Router.router(vertx);
+        router.route("/api/*").handler(new RateLimitHandler(limiter, "api", 1, 1));
+        router.get("/api/items").handler(ctx -> ctx.response().end("ok"));
+        router.get("/api/other").handler(ctx -> ctx.response().end("ok"));
+        HttpServer server = vertx.createHttpServer().requestHandler(router);
+        int port = server.listen(0).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS).actualPort();
+        
+        HttpResponse<String> first = get(port, "/api/items", null);
+        assertEquals(200, first.statusCode());
+        assertEquals("1", first.headers().firstValue("X-RateLimit-Limit").orElse(null));
+        assertEquals("0", first.headers().firstValue("X-RateLimit-Remaining").orElse(null));
+        
+        HttpResponse<String> second = get(port, "/api/items", null);
+        assertEquals(429, second.statusCode());
+        assertEquals("1", second.headers().firstValue("Retry-After").orElse(null));
+        assertTrue(second.body().contains("Too many requests"), second.body());
+        
+        // Neither a made-up API key nor another route under the prefix gets a fresh bucket
+        assertEquals(429, get(port, "/api/items", "key-" + System.nanoTime()).statusCode());
+        assertEquals(429, get(port, "/api/other", null).statusCode());
+        assertEquals(1, limiter.size());
+    }
+    
+    private HttpResponse<String> get(int port, String path, String apiKey) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (apiKey != null) {
+            request.header("X-API-Key", apiKey);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
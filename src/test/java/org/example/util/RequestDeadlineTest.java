@@ -0,0 +1,117 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDeadlineTest {
+    
+    private static final long ONE_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    
+    @Test
+    void queuedTaskIsCancelledBeforeItStarts() {
+        // PENDING -> CANCELLED, e.g. the client disconnected while the task waited for a worker
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + ONE_MINUTE);
+        assertTrue(deadline.cancel());
+        assertTrue(deadline.isCancelled());
+        assertFalse(deadline.isExpiredInQueue());
+        assertFalse(deadline.begin());
+        assertFalse(deadline.cancel());
+        
+        // The deadline passing in the queue is recorded as such
+        RequestDeadline expired = new RequestDeadline(System.nanoTime() - 1);
+        assertFalse(expired.begin());
+        assertTrue(expired.isCancelled());
+        assertTrue(expired.isExpiredInQueue());
+    }
+    
+    @Test
+    void runningTaskIsInterruptedAndTheInterruptDoesNotLeak() throws Exception {
+        // RUNNING -> CANCELLING -> CANCELLED
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + ONE_MINUTE);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean interruptLeaked = new AtomicBoolean(true);
+        Thread worker = new Thread(() -> {
+            assertTrue(deadline.begin());
+            started.countDown();
+            try {
+                Thread.sleep(ONE_MINUTE / 1_000_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            // Re-interrupt as a careless handler would; end() must still hand the thread back clean
+            Thread.currentThread().interrupt();
+            deadline.end();
+            interruptLeaked.set(Thread.currentThread().isInterrupted());
+        });
+        worker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        
+        assertTrue(deadline.cancel());
+        worker.join(5_000);
+        assertFalse(worker.isAlive());
+        assertTrue(interrupted.get());
+        assertFalse(interruptLeaked.get());
+        assertTrue(deadline.isCancelled());
+        assertFalse(deadline.isExpiredInQueue());
+        assertFalse(deadline.cancel());
+    }
+    
+    @Test
+    void finishedTaskCannotBeCancelled() {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + ONE_MINUTE);
+        assertTrue(deadline.begin());
+        deadline.end();
+        assertFalse(deadline.cancel());
+        assertFalse(deadline.isCancelled());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+    
+    @Test
+    void exactlyOneWriterClaimsTheResponse() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            RequestDeadline deadline = new RequestDeadline(System.nanoTime() + ONE_MINUTE);
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            AtomicInteger winners = new AtomicInteger();
+            Runnable claim = () -> {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                if (deadline.claimResponse()) {
+                    winners.incrementAndGet();
+                }
+            };
+            Thread timer = new Thread(claim);
+            timer.start();
+            claim.run();
+            timer.join();
+            assertEquals(1, winners.get());
+        }
+    }
+    
+    @Test
+    void clientHeaderOnlyTightensTheServerTimeout() {
+        assertEquals(10_000L, RequestDeadline.effectiveTimeoutMillis(null, null));
+        assertEquals(500L, RequestDeadline.effectiveTimeoutMillis(null, "500"));
+        assertEquals(10_000L, RequestDeadline.effectiveTimeoutMillis(null, "60000"));
+        assertEquals(2_000L, RequestDeadline.effectiveTimeoutMillis(2_000L, " 60000 "));
+        assertEquals(2_000L, RequestDeadline.effectiveTimeoutMillis(2_000L, "soon"));
+        assertEquals(1L, RequestDeadline.effectiveTimeoutMillis(2_000L, "-5"));
+        
+        // A route timeout replaces the default, so a slow route can allow more; NO_TIMEOUT leaves the header alone
+        assertEquals(30_000L, RequestDeadline.effectiveTimeoutMillis(30_000L, null));
+        assertEquals(RequestDeadline.NO_TIMEOUT, RequestDeadline.effectiveTimeoutMillis(RequestDeadline.NO_TIMEOUT, null));
+        assertEquals(250L, RequestDeadline.effectiveTimeoutMillis(RequestDeadline.NO_TIMEOUT, "250"));
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.example.controller.AbstractHttpController;
+import org.example.route.DispatchTable;
+import org.example.route.RouteRegistrar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTracerTest {
+    
+    private static final int SLOWEST = 3;
+    private static final int REQUESTS = 5;
+    private static final int SLEEP_STEP_MILLIS = 50;
+    
+    private Vertx vertx;
+    private WorkerExecutor workerExecutor;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        workerExecutor = vertx.createSharedWorkerExecutor("tracer-test", 4);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        workerExecutor.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void keepsSlowestRequestsPerRouteWithPhaseTimelines() throws Exception {
+        assertSlowestKept(null);
+    }
+    
+    @Test
+    void groupsFastDispatchedRequestsByRoutePattern() throws Exception {
+        assertSlowestKept(new DispatchTable(true));
+    }
+    
+    private void assertSlowestKept(DispatchTable table) throws Exception {
+        RequestTracer tracer = new RequestTracer(1.0, SLOWEST, 4);
+        int port = startServer(tracer, table);
+        // The first requests pay for class loading and would outrank the slow handlers
+        for (int i = 0; i < 5; i++) {
+            get(port, 0);
+        }
+        Thread.sleep(100);
+        tracer.reset();
+        for (int i = 1; i <= REQUESTS; i++) {
+            get(port, i * SLEEP_STEP_MILLIS);
+        }
+        // The end handler files the trace right after the response is flushed
+        Thread.sleep(100);
+        
+        JsonObject json = tracer.toJson();
+        assertEquals(5L + REQUESTS, json.getLong("sampled"));
+        JsonArray slowest = json.getJsonObject("routes").getJsonArray("GET /items/:id");
+        assertNotNull(slowest, json.encode());
+        assertEquals(SLOWEST, slowest.size());
+        for (int i = 0; i < SLOWEST; i++) {
+            JsonObject trace = slowest.getJsonObject(i);
+            if (i > 0) {
+                assertTrue(trace.getLong("totalMicros") <= slowest.getJsonObject(i - 1).getLong("totalMicros"));
+            }
+            int sleepMillis = (REQUESTS - i) * SLEEP_STEP_MILLIS;
+            assertEquals("/items/" + sleepMillis, trace.getString("path"));
+            assertEquals(200, trace.getInteger("status"));
+            assertTrue(trace.getString("thread").startsWith("tracer-test"), trace.encode());
+            JsonObject phases = trace.getJsonObject("phasesMicros");
+            for (String phase : new String[] {"queueWait", "handler", "serialization", "write"}) {
+                assertNotNull(phases.getLong(phase), phase + " in " + trace.encode());
+            }
+            assertTrue(phases.getLong("handler") >= sleepMillis * 1000L, trace.encode());
+            assertTrue(trace.getLong("totalMicros") >= phases.getLong("handler"), trace.encode());
+        }
+    }
+    
+    private void get(int port, int sleepMillis) throws Exception {
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/items/" + sleepMillis)).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+    }
+    
+    @Test
+    void disabledTracerNeverTouchesTheRequest() {
+        RequestTracer tracer = new RequestTracer(0, SLOWEST, 4);
+        // A null context would throw if either call looked at the request
+        assertNull(tracer.begin(null));
+        assertNull(tracer.current(null));
+        
+        int traced = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (tracer.begin(null) != null || tracer.current(null) != null) {
+                traced++;
+            }
+        }
+        assertEquals(0, traced);
+    }
+    
+    private int startServer(RequestTracer tracer, DispatchTable table) throws Exception {
+        ItemController controller = new ItemController(vertx, workerExecutor);
+        controller.setRequestTracer(tracer);
+        Router router = Router.router(vertx);
+        if (table != null) {
+            router.route().handler(table);
+        }
+        new RouteRegistrar(router, table).get("/items/:id", controller::getItem);
+        HttpServer server = vertx.createHttpServer()
+            .requestHandler(router)
+            .listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        return server.actualPort();
+    }
+    
+    private static final class ItemController extends AbstractHttpController {
+        
+        ItemController(Vertx vertx, WorkerExecutor workerExecutor) {
+            super(vertx, workerExecutor);
+        }
+        
+        void getItem(RoutingContext context) {
+            long sleepMillis = Long.parseLong(context.pathParam("id"));
+            handleAsyncWithWorker(context, promise -> {
+                try {
+                    Thread.sleep(sleepMillis);
+                    sendJsonResponse(context, Map.of("id", sleepMillis));
+                    promise.complete();
+                } catch (InterruptedException e) {
+                    promise.fail(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuntimeStatsSamplerTest {
+    
+    private static final int HISTORY = 4;
+    
+    @Test
+    void servesTheSameSnapshotUntilTheNextSample() throws Exception {
+        RuntimeStatsSampler sampler = new RuntimeStatsSampler(200, HISTORY);
+        try {
+            RuntimeStatsSampler.Snapshot first = awaitSnapshot(sampler);
+            assertSame(first, sampler.latest());
+            
+            JsonObject json = new JsonObject(first.json());
+            JsonObject threads = json.getJsonObject("systemThreads");
+            assertTrue(threads.getInteger("total") > 0, json.encode());
+            assertEquals(threads.getInteger("total").intValue(),
+                         threads.getInteger("eventLoopThreads") + threads.getInteger("workerThreads")
+                         + threads.getInteger("internalBlockingThreads") + threads.getInteger("computeThreads")
+                         + threads.getInteger("otherThreads"));
+            assertNotNull(json.getJsonObject("memory").getLong("heapUsed"));
+            assertNotNull(json.getJsonObject("pools").getJsonObject("compute"));
+            assertNotNull(json.getLong("samplingMicros"));
+            
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sampler.latest() == first && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNotSame(first, sampler.latest());
+        } finally {
+            sampler.close();
+        }
+    }
+    
+    @Test
+    void historyKeepsASlidingWindowOfSamples() throws Exception {
+        RuntimeStatsSampler sampler = new RuntimeStatsSampler(20, HISTORY);
+        try {
+            awaitSnapshot(sampler);
+            JsonObject history = new JsonObject(sampler.latest().historyJson());
+            long firstSample = history.getJsonArray("samples").getJsonObject(0).getLong("timestamp");
+            // Wait until the oldest sample has been evicted from the window
+            long deadline = System.currentTimeMillis() + 5000;
+            while (history.getJsonArray("samples").getJsonObject(0).getLong("timestamp") == firstSample
+                   && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                history = new JsonObject(sampler.latest().historyJson());
+            }
+            JsonArray samples = history.getJsonArray("samples");
+            assertTrue(samples.getJsonObject(0).getLong("timestamp") > firstSample, history.encode());
+            assertEquals(HISTORY, samples.size(), history.encode());
+            for (int i = 1; i < samples.size(); i++) {
+                assertTrue(samples.getJsonObject(i).getLong("timestamp") >= samples.getJsonObject(i - 1).getLong("timestamp"));
+            }
+        } finally {
+            sampler.close();
+        }
+    }
+    
+    private static RuntimeStatsSampler.Snapshot awaitSnapshot(RuntimeStatsSampler sampler) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sampler.latest() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(sampler.latest(), "no sample within 5 s");
+        return sampler.latest();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Fixture cgroup trees under src/test/resources/cgroup: v2 has cpu.max and memory.max at the root, v1 has
+// cpu/cpu.cfs_quota_us, cpu/cpu.cfs_period_us and memory/memory.limit_in_bytes
+class ThreadConfigurationTest {
+    
+    private static final String EVENT_LOOPS_PROPERTY = "threads.event-loops";
+    private static final String EVENT_LOOPS_ENV = "EVENT_LOOP_THREADS";
+    
+    @ParameterizedTest(name = "{0} on {1} CPUs")
+    @CsvSource({
+        // fixture,     host, quota, memory,     cpus, loops, workers, maxWorkers
+        "v2-quota,      8,    1.5,   536870912,  2,    4,     15,      30",
+        "v2-quota,      1,    1.5,   536870912,  1,    2,     15,      30",
+        "v2-fractional, 4,    0.5,   -1,         1,    2,     15,      30",
+        "v2-unlimited,  8,    -1,    -1,         8,    16,    15,      30",
+        "v1-quota,      8,    2.0,   67108864,   2,    4,     4,       4",
+        "v1-unlimited,  4,    -1,    -1,         4,    8,     15,      30",
+        "v2-garbled,    4,    -1,    -1,         4,    8,     15,      30",
+        "missing,       4,    -1,    -1,         4,    8,     15,      30",
+    })
+    void sizesPoolsFromTheCgroupLimits(String fixture, int hostCpus, double quota, long memory, int effectiveCpus,
+                                       int eventLoops, int workers, int maxWorkers) throws Exception {
+        Path root = cgroup(fixture);
+        assertEquals(quota, ThreadConfiguration.readCpuQuota(root));
+        assertEquals(memory, ThreadConfiguration.readMemoryLimit(root));
+        
+        ThreadConfiguration config = ThreadConfiguration.detect(root, hostCpus, name -> null);
+        assertEquals(effectiveCpus, config.getEffectiveCpus());
+        assertEquals(eventLoops, config.getEventLoopThreads());
+        assertEquals(eventLoops, config.getVerticleInstances());
+        assertEquals(effectiveCpus, config.getComputeParallelism());
+        assertEquals(workers, config.getWorkersPerVerticle());
+        assertEquals(maxWorkers, config.getMaxWorkersPerVerticle());
+    }
+    
+    @ParameterizedTest(name = "{0}: property={1} env={2}")
+    @CsvSource({
+        // fixture,    property, env, loops
+        "v2-unlimited, ,         ,    16",
+        "v2-unlimited, ,         7,   7",
+        "v2-unlimited, 3,        7,   3",
+        "v2-unlimited, 3,        ,    3",
+        "v1-quota,     ,         ,    4",
+        "v1-quota,     ,         12,  12",
+        "v1-quota,     6,        12,  6",
+    })
+    void systemPropertiesWinOverEnvironmentAndCgroups(String fixture, String property, String env, int eventLoops)
+            throws Exception {
+        Map<String, String> environment = env == null ? Map.of() : Map.of(EVENT_LOOPS_ENV, env);
+        if (property != null) {
+            System.setProperty(EVENT_LOOPS_PROPERTY, property);
+        }
+        try {
+            ThreadConfiguration config = ThreadConfiguration.detect(cgroup(fixture), 8, environment::get);
+            assertEquals(eventLoops, config.getEventLoopThreads());
+            assertEquals(eventLoops, config.getVerticleInstances());
+        } finally {
+            System.clearProperty(EVENT_LOOPS_PROPERTY);
+        }
+    }
+    
+    private static Path cgroup(String fixture) throws Exception {
+        return Paths.get(ThreadConfigurationTest.class.getResource("/cgroup").toURI()).resolve(fixture);
+    }
+}
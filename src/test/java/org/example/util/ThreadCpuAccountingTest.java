@@ -0,0 +1,61 @@
+package org.example.util;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadCpuAccountingTest {
+    
+    // Keeps the busy loop from being optimised away
+    private static volatile long blackhole;
+    
+    @Test
+    void classifiesThreadsByPool() {
+        assertEquals(ThreadCpuAccounting.Category.EVENT_LOOP, ThreadCpuAccounting.Category.of("vert.x-eventloop-thread-3"));
+        assertEquals(ThreadCpuAccounting.Category.EVENT_LOOP, ThreadCpuAccounting.Category.of("vert.x-acceptor-thread-0"));
+        assertEquals(ThreadCpuAccounting.Category.WORKER, ThreadCpuAccounting.Category.of("vert.x-worker-thread-1"));
+        assertEquals(ThreadCpuAccounting.Category.WORKER,
+                     ThreadCpuAccounting.Category.of("worker-pool-verticle-1f0c-4"));
+        assertEquals(ThreadCpuAccounting.Category.INTERNAL_BLOCKING,
+                     ThreadCpuAccounting.Category.of("vert.x-internal-blocking-0"));
+        assertEquals(ThreadCpuAccounting.Category.COMPUTE,
+                     ThreadCpuAccounting.Category.of(ComputeExecutor.THREAD_PREFIX + "2"));
+        assertEquals(ThreadCpuAccounting.Category.OTHER, ThreadCpuAccounting.Category.of("Reference Handler"));
+    }
+    
+    @Test
+    void attributesIntervalCpuToTheBusyPool() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            started.countDown();
+            long end = System.nanoTime() + 400_000_000L;
+            long spin = 0;
+            while (System.nanoTime() < end) {
+                spin++;
+            }
+            blackhole = spin;
+        }, ComputeExecutor.THREAD_PREFIX + "test");
+        busy.start();
+        started.await();
+        
+        ThreadCpuAccounting.Snapshot before = ThreadCpuAccounting.snapshot();
+        Thread.sleep(300);
+        JsonObject json = ThreadCpuAccounting.toJson(before, ThreadCpuAccounting.snapshot(), 3);
+        busy.join();
+        
+        JsonObject groups = json.getJsonObject("groups");
+        JsonObject compute = groups.getJsonObject("compute");
+        // The spinning thread gets whatever share of a core the machine leaves it, but it outweighs every other pool
+        assertTrue(compute.getDouble("cores") > 0.1, json.encode());
+        for (String group : groups.fieldNames()) {
+            assertTrue(compute.getDouble("cpuMillis") >= groups.getJsonObject(group).getDouble("cpuMillis"), json.encode());
+        }
+        assertEquals(ComputeExecutor.THREAD_PREFIX + "test",
+                     compute.getJsonArray("top").getJsonObject(0).getString("name"));
+        assertTrue(json.getDouble("intervalMillis") >= 300, json.encode());
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuCacheTest {
+    
+    private static final int KEY_SPACE = 100_000;
+    private static final int CACHE_SIZE = 1_000;
+    private static final int TRACE_LENGTH = 1_000_000;
+    private static final int THREADS = 4;
+    
+    @Test
+    void boundsSizeExpiresAndInvalidates() {
+        AtomicLong now = new AtomicLong(-5_000_000_000L);
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, 1_000, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "v" + i);
+            assertTrue(cache.size() <= 100, "size " + cache.size());
+        }
+        assertEquals(9_900L, cache.toJson().getLong("evictions"));
+        
+        cache.put(-1, "x");
+        assertEquals("x", cache.getIfPresent(-1));
+        cache.put(-1, "y");
+        assertEquals("y", cache.getIfPresent(-1));
+        cache.invalidate(-1);
+        assertNull(cache.getIfPresent(-1));
+        
+        cache.put(-2, "z");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("z", cache.getIfPresent(-2));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertNull(cache.getIfPresent(-2));
+        // The next write sweeps everything written a ttl ago
+        cache.put(-3, "w");
+        assertEquals(1, cache.size());
+        assertTrue(cache.toJson().getLong("expirations") >= 99);
+    }
+    
+    @Test
+    void keepsFrequentlyReadKeysThroughAScanOfOneOffKeys() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 0);
+        for (int key = 0; key < 10; key++) {
+            cache.put(key, key);
+            for (int i = 0; i < 20; i++) {
+                cache.getIfPresent(key);
+            }
+        }
+        // One-off keys leave the window with a count of one and lose every contest against a hot key
+        for (int key = 1_000; key < 11_000; key++) {
+            cache.put(key, key);
+            cache.getIfPresent(key % 10);
+        }
+        for (int key = 0; key < 10; key++) {
+            assertEquals(key, cache.getIfPresent(key));
+        }
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+    }
+    
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10, 0);
+        AtomicInteger loads = new AtomicInteger();
+        Promise<Integer> slowLoad = Promise.promise();
+        CountDownLatch started = new CountDownLatch(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                Future<Integer> result = cache.get("k", key -> {
+                    loads.incrementAndGet();
+                    return slowLoad.future();
+                });
+                synchronized (results) {
+                    results.add(result);
+                }
+                started.countDown();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        slowLoad.complete(42);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Future<Integer> result : results) {
+            assertEquals(42, result.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(42, cache.getIfPresent("k"));
+        
+        // Failures are handed to every waiter but not cached
+        Future<Integer> failed = cache.get("bad", key -> Future.failedFuture("boom"));
+        assertTrue(failed.failed());
+        assertEquals(7, cache.get("bad", key -> Future.succeededFuture(7)).result());
+    }
+    
+    // Stand-in for a simulator run: hit ratio on Zipfian traces, alone and with one-off scans mixed in
+    @Test
+    void beatsLruHitRatioOnZipfianTraces() {
+        for (double skew : new double[] {0.8, 1.0}) {
+            double[] ratios = hitRatios(zipfTrace(skew, TRACE_LENGTH, 42));
+            assertTrue(ratios[0] > ratios[1], "zipf " + skew + ": W-TinyLFU " + ratios[0] + " vs LRU " + ratios[1]);
+        }
+        int[] zipf = zipfTrace(0.8, TRACE_LENGTH, 7);
+        // Every 50k accesses a scan of 5k keys that are never seen again
+        int[] scanned = new int[TRACE_LENGTH];
+        int scanKey = KEY_SPACE;
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            scanned[i] = i % 50_000 < 5_000 ? scanKey++ : zipf[i];
+        }
+        double[] ratios = hitRatios(scanned);
+        assertTrue(ratios[0] > ratios[1], "with scans: W-TinyLFU " + ratios[0] + " vs LRU " + ratios[1]);
+    }
+    
+    @Test
+    void staysBoundedUnderConcurrentReadsAndFills() throws Exception {
+        int[] trace = zipfTrace(1.0, TRACE_LENGTH, 3);
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(CACHE_SIZE, 0);
+        AtomicInteger wrongValues = new AtomicInteger();
+        runConcurrently(trace, key -> {
+            Integer value = cache.getIfPresent(key);
+            if (value == null) {
+                cache.put(key, key);
+            } else if (value != key) {
+                wrongValues.incrementAndGet();
+            }
+        });
+        assertEquals(0, wrongValues.get());
+        assertTrue(cache.size() <= CACHE_SIZE, "size " + cache.size());
+        assertTrue(cache.toJson().getDouble("hitRatio") > 0.4, cache.toJson().encode());
+    }
+    
+    // Hit ratios of W-TinyLFU and plain LRU with the same capacity
+    private static double[] hitRatios(int[] trace) {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(CACHE_SIZE, 0);
+        Map<Integer, Integer> lru = lru(CACHE_SIZE);
+        long lruHits = 0;
+        for (int key : trace) {
+            if (cache.getIfPresent(key) == null) {
+                cache.put(key, key);
+            }
+            if (lru.get(key) != null) {
+                lruHits++;
+            } else {
+                lru.put(key, key);
+            }
+        }
+        return new double[] {cache.toJson().getDouble("hitRatio"), (double) lruHits / trace.length};
+    }
+    
+    private interface Access {
+        void run(int key);
+    }
+    
+    // The whole trace, split across THREADS threads
+    private static void runConcurrently(int[] trace, Access access) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = offset; i < trace.length; i += THREADS) {
+                    access.run(trace[i]);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+    
+    private static Map<Integer, Integer> lru(int capacity) {
+        return new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    // Keys 0..KEY_SPACE-1 with P(rank r) proportional to 1 / r^skew
+    private static int[] zipfTrace(double skew, int length, long seed) {
+        double[] cumulative = new double[KEY_SPACE];
+        double sum = 0;
+        for (int rank = 0; rank < KEY_SPACE; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = index >= 0 ? index : Math.min(-index - 1, KEY_SPACE - 1);
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TunableWorkerPoolTest {
+    
+    private Vertx vertx;
+    private WorkerExecutor workerExecutor;
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        workerExecutor = vertx.createSharedWorkerExecutor("tunable-test", 8);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        workerExecutor.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void runsAtMostTheConcurrencyAndQueuesTheRest() throws Exception {
+        TunableWorkerPool pool = new TunableWorkerPool(workerExecutor, 2);
+        Semaphore release = new Semaphore(0);
+        AtomicInteger started = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int task = i;
+            results.add(pool.executeBlocking(promise -> {
+                started.incrementAndGet();
+                release.acquireUninterruptibly();
+                promise.complete(task);
+            }));
+        }
+        awaitStarted(started, 2);
+        assertEquals(2, pool.getRunning());
+        assertEquals(4, pool.getQueued());
+        
+        // Growing starts queued tasks without waiting for a completion
+        pool.setConcurrency(4);
+        awaitStarted(started, 4);
+        assertEquals(2, pool.getQueued());
+        
+        // Shrinking lets running tasks finish and only then holds the queue back
+        pool.setConcurrency(1);
+        release.release(4);
+        awaitStarted(started, 5);
+        Thread.sleep(50);
+        assertEquals(5, started.get());
+        assertEquals(1, pool.getRunning());
+        release.release(2);
+        
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, pool.getRunning());
+        assertEquals(0, pool.getQueued());
+    }
+    
+    @Test
+    void measuresQueueWaitUntilAWorkerStartsTheTask() throws Exception {
+        TunableWorkerPool pool = new TunableWorkerPool(workerExecutor, 1);
+        assertEquals(-1, pool.drainAverageQueueWaitNanos());
+        
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> blocker = pool.executeBlocking(promise -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            promise.complete();
+        });
+        Future<Object> queued = pool.executeBlocking(promise -> promise.complete());
+        Thread.sleep(100);
+        release.countDown();
+        blocker.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        queued.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        
+        // Two samples: about 0 and at least 100 ms
+        long average = pool.drainAverageQueueWaitNanos();
+        assertTrue(average >= TimeUnit.MILLISECONDS.toNanos(50), "average " + average);
+        assertEquals(-1, pool.drainAverageQueueWaitNanos());
+    }
+    
+    private static void awaitStarted(AtomicInteger started, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (started.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, started.get());
+    }
+}
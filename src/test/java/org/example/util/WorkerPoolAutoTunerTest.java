@@ -0,0 +1,99 @@
+package org.example.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkerPoolAutoTunerTest {
+    
+    private static final long MILLIS = 1_000_000L;
+    
+    private Vertx vertx;
+    private WorkerExecutor workerExecutor;
+    private TunableWorkerPool pool;
+    private ConcurrencyLimiter limiter;
+    private double cpu;
+    
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        workerExecutor = vertx.createSharedWorkerExecutor("tuner-test", 32);
+        pool = new TunableWorkerPool(workerExecutor, 1);
+        limiter = new ConcurrencyLimiter("tuner-test", 16, 1, 1000);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        workerExecutor.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void startsAtTheInitialConcurrencyWithRoomToQueue() {
+        tuner(8, 32);
+        assertEquals(8, pool.getConcurrency());
+        // In flight may exceed the running workers, otherwise the pool never queues and the tuner never grows
+        assertEquals(16, limiter.getMaxLimit());
+    }
+    
+    @Test
+    void growsWhileTasksQueueAndTheCpuIsIdle() {
+        WorkerPoolAutoTuner tuner = tuner(8, 32);
+        cpu = 0.3;
+        pool.recordQueueWait(50 * MILLIS);
+        tuner.tick();
+        assertEquals(10, pool.getConcurrency());
+        assertEquals(20, limiter.getMaxLimit());
+        
+        for (int i = 0; i < 20; i++) {
+            pool.recordQueueWait(50 * MILLIS);
+            tuner.tick();
+        }
+        assertEquals(32, pool.getConcurrency());
+        assertEquals(64, limiter.getMaxLimit());
+        assertEquals("queueing-with-idle-cpu",
+                     tuner.toJson().getJsonArray("decisions").getJsonObject(0).getString("reason"));
+    }
+    
+    @Test
+    void shrinksWhenTheCpuIsSaturated() {
+        WorkerPoolAutoTuner tuner = tuner(16, 32);
+        cpu = 0.95;
+        // Queue wait does not matter once the CPU is the bottleneck
+        pool.recordQueueWait(50 * MILLIS);
+        tuner.tick();
+        assertEquals(13, pool.getConcurrency());
+        assertEquals(26, limiter.getMaxLimit());
+        
+        for (int i = 0; i < 20; i++) {
+            tuner.tick();
+        }
+        assertEquals(4, pool.getConcurrency());
+        assertEquals("cpu-saturated", tuner.toJson().getJsonArray("decisions").getJsonObject(0).getString("reason"));
+    }
+    
+    @Test
+    void holdsWithoutASignal() {
+        WorkerPoolAutoTuner tuner = tuner(8, 32);
+        // Idle CPU but nothing queued, a short wait, or busy but not saturated
+        cpu = 0.3;
+        tuner.tick();
+        pool.recordQueueWait(MILLIS);
+        tuner.tick();
+        cpu = 0.7;
+        pool.recordQueueWait(50 * MILLIS);
+        tuner.tick();
+        assertEquals(8, pool.getConcurrency());
+        assertEquals(0, tuner.toJson().getJsonArray("decisions").size());
+    }
+    
+    private WorkerPoolAutoTuner tuner(int initialWorkers, int maxWorkers) {
+        return new WorkerPoolAutoTuner("test", pool, limiter, initialWorkers, maxWorkers, () -> cpu);
+    }
+}